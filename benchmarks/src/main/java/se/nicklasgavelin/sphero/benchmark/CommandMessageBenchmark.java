@@ -0,0 +1,81 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.command.RGBLEDCommand;
+import se.nicklasgavelin.sphero.command.RollCommand;
+import se.nicklasgavelin.sphero.command.SetDataStreamingCommand;
+import se.nicklasgavelin.util.ByteArrayBuffer;
+
+/**
+ * Creating command packets. Commands are created for every invocation as
+ * that is how they are used by the Robot class, the cached benchmark shows
+ * the cost of getPacket() once a command has been packetized. The write
+ * benchmarks encode directly into a sending buffer like the writer of the
+ * robot does.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class CommandMessageBenchmark
+{
+	private CommandMessage cached;
+	private final ByteArrayBuffer buffer = new ByteArrayBuffer( 256 );
+	private float heading = 0;
+	private int sequenceNumber = 0;
+
+	@Setup
+	public void setup()
+	{
+		this.cached = new RollCommand( 90, 0.5F, false );
+		this.cached.getPacket();
+	}
+
+	@Benchmark
+	public byte[] rollPacketize()
+	{
+		this.heading = ( this.heading + 1 ) % 360;
+		return new RollCommand( this.heading, 0.5F, false ).getPacket();
+	}
+
+	@Benchmark
+	public byte[] rgbPacketize()
+	{
+		return new RGBLEDCommand( 255, 128, 0 ).getPacket();
+	}
+
+	@Benchmark
+	public byte[] dataStreamingPacketize()
+	{
+		return new SetDataStreamingCommand( 10, 1, SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.ALL.FILTERED, 0, 0 ).getPacket();
+	}
+
+	@Benchmark
+	public byte[] cachedPacket()
+	{
+		return this.cached.getPacket();
+	}
+
+	@Benchmark
+	public int rollWrite()
+	{
+		this.heading = ( this.heading + 1 ) % 360;
+		this.buffer.clear();
+		return new RollCommand( this.heading, 0.5F, false ).writePacket( this.buffer, this.sequenceNumber++ );
+	}
+
+	@Benchmark
+	public int stopWrite()
+	{
+		this.buffer.clear();
+		return RollCommand.STOP.writePacket( this.buffer, this.sequenceNumber++ );
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import se.nicklasgavelin.sphero.command.SetDataStreamingCommand.DATA_STREAMING_MASK2;
+import se.nicklasgavelin.sphero.command.SetDataStreamingCommand.DATA_STREAMING_MASKS;
+import se.nicklasgavelin.sphero.response.SensorData;
+import se.nicklasgavelin.sphero.response.SensorDataBatch;
+import se.nicklasgavelin.sphero.response.parser.DataStreamParser;
+
+/**
+ * Decoding of streamed sensor data for some common mask combinations
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class DataStreamParserBenchmark
+{
+	/**
+	 * IMU: pitch/roll/yaw, MOTION: raw and filtered accelerometer and gyro,
+	 * ALL: every channel of both masks
+	 */
+	@Param( { "IMU", "MOTION", "ALL" } )
+	public String masks;
+
+	@Param( { "1", "4" } )
+	public int frames;
+
+	private DataStreamParser parser;
+	private byte[] payload;
+	private SensorData sample;
+	private SensorDataBatch batch;
+
+	@Setup
+	public void setup()
+	{
+		int mask1 = 0, mask2 = 0;
+		if( "IMU".equals( this.masks ) )
+			mask1 = DATA_STREAMING_MASKS.IMU.ALL.FILTERED;
+		else if( "MOTION".equals( this.masks ) )
+			mask1 = DATA_STREAMING_MASKS.ACCELEROMETER.ALL.RAW | DATA_STREAMING_MASKS.ACCELEROMETER.ALL.FILTERED | DATA_STREAMING_MASKS.GYRO.ALL.RAW | DATA_STREAMING_MASKS.GYRO.ALL.FILTERED;
+		else
+		{
+			mask1 = DATA_STREAMING_MASKS.ALL;
+			mask2 = DATA_STREAMING_MASK2.ALL;
+		}
+
+		this.parser = new DataStreamParser( mask1, mask2, this.frames );
+
+		// Frames followed by the checksum byte, as received
+		this.payload = Packets.sensorPayload( this.parser.getFrameLength() * this.frames + 1 );
+		this.sample = new SensorData();
+		this.batch = new SensorDataBatch( this.frames );
+	}
+
+	@Benchmark
+	public SensorData parse()
+	{
+		return this.parser.parse( this.payload );
+	}
+
+	@Benchmark
+	public SensorData parseInto()
+	{
+		this.parser.parse( this.payload, 0, this.parser.getFrameLength(), this.sample );
+		return this.sample;
+	}
+
+	@Benchmark
+	public SensorDataBatch parseBatch()
+	{
+		this.batch.clear();
+		this.parser.parseBatch( this.payload, 0, this.payload.length, this.batch );
+		return this.batch;
+	}
+}
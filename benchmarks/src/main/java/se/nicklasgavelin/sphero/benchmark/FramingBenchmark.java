@@ -0,0 +1,73 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.parser.ResponseFrameDecoder;
+
+/**
+ * The framing loop of the robot listener fed from a canned byte stream.
+ * The stream is a mix of regular responses and data packets and is handed
+ * to the decoder in chunks of the given size, like reads from the socket.
+ * One operation is one pass over the whole stream.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class FramingBenchmark
+{
+	@Param( { "16", "256" } )
+	public int chunk;
+
+	private ResponseFrameDecoder decoder;
+	private byte[] stream;
+
+	@Setup
+	public void setup()
+	{
+		byte[][] packets = new byte[ 64 ][];
+		for( int i = 0; i < packets.length; i++ )
+		{
+			if( i % 4 == 0 )
+				packets[i] = Packets.response( i, new byte[ 0 ] );
+			else
+				packets[i] = Packets.information( INFORMATION_RESPONSE_CODE.DATA, Packets.sensorPayload( 24 ) );
+		}
+
+		this.stream = Packets.stream( packets );
+		this.decoder = new ResponseFrameDecoder( 256 );
+	}
+
+	@Benchmark
+	public int frames()
+	{
+		int frames = 0;
+		for( int offset = 0; offset < this.stream.length; )
+		{
+			offset += this.decoder.append( this.stream, offset, Math.min( this.chunk, this.stream.length - offset ) );
+			while( this.decoder.nextFrame() )
+				frames++;
+		}
+		return frames;
+	}
+
+	@Benchmark
+	public void framesAndHeaders( Blackhole bh )
+	{
+		for( int offset = 0; offset < this.stream.length; )
+		{
+			offset += this.decoder.append( this.stream, offset, Math.min( this.chunk, this.stream.length - offset ) );
+			while( this.decoder.nextFrame() )
+				bh.consume( new ResponseMessage.ResponseHeader( this.decoder.buffer(), this.decoder.frameOffset() ) );
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import se.nicklasgavelin.sphero.macro.MacroObject;
+import se.nicklasgavelin.sphero.macro.command.Delay;
+import se.nicklasgavelin.sphero.macro.command.RGB;
+import se.nicklasgavelin.sphero.macro.command.Roll;
+
+/**
+ * Generating the macro data that is sent to the device
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MacroObjectBenchmark
+{
+	@Param( { "10", "100" } )
+	public int commands;
+
+	private MacroObject macro;
+
+	@Setup
+	public void setup()
+	{
+		this.macro = new MacroObject();
+		for( int i = 0; i < this.commands; i++ )
+		{
+			switch ( i % 3 )
+			{
+				case 0:
+					this.macro.addCommand( new Roll( 0.5, ( i * 10 ) % 360, 0 ) );
+					break;
+				case 1:
+					this.macro.addCommand( new RGB( 255, i % 256, 0, 0 ) );
+					break;
+				default:
+					this.macro.addCommand( new Delay( 50 ) );
+					break;
+			}
+		}
+	}
+
+	@Benchmark
+	public byte[] generateMacroData()
+	{
+		return this.macro.generateMacroData();
+	}
+}
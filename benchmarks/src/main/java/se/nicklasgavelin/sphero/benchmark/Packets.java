@@ -0,0 +1,108 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.parser.ResponseFrameDecoder;
+
+/**
+ * Canned response packets used by the benchmarks
+ */
+final class Packets
+{
+	private Packets()
+	{
+	}
+
+	/**
+	 * Create a regular response packet with a valid checksum
+	 *
+	 * @param seq The sequence number
+	 * @param payload The payload (excluding the checksum)
+	 *
+	 * @return The packet
+	 */
+	static byte[] response( int seq, byte[] payload )
+	{
+		byte[] p = new byte[ ResponseMessage.RESPONSE_HEADER_LENGTH + payload.length + 1 ];
+		p[0] = ResponseFrameDecoder.SOP1;
+		p[1] = ResponseFrameDecoder.SOP2_REGULAR;
+		p[ResponseMessage.RESPONSE_CODE_INDEX] = 0;
+		p[ResponseMessage.SEQUENCE_NUMBER_INDEX] = (byte) seq;
+
+		return finish( p, payload );
+	}
+
+	/**
+	 * Create an information packet with a valid checksum
+	 *
+	 * @param type The information type
+	 * @param payload The payload (excluding the checksum)
+	 *
+	 * @return The packet
+	 */
+	static byte[] information( INFORMATION_RESPONSE_CODE type, byte[] payload )
+	{
+		byte[] p = new byte[ ResponseMessage.INFORMATION_RESPONSE_HEADER_LENGTH + payload.length + 1 ];
+		p[0] = ResponseFrameDecoder.SOP1;
+		p[1] = ResponseFrameDecoder.SOP2_INFORMATION;
+		p[ResponseMessage.INFORMATION_RESPONSE_TYPE_INDEX] = type.getCode();
+		p[ResponseMessage.INFORMATION_PAYLOAD_LENGTH_MSB_INDEX] = (byte) ( ( payload.length + 1 ) >> 8 );
+
+		return finish( p, payload );
+	}
+
+	/**
+	 * Create a sensor data payload with the given length
+	 *
+	 * @param length The number of bytes
+	 *
+	 * @return The payload
+	 */
+	static byte[] sensorPayload( int length )
+	{
+		byte[] b = new byte[ length ];
+		for( int i = 0; i < length; i++ )
+			b[i] = (byte) ( i * 31 );
+		return b;
+	}
+
+	/**
+	 * Concatenate packets into a single stream
+	 *
+	 * @param packets The packets
+	 *
+	 * @return The stream
+	 */
+	static byte[] stream( byte[]... packets )
+	{
+		int length = 0;
+		for( byte[] p : packets )
+			length += p.length;
+
+		byte[] s = new byte[ length ];
+		int offset = 0;
+		for( byte[] p : packets )
+		{
+			System.arraycopy( p, 0, s, offset, p.length );
+			offset += p.length;
+		}
+		return s;
+	}
+
+	private static byte[] finish( byte[] p, byte[] payload )
+	{
+		System.arraycopy( payload, 0, p, ResponseMessage.RESPONSE_HEADER_LENGTH, payload.length );
+		p[ResponseMessage.PAYLOAD_LENGTH_INDEX] = (byte) ( payload.length + 1 );
+
+		byte checksum = 0;
+		for( int i = 2; i < p.length - 1; i++ )
+			checksum += p[i];
+		p[p.length - 1] = (byte) ~checksum;
+
+		return p;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.command.GetBluetoothInfoCommand;
+import se.nicklasgavelin.sphero.command.RollCommand;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.regular.RollResponse;
+
+/**
+ * Parsing of received responses: creating the response header, the
+ * checksum calculation done when a response message is created and the
+ * dispatch from a header to the matching response class.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ResponseMessageBenchmark
+{
+	private byte[] rollPacket, bluetoothInfoPacket, dataPacket;
+	private CommandMessage roll, bluetoothInfo;
+
+	@Setup
+	public void setup()
+	{
+		this.roll = new RollCommand( 90, 0.5F, false );
+		this.bluetoothInfo = new GetBluetoothInfoCommand();
+
+		this.rollPacket = Packets.response( 1, new byte[ 0 ] );
+		this.bluetoothInfoPacket = Packets.response( 2, new byte[ 31 ] );
+		this.dataPacket = Packets.information( INFORMATION_RESPONSE_CODE.DATA, Packets.sensorPayload( 60 ) );
+	}
+
+	@Benchmark
+	public ResponseMessage.ResponseHeader header()
+	{
+		return new ResponseMessage.ResponseHeader( this.dataPacket, 0 );
+	}
+
+	@Benchmark
+	public ResponseMessage headerAndChecksum()
+	{
+		return new RollResponse( new ResponseMessage.ResponseHeader( this.rollPacket, 0 ) );
+	}
+
+	@Benchmark
+	public ResponseMessage dispatchRoll()
+	{
+		return ResponseMessage.valueOf( this.roll, new ResponseMessage.ResponseHeader( this.rollPacket, 0 ) );
+	}
+
+	@Benchmark
+	public ResponseMessage dispatchBluetoothInfo()
+	{
+		return ResponseMessage.valueOf( this.bluetoothInfo, new ResponseMessage.ResponseHeader( this.bluetoothInfoPacket, 0 ) );
+	}
+
+	@Benchmark
+	public InformationResponseMessage dispatchData()
+	{
+		return InformationResponseMessage.valueOf( new ResponseMessage.ResponseHeader( this.dataPacket, 0 ) );
+	}
+}
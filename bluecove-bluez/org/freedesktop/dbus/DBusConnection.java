@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.reflect.Proxy;
 
@@ -163,7 +163,7 @@ public class DBusConnection extends AbstractConnection
             if (Debug.debug) Debug.print(Debug.WARN, "Handling Disconnected signal from bus");
             try {
                Error err = new Error(
-                     "org.freedesktop.DBus.Local" , "org.freedesktop.DBus.Local.Disconnected", 0, "s", new Object[] { _("Disconnected") });
+                     "org.freedesktop.DBus.Local" , "org.freedesktop.DBus.Local.Disconnected", 0, "s", new Object[] { t("Disconnected") });
                if (null != pendingCalls) synchronized (pendingCalls) {
                   long[] set = pendingCalls.getKeys();
                   for (long l: set) if (-1 != l) {
@@ -241,16 +241,16 @@ public class DBusConnection extends AbstractConnection
                if (null == s) {
 						// address gets stashed in $HOME/.dbus/session-bus/`dbus-uuidgen --get`-`sed 's/:\(.\)\..*/\1/' <<< $DISPLAY`
 						String display = System.getenv("DISPLAY");
-						if (null == display) throw new DBusException(_("Cannot Resolve Session Bus Address"));
+						if (null == display) throw new DBusException(t("Cannot Resolve Session Bus Address"));
 						File uuidfile = new File("/var/lib/dbus/machine-id");
-						if (!uuidfile.exists()) throw new DBusException(_("Cannot Resolve Session Bus Address"));
+						if (!uuidfile.exists()) throw new DBusException(t("Cannot Resolve Session Bus Address"));
 						try {
 							BufferedReader r = new BufferedReader(new FileReader(uuidfile));
 							String uuid = r.readLine();
 							String homedir = System.getProperty("user.home");
 							File addressfile = new File(homedir + "/.dbus/session-bus",
 									uuid + "-" + display.replaceAll(":([0-9]*)\\..*", "$1"));
-							if (!addressfile.exists()) throw new DBusException(_("Cannot Resolve Session Bus Address"));
+							if (!addressfile.exists()) throw new DBusException(t("Cannot Resolve Session Bus Address"));
 							r = new BufferedReader(new FileReader(addressfile));
 							String l;
 							while (null != (l = r.readLine())) {
@@ -260,16 +260,16 @@ public class DBusConnection extends AbstractConnection
 									if (Debug.debug) Debug.print(Debug.VERBOSE, "Parsing "+l+" to "+s);
 								}
 							}
-							if (null == s || "".equals(s)) throw new DBusException(_("Cannot Resolve Session Bus Address"));
+							if (null == s || "".equals(s)) throw new DBusException(t("Cannot Resolve Session Bus Address"));
 							if (Debug.debug) Debug.print(Debug.INFO, "Read bus address "+s+" from file "+addressfile.toString());
 						} catch (Exception e) {
 							if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, e);
-							throw new DBusException(_("Cannot Resolve Session Bus Address"));
+							throw new DBusException(t("Cannot Resolve Session Bus Address"));
 						}
 					}
                break;
             default:
-               throw new DBusException(_("Invalid Bus Type: ")+bustype);
+               throw new DBusException(t("Invalid Bus Type: ")+bustype);
          }
          DBusConnection c = conn.get(s);
          if (Debug.debug) Debug.print(Debug.VERBOSE, "Getting bus connection for "+s+": "+c);
@@ -301,11 +301,11 @@ public class DBusConnection extends AbstractConnection
       } catch (IOException IOe) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, IOe);            
          disconnect();
-         throw new DBusException(_("Failed to connect to bus ")+IOe.getMessage());
+         throw new DBusException(t("Failed to connect to bus ")+IOe.getMessage());
       } catch (ParseException Pe) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, Pe);            
          disconnect();
-         throw new DBusException(_("Failed to connect to bus ")+Pe.getMessage());
+         throw new DBusException(t("Failed to connect to bus ")+Pe.getMessage());
       }
 
       // start listening for calls
@@ -361,7 +361,7 @@ public class DBusConnection extends AbstractConnection
             }
          }
 
-         if (ifcs.size() == 0) throw new DBusException(_("Could not find an interface to cast to"));
+         if (ifcs.size() == 0) throw new DBusException(t("Could not find an interface to cast to"));
 
          RemoteObject ro = new RemoteObject(source, path, null, false);
          DBusInterface newi = (DBusInterface) 
@@ -372,7 +372,7 @@ public class DBusConnection extends AbstractConnection
          return newi;
       } catch (Exception e) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, e);
-         throw new DBusException(MessageFormat.format(_("Failed to create proxy object for {0} exported by {1}. Reason: {2}"), new Object[] { path, source, e.getMessage() }));
+         throw new DBusException(MessageFormat.format(t("Failed to create proxy object for {0} exported by {1}. Reason: {2}"), new Object[] { path, source, e.getMessage() }));
       }
    }
    
@@ -387,7 +387,7 @@ public class DBusConnection extends AbstractConnection
          o = null;
       }
       if (null != o) return o.object.get();
-      if (null == source) throw new DBusException(_("Not an object exported by this connection and no remote specified"));
+      if (null == source) throw new DBusException(t("Not an object exported by this connection and no remote specified"));
       return dynamicProxy(source, path);
    }
 
@@ -400,7 +400,7 @@ public class DBusConnection extends AbstractConnection
    public void releaseBusName(String busname) throws DBusException
    {
       if (!busname.matches(BUSNAME_REGEX)||busname.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name"));
+         throw new DBusException(t("Invalid bus name"));
       synchronized (this.busnames) {
          UInt32 rv;
          try { 
@@ -422,7 +422,7 @@ public class DBusConnection extends AbstractConnection
    public void requestBusName(String busname) throws DBusException
    {
       if (!busname.matches(BUSNAME_REGEX)||busname.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name"));
+         throw new DBusException(t("Invalid bus name"));
       synchronized (this.busnames) {
          UInt32 rv;
          try { 
@@ -435,8 +435,8 @@ public class DBusConnection extends AbstractConnection
          }
          switch (rv.intValue()) {
             case DBus.DBUS_REQUEST_NAME_REPLY_PRIMARY_OWNER: break;
-            case DBus.DBUS_REQUEST_NAME_REPLY_IN_QUEUE: throw new DBusException(_("Failed to register bus name"));
-            case DBus.DBUS_REQUEST_NAME_REPLY_EXISTS: throw new DBusException(_("Failed to register bus name"));
+            case DBus.DBUS_REQUEST_NAME_REPLY_IN_QUEUE: throw new DBusException(t("Failed to register bus name"));
+            case DBus.DBUS_REQUEST_NAME_REPLY_EXISTS: throw new DBusException(t("Failed to register bus name"));
             case DBus.DBUS_REQUEST_NAME_REPLY_ALREADY_OWNER: break;
             default: break;
          }
@@ -486,11 +486,11 @@ public class DBusConnection extends AbstractConnection
    */
    public DBusInterface getPeerRemoteObject(String busname, String objectpath) throws DBusException
    {
-      if (null == busname) throw new DBusException(_("Invalid bus name: null"));
+      if (null == busname) throw new DBusException(t("Invalid bus name: null"));
       
       if ((!busname.matches(BUSNAME_REGEX) && !busname.matches(CONNID_REGEX))
             || busname.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid bus name: ")+busname);
+         throw new DBusException(t("Invalid bus name: ")+busname);
       
       String unique = _dbus.GetNameOwner(busname);
 
@@ -519,15 +519,15 @@ public class DBusConnection extends AbstractConnection
     */
    public DBusInterface getRemoteObject(String busname, String objectpath) throws DBusException
    {
-      if (null == busname) throw new DBusException(_("Invalid bus name: null"));
-      if (null == objectpath) throw new DBusException(_("Invalid object path: null"));
+      if (null == busname) throw new DBusException(t("Invalid bus name: null"));
+      if (null == objectpath) throw new DBusException(t("Invalid object path: null"));
       
       if ((!busname.matches(BUSNAME_REGEX) && !busname.matches(CONNID_REGEX))
          || busname.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name: ")+busname);
+         throw new DBusException(t("Invalid bus name: ")+busname);
       
       if (!objectpath.matches(OBJECT_REGEX) || objectpath.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       
       return dynamicProxy(busname, objectpath);
    }
@@ -552,11 +552,11 @@ public class DBusConnection extends AbstractConnection
     */
    public <I extends DBusInterface> I getPeerRemoteObject(String busname, String objectpath, Class<I> type, boolean autostart) throws DBusException
    {
-      if (null == busname) throw new DBusException(_("Invalid bus name: null"));
+      if (null == busname) throw new DBusException(t("Invalid bus name: null"));
       
       if ((!busname.matches(BUSNAME_REGEX) && !busname.matches(CONNID_REGEX))
             || busname.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid bus name: ")+busname);
+         throw new DBusException(t("Invalid bus name: ")+busname);
       
       String unique = _dbus.GetNameOwner(busname);
 
@@ -601,23 +601,23 @@ public class DBusConnection extends AbstractConnection
    @SuppressWarnings("unchecked")
    public <I extends DBusInterface> I getRemoteObject(String busname, String objectpath, Class<I> type, boolean autostart) throws DBusException
    {
-      if (null == busname) throw new DBusException(_("Invalid bus name: null"));
-      if (null == objectpath) throw new DBusException(_("Invalid object path: null"));
-      if (null == type) throw new ClassCastException(_("Not A DBus Interface"));
+      if (null == busname) throw new DBusException(t("Invalid bus name: null"));
+      if (null == objectpath) throw new DBusException(t("Invalid object path: null"));
+      if (null == type) throw new ClassCastException(t("Not A DBus Interface"));
       
       if ((!busname.matches(BUSNAME_REGEX) && !busname.matches(CONNID_REGEX))
          || busname.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name: ")+busname);
+         throw new DBusException(t("Invalid bus name: ")+busname);
       
       if (!objectpath.matches(OBJECT_REGEX) || objectpath.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       
-      if (!DBusInterface.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Interface"));
+      if (!DBusInterface.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Interface"));
 
       // don't let people import things which don't have a
       // valid D-Bus interface name
       if (type.getName().equals(type.getSimpleName()))
-         throw new DBusException(_("DBusInterfaces cannot be declared outside a package"));
+         throw new DBusException(t("DBusInterfaces cannot be declared outside a package"));
       
       RemoteObject ro = new RemoteObject(busname, objectpath, type, autostart);
       I i =  (I) Proxy.newProxyInstance(type.getClassLoader(), 
@@ -635,10 +635,10 @@ public class DBusConnection extends AbstractConnection
     */
    public <T extends DBusSignal> void removeSigHandler(Class<T> type, String source, DBusSigHandler<T> handler) throws DBusException
    {
-      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Signal"));
-      if (source.matches(BUSNAME_REGEX)) throw new DBusException(_("Cannot watch for signals based on well known bus name as source, only unique names."));
+      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Signal"));
+      if (source.matches(BUSNAME_REGEX)) throw new DBusException(t("Cannot watch for signals based on well known bus name as source, only unique names."));
       if (!source.matches(CONNID_REGEX)||source.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name: ")+source);
+         throw new DBusException(t("Invalid bus name: ")+source);
       removeSigHandler(new DBusMatchRule(type, source, null), handler);
    }
    /** 
@@ -652,13 +652,13 @@ public class DBusConnection extends AbstractConnection
     */
    public <T extends DBusSignal> void removeSigHandler(Class<T> type, String source, DBusInterface object,  DBusSigHandler<T> handler) throws DBusException
    {
-      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Signal"));
-      if (source.matches(BUSNAME_REGEX)) throw new DBusException(_("Cannot watch for signals based on well known bus name as source, only unique names."));
+      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Signal"));
+      if (source.matches(BUSNAME_REGEX)) throw new DBusException(t("Cannot watch for signals based on well known bus name as source, only unique names."));
       if (!source.matches(CONNID_REGEX)||source.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid bus name: ")+source);
+         throw new DBusException(t("Invalid bus name: ")+source);
       String objectpath = importedObjects.get(object).objectpath;
       if (!objectpath.matches(OBJECT_REGEX)||objectpath.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       removeSigHandler(new DBusMatchRule(type, source, objectpath), handler);
    }
    protected <T extends DBusSignal> void removeSigHandler(DBusMatchRule rule, DBusSigHandler<T> handler) throws DBusException
@@ -695,10 +695,10 @@ public class DBusConnection extends AbstractConnection
    @SuppressWarnings("unchecked")
    public <T extends DBusSignal> void addSigHandler(Class<T> type, String source, DBusSigHandler<T> handler) throws DBusException
    {
-      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Signal"));
-      if (source.matches(BUSNAME_REGEX)) throw new DBusException(_("Cannot watch for signals based on well known bus name as source, only unique names."));
+      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Signal"));
+      if (source.matches(BUSNAME_REGEX)) throw new DBusException(t("Cannot watch for signals based on well known bus name as source, only unique names."));
       if (!source.matches(CONNID_REGEX)||source.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid bus name: ")+source);
+         throw new DBusException(t("Invalid bus name: ")+source);
       addSigHandler(new DBusMatchRule(type, source, null), (DBusSigHandler<? extends DBusSignal>) handler);
    }
    /** 
@@ -714,13 +714,13 @@ public class DBusConnection extends AbstractConnection
    @SuppressWarnings("unchecked")
    public <T extends DBusSignal> void addSigHandler(Class<T> type, String source, DBusInterface object,  DBusSigHandler<T> handler) throws DBusException
    {
-      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Signal"));
-      if (source.matches(BUSNAME_REGEX)) throw new DBusException(_("Cannot watch for signals based on well known bus name as source, only unique names."));
+      if (!DBusSignal.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Signal"));
+      if (source.matches(BUSNAME_REGEX)) throw new DBusException(t("Cannot watch for signals based on well known bus name as source, only unique names."));
       if (!source.matches(CONNID_REGEX)||source.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid bus name: ")+source);
+         throw new DBusException(t("Invalid bus name: ")+source);
       String objectpath = importedObjects.get(object).objectpath;
       if (!objectpath.matches(OBJECT_REGEX)||objectpath.length() > MAX_NAME_LENGTH)
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       addSigHandler(new DBusMatchRule(type, source, objectpath), (DBusSigHandler<? extends DBusSignal>) handler);
    }
    protected <T extends DBusSignal> void addSigHandler(DBusMatchRule rule, DBusSigHandler<T> handler) throws DBusException
@@ -756,7 +756,7 @@ public class DBusConnection extends AbstractConnection
                // Set all pending messages to have an error.
                try {
                   Error err = new Error(
-                        "org.freedesktop.DBus.Local" , "org.freedesktop.DBus.Local.Disconnected", 0, "s", new Object[] { _("Disconnected") });
+                        "org.freedesktop.DBus.Local" , "org.freedesktop.DBus.Local.Disconnected", 0, "s", new Object[] { t("Disconnected") });
                   synchronized (pendingCalls) {
                      long[] set = pendingCalls.getKeys();
                      for (long l: set) if (-1 != l) {
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.GenericDeclaration;
@@ -34,7 +34,7 @@ public class DBusSignal extends Message
       super(Message.Endian.BIG, Message.MessageType.SIGNAL, (byte) 0);
 
       if (null == path || null == member || null == iface)
-         throw new MessageFormatException(_("Must specify object path, interface and signal name to Signals."));
+         throw new MessageFormatException(t("Must specify object path, interface and signal name to Signals."));
       headers.put(Message.HeaderField.PATH,path);
       headers.put(Message.HeaderField.MEMBER,member);
       headers.put(Message.HeaderField.INTERFACE,iface);
@@ -100,7 +100,7 @@ public class DBusSignal extends Message
             type = AbstractConnection.dollar_pattern.matcher(c.getEnclosingClass().getName()).replaceAll(".");
 
       } else
-         throw new DBusException(_("Signals must be declared as a member of a class implementing DBusInterface which is the member of a package."));
+         throw new DBusException(t("Signals must be declared as a member of a class implementing DBusInterface which is the member of a package."));
       DBusSignal s = new internalsig(source, objectpath, type, c.getSimpleName(), sig, parameters, serial);
       s.c = c;
       return s;
@@ -119,7 +119,7 @@ public class DBusSignal extends Message
          name = name.replaceAll("\\.([^\\.]*)$", "\\$$1");
       } while (null == c && name.matches(".*\\..*"));
 		if (null == c) 
-			throw new DBusException(_("Could not create class from signal ")+intname+'.'+signame);
+			throw new DBusException(t("Could not create class from signal ")+intname+'.'+signame);
 		classCache.put(name, c);
       return c;
    }
@@ -182,7 +182,7 @@ public class DBusSignal extends Message
    {
       super(Message.Endian.BIG, Message.MessageType.SIGNAL, (byte) 0);
 
-      if (!objectpath.matches(AbstractConnection.OBJECT_REGEX)) throw new DBusException(_("Invalid object path: ")+objectpath);
+      if (!objectpath.matches(AbstractConnection.OBJECT_REGEX)) throw new DBusException(t("Invalid object path: ")+objectpath);
 
       Class<? extends DBusSignal> tc = getClass();
       String member;
@@ -195,7 +195,7 @@ public class DBusSignal extends Message
       if (null == enc ||
             !DBusInterface.class.isAssignableFrom(enc) ||
             enc.getName().equals(enc.getSimpleName()))
-         throw new DBusException(_("Signals must be declared as a member of a class implementing DBusInterface which is the member of a package."));
+         throw new DBusException(t("Signals must be declared as a member of a class implementing DBusInterface which is the member of a package."));
       else
          if (null != enc.getAnnotation(DBusInterfaceName.class))
             iface = enc.getAnnotation(DBusInterfaceName.class).value();
@@ -233,7 +233,7 @@ public class DBusSignal extends Message
             setArgs(args);
          } catch (Exception e) {
             if (AbstractConnection.EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, e);
-            throw new DBusException(_("Failed to add signal parameters: ")+e.getMessage());
+            throw new DBusException(t("Failed to add signal parameters: ")+e.getMessage());
          }
       }
 
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.reflect.Proxy;
 import java.io.File;
@@ -46,10 +46,10 @@ public class DirectConnection extends AbstractConnection
 			connected = true;
       } catch (IOException IOe) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, IOe);            
-         throw new DBusException(_("Failed to connect to bus ")+IOe.getMessage());
+         throw new DBusException(t("Failed to connect to bus ")+IOe.getMessage());
       } catch (ParseException Pe) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, Pe);            
-         throw new DBusException(_("Failed to connect to bus ")+Pe.getMessage());
+         throw new DBusException(t("Failed to connect to bus ")+Pe.getMessage());
       }
 
       listen();
@@ -128,7 +128,7 @@ public class DirectConnection extends AbstractConnection
             }
          }
 
-         if (ifcs.size() == 0) throw new DBusException(_("Could not find an interface to cast to"));
+         if (ifcs.size() == 0) throw new DBusException(t("Could not find an interface to cast to"));
 
          RemoteObject ro = new RemoteObject(null, path, null, false);
          DBusInterface newi =  (DBusInterface)
@@ -139,7 +139,7 @@ public class DirectConnection extends AbstractConnection
          return newi;
       } catch (Exception e) {
          if (EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, e);
-         throw new DBusException(MessageFormat.format(_("Failed to create proxy object for {0}; reason: {1}."), new Object[] { path, e.getMessage()}));
+         throw new DBusException(MessageFormat.format(t("Failed to create proxy object for {0}; reason: {1}."), new Object[] { path, e.getMessage()}));
       }
    }
    
@@ -177,10 +177,10 @@ public class DirectConnection extends AbstractConnection
     */
    public DBusInterface getRemoteObject(String objectpath) throws DBusException
    {
-      if (null == objectpath) throw new DBusException(_("Invalid object path: null"));
+      if (null == objectpath) throw new DBusException(t("Invalid object path: null"));
       
       if (!objectpath.matches(OBJECT_REGEX) || objectpath.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       
       return dynamicProxy(objectpath);
    }
@@ -199,18 +199,18 @@ public class DirectConnection extends AbstractConnection
     */
    public DBusInterface getRemoteObject(String objectpath, Class<? extends DBusInterface> type) throws DBusException
    {
-      if (null == objectpath) throw new DBusException(_("Invalid object path: null"));
-      if (null == type) throw new ClassCastException(_("Not A DBus Interface"));
+      if (null == objectpath) throw new DBusException(t("Invalid object path: null"));
+      if (null == type) throw new ClassCastException(t("Not A DBus Interface"));
       
       if (!objectpath.matches(OBJECT_REGEX) || objectpath.length() > MAX_NAME_LENGTH) 
-         throw new DBusException(_("Invalid object path: ")+objectpath);
+         throw new DBusException(t("Invalid object path: ")+objectpath);
       
-      if (!DBusInterface.class.isAssignableFrom(type)) throw new ClassCastException(_("Not A DBus Interface"));
+      if (!DBusInterface.class.isAssignableFrom(type)) throw new ClassCastException(t("Not A DBus Interface"));
 
       // don't let people import things which don't have a
       // valid D-Bus interface name
       if (type.getName().equals(type.getSimpleName()))
-         throw new DBusException(_("DBusInterfaces cannot be declared outside a package"));
+         throw new DBusException(t("DBusInterfaces cannot be declared outside a package"));
       
       RemoteObject ro = new RemoteObject(null, objectpath, type, false);
       DBusInterface i =  (DBusInterface) Proxy.newProxyInstance(type.getClassLoader(), 
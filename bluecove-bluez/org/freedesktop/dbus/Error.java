@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.reflect.Constructor;
 import java.util.Vector;
@@ -36,7 +36,7 @@ public class Error extends Message
       super(Message.Endian.BIG, Message.MessageType.ERROR, (byte) 0);
 
       if (null == errorName)
-         throw new MessageFormatException(_("Must specify error name to Errors."));
+         throw new MessageFormatException(t("Must specify error name to Errors."));
       headers.put(Message.HeaderField.REPLY_SERIAL,replyserial);
       headers.put(Message.HeaderField.ERROR_NAME,errorName);
       
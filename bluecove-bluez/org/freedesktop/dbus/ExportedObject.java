@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
@@ -65,9 +65,9 @@ class ExportedObject
                // don't let people export things which don't have a
                // valid D-Bus interface name
                if (c.getName().equals(c.getSimpleName()))
-                  throw new DBusException(_("DBusInterfaces cannot be declared outside a package"));
+                  throw new DBusException(t("DBusInterfaces cannot be declared outside a package"));
                if (c.getName().length() > DBusConnection.MAX_NAME_LENGTH) 
-                  throw new DBusException(_("Introspected interface name exceeds 255 characters. Cannot export objects of type ")+c.getName());
+                  throw new DBusException(t("Introspected interface name exceeds 255 characters. Cannot export objects of type ")+c.getName());
                else
                   introspectiondata += " <interface name=\""+AbstractConnection.dollar_pattern.matcher(c.getName()).replaceAll(".")+"\">\n";
             }
@@ -81,7 +81,7 @@ class ExportedObject
                   else
                      name = meth.getName();
                   if (name.length() > DBusConnection.MAX_NAME_LENGTH) 
-                     throw new DBusException(_("Introspected method name exceeds 255 characters. Cannot export objects with method ")+name);
+                     throw new DBusException(t("Introspected method name exceeds 255 characters. Cannot export objects with method ")+name);
                   introspectiondata += "  <method name=\""+name+"\" >\n";
                   introspectiondata += getAnnotations(meth);
                   for (Class ex: meth.getExceptionTypes())
@@ -103,7 +103,7 @@ class ExportedObject
                               for (String s: Marshalling.getDBusType(t))
                                  introspectiondata += "   <arg type=\""+s+"\" direction=\"out\"/>\n";
                      } else if (Object[].class.equals(meth.getGenericReturnType())) {
-                        throw new DBusException(_("Return type of Object[] cannot be introspected properly"));
+                        throw new DBusException(t("Return type of Object[] cannot be introspected properly"));
                      } else
                         for (String s: Marshalling.getDBusType(meth.getGenericReturnType()))
                         introspectiondata += "   <arg type=\""+s+"\" direction=\"out\"/>\n";
@@ -120,7 +120,7 @@ class ExportedObject
                   } else
                      name = sig.getSimpleName();
                   if (name.length() > DBusConnection.MAX_NAME_LENGTH) 
-                     throw new DBusException(_("Introspected signal name exceeds 255 characters. Cannot export objects with signals of type ")+name);
+                     throw new DBusException(t("Introspected signal name exceeds 255 characters. Cannot export objects with signals of type ")+name);
                   introspectiondata += "  <signal name=\""+name+"\">\n";
                   Constructor con = sig.getConstructors()[0];
                   Type[] ts = con.getGenericParameterTypes();
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -98,13 +98,13 @@ public class Marshalling
       else out[level].delete(0, out[level].length());      
 
       if (basic && !(c instanceof Class))
-         throw new DBusException(c+_(" is not a basic type"));
+         throw new DBusException(c+t(" is not a basic type"));
 
       if (c instanceof TypeVariable) out[level].append((char) Message.ArgumentType.VARIANT);
       else if (c instanceof GenericArrayType) {
          out[level].append((char) Message.ArgumentType.ARRAY);
          String[] s = recursiveGetDBusType(((GenericArrayType) c).getGenericComponentType(), false, level+1);
-         if (s.length != 1) throw new DBusException(_("Multi-valued array types not permitted"));
+         if (s.length != 1) throw new DBusException(t("Multi-valued array types not permitted"));
          out[level].append(s[0]);
       } else if ((c instanceof Class && 
                DBusSerializable.class.isAssignableFrom((Class<? extends Object>) c)) ||
@@ -122,12 +122,12 @@ public class Marshalling
                if (m.getName().equals("deserialize")) 
                   newtypes = m.getGenericParameterTypes();
 
-         if (null == newtypes) throw new DBusException(_("Serializable classes must implement a deserialize method"));
+         if (null == newtypes) throw new DBusException(t("Serializable classes must implement a deserialize method"));
 
          String[] sigs = new String[newtypes.length];
          for (int j = 0; j < sigs.length; j++) {
             String[] ss = recursiveGetDBusType(newtypes[j], false, level+1);
-            if (1 != ss.length) throw new DBusException(_("Serializable classes must serialize to native DBus types"));
+            if (1 != ss.length) throw new DBusException(t("Serializable classes must serialize to native DBus types"));
             sigs[j] = ss[0];
          }
          return sigs;
@@ -139,14 +139,14 @@ public class Marshalling
             Type[] t = p.getActualTypeArguments();
             try {
                String[] s = recursiveGetDBusType(t[0], true, level+1);
-               if (s.length != 1) throw new DBusException(_("Multi-valued array types not permitted"));
+               if (s.length != 1) throw new DBusException(t("Multi-valued array types not permitted"));
                out[level].append(s[0]);
                s = recursiveGetDBusType(t[1], false, level+1);
-               if (s.length != 1) throw new DBusException(_("Multi-valued array types not permitted"));
+               if (s.length != 1) throw new DBusException(t("Multi-valued array types not permitted"));
                out[level].append(s[0]);
             } catch (ArrayIndexOutOfBoundsException AIOOBe) {
                if (AbstractConnection.EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, AIOOBe);
-               throw new DBusException(_("Map must have 2 parameters"));
+               throw new DBusException(t("Map must have 2 parameters"));
             }
             out[level].append('}');
          }
@@ -156,7 +156,7 @@ public class Marshalling
                   out[level].append((char) Message.ArgumentType.SIGNATURE);
                else {
                   String[] s = recursiveGetDBusType(t, false, level+1);
-                  if (s.length != 1) throw new DBusException(_("Multi-valued array types not permitted"));
+                  if (s.length != 1) throw new DBusException(t("Multi-valued array types not permitted"));
                   out[level].append((char) Message.ArgumentType.ARRAY);
                   out[level].append(s[0]);
                }
@@ -177,7 +177,7 @@ public class Marshalling
             return vs.toArray(new String[0]);
          }
          else
-            throw new DBusException(_("Exporting non-exportable parameterized type ")+c);
+            throw new DBusException(t("Exporting non-exportable parameterized type ")+c);
       }
       
       else if (c.equals(Byte.class)) out[level].append((char) Message.ArgumentType.BYTE);
@@ -214,7 +214,7 @@ public class Marshalling
          else {
             out[level].append((char) Message.ArgumentType.ARRAY);
             String[] s = recursiveGetDBusType(((Class<? extends Object>) c).getComponentType(), false, level+1);
-            if (s.length != 1) throw new DBusException(_("Multi-valued array types not permitted"));
+            if (s.length != 1) throw new DBusException(t("Multi-valued array types not permitted"));
             out[level].append(s[0]);
          }
       } else if (c instanceof Class && 
@@ -238,7 +238,7 @@ public class Marshalling
                   out[level].append(s);
          out[level].append(')');
       } else {
-         throw new DBusException(_("Exporting non-exportable type ")+c);
+         throw new DBusException(t("Exporting non-exportable type ")+c);
       }
 
       if (Debug.debug) Debug.print(Debug.VERBOSE, "Converted Java type: "+c+" to D-Bus Type: "+out[level]);
@@ -335,12 +335,12 @@ public class Marshalling
                   i+=c+1;
                   break;
                default:
-                  throw new DBusException(MessageFormat.format(_("Failed to parse DBus type signature: {0} ({1})."), new Object[] { dbus, dbus.charAt(i) }));
+                  throw new DBusException(MessageFormat.format(t("Failed to parse DBus type signature: {0} ({1})."), new Object[] { dbus, dbus.charAt(i) }));
             }
          return i;
       } catch (IndexOutOfBoundsException IOOBe) {
          if (AbstractConnection.EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, IOOBe);
-         throw new DBusException(_("Failed to parse DBus type signature: ")+dbus);
+         throw new DBusException(t("Failed to parse DBus type signature: ")+dbus);
       }
    }
    /**
@@ -583,7 +583,7 @@ public class Marshalling
                   Debug.print(Debug.ERR, String.format("Error, Parameters difference (%1d, '%2s')", j, parameters[j].toString()));
                }
             }
-            throw new DBusException(_("Error deserializing message: number of parameters didn't match receiving signature"));
+            throw new DBusException(t("Error deserializing message: number of parameters didn't match receiving signature"));
          }
          if (null == parameters[i]) continue;
 
@@ -612,7 +612,7 @@ public class Marshalling
                      parameters = compress;
                   } catch (ArrayIndexOutOfBoundsException AIOOBe) {
                      if (AbstractConnection.EXCEPTION_DEBUG && Debug.debug) Debug.print(Debug.ERR, AIOOBe);
-                     throw new DBusException(MessageFormat.format(_("Not enough elements to create custom object from serialized data ({0} < {1})."), 
+                     throw new DBusException(MessageFormat.format(t("Not enough elements to create custom object from serialized data ({0} < {1})."), 
                                  new Object[] { parameters.length-i, newtypes.length }));
                   }
                }
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.io.BufferedInputStream;
 import java.io.EOFException;
@@ -46,7 +46,7 @@ public class MessageReader
       if (len[0] < 12) {
          try { rv = in.read(buf, len[0], 12-len[0]); }
          catch (SocketTimeoutException STe) { return null; }
-         if (-1 == rv) throw new EOFException(_("Underlying transport returned EOF"));
+         if (-1 == rv) throw new EOFException(t("Underlying transport returned EOF"));
          len[0] += rv;
       }
       if (len[0] == 0) return null;
@@ -61,7 +61,7 @@ public class MessageReader
       byte protover = buf[3];
       if (protover > Message.PROTOCOL) {
          buf = null;
-         throw new MessageProtocolVersionException(MessageFormat.format(_("Protocol version {0} is unsupported"), new Object[] { protover }));
+         throw new MessageProtocolVersionException(MessageFormat.format(t("Protocol version {0} is unsupported"), new Object[] { protover }));
       }
 
       /* Read the length of the variable header */
@@ -69,7 +69,7 @@ public class MessageReader
       if (len[1] < 4) {
          try { rv = in.read(tbuf, len[1], 4-len[1]); }
          catch (SocketTimeoutException STe) { return null; }
-         if (-1 == rv) throw new EOFException(_("Underlying transport returned EOF"));
+         if (-1 == rv) throw new EOFException(t("Underlying transport returned EOF"));
          len[1] += rv;
       }
       if (len[1] < 4) {
@@ -95,7 +95,7 @@ public class MessageReader
       if (len[2] < headerlen) {
          try { rv = in.read(header, 8+len[2], headerlen-len[2]); }
          catch (SocketTimeoutException STe) { return null; }
-         if (-1 == rv) throw new EOFException(_("Underlying transport returned EOF"));
+         if (-1 == rv) throw new EOFException(t("Underlying transport returned EOF"));
          len[2] += rv;
       }
       if (len[2] < headerlen) {
@@ -110,7 +110,7 @@ public class MessageReader
       if (len[3] < body.length) {
          try { rv = in.read(body, len[3], body.length-len[3]); }
          catch (SocketTimeoutException STe) { return null; }
-         if (-1 == rv) throw new EOFException(_("Underlying transport returned EOF"));
+         if (-1 == rv) throw new EOFException(t("Underlying transport returned EOF"));
          len[3] += rv;
       }
       if (len[3] < body.length) {
@@ -133,7 +133,7 @@ public class MessageReader
             m = new Error();
             break;
          default:
-            throw new MessageTypeException(MessageFormat.format(_("Message type {0} unsupported"), new Object[] {type}));
+            throw new MessageTypeException(MessageFormat.format(t("Message type {0} unsupported"), new Object[] {type}));
       }
       if (Debug.debug) {
          Debug.print(Debug.VERBOSE, Hexdump.format(buf));
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.math.BigInteger;
 
@@ -42,7 +42,7 @@ public class UInt64 extends Number implements Comparable<UInt64>
    public UInt64(long value)
    {
       if (value < MIN_VALUE || value > MAX_LONG_VALUE)
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_LONG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_LONG_VALUE}));
       this.value = new BigInteger(""+value);
       this.top = this.value.shiftRight(32).and(new BigInteger("4294967295")).longValue();
       this.bottom = this.value.and(new BigInteger("4294967295")).longValue();
@@ -58,9 +58,9 @@ public class UInt64 extends Number implements Comparable<UInt64>
       a = a.shiftLeft(32);
       a = a.add(new BigInteger(""+bottom));
       if (0 > a.compareTo(BigInteger.ZERO))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { a, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { a, MIN_VALUE, MAX_BIG_VALUE}));
       if (0 < a.compareTo(MAX_BIG_VALUE))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { a, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { a, MIN_VALUE, MAX_BIG_VALUE}));
       this.value = a;
       this.top = top;
       this.bottom = bottom;
@@ -72,11 +72,11 @@ public class UInt64 extends Number implements Comparable<UInt64>
    public UInt64(BigInteger value)
    {
       if (null == value)
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       if (0 > value.compareTo(BigInteger.ZERO))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       if (0 < value.compareTo(MAX_BIG_VALUE))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       this.value = value;
       this.top = this.value.shiftRight(32).and(new BigInteger("4294967295")).longValue();
       this.bottom = this.value.and(new BigInteger("4294967295")).longValue();
@@ -88,12 +88,12 @@ public class UInt64 extends Number implements Comparable<UInt64>
    public UInt64(String value)
    {
       if (null == value)
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       BigInteger a = new BigInteger(value);
       if (0 > a.compareTo(BigInteger.ZERO))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       if (0 < a.compareTo(MAX_BIG_VALUE))
-         throw new NumberFormatException(MessageFormat.format(_("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
+         throw new NumberFormatException(MessageFormat.format(t("{0} is not between {1} and {2}."), new Object[] { value, MIN_VALUE, MAX_BIG_VALUE}));
       this.value = a;
       this.top = this.value.shiftRight(32).and(new BigInteger("4294967295")).longValue();
       this.bottom = this.value.and(new BigInteger("4294967295")).longValue();
@@ -10,7 +10,7 @@
 */
 package org.freedesktop.dbus.viewer;
 
-import static org.freedesktop.dbus.Gettext._;
+import static org.freedesktop.dbus.Gettext.t;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
@@ -79,7 +79,7 @@ abstract class TabbedSaveAction extends AbstractAction implements Iterable<TextF
 			chooser = new JFileChooser();
 		}
 		chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-		chooser.setDialogTitle(_("Select parent directory for saving"));
+		chooser.setDialogTitle(t("Select parent directory for saving"));
 		
 		int result = chooser.showDialog(tabbedPane, "Select");
 		
@@ -96,12 +96,12 @@ abstract class TabbedSaveAction extends AbstractAction implements Iterable<TextF
 				}
 				else
 				{
-					JOptionPane.showMessageDialog(tabbedPane, _("Could not write to parent directory"), _("Invalid Parent Directory"), JOptionPane.ERROR_MESSAGE);
+					JOptionPane.showMessageDialog(tabbedPane, t("Could not write to parent directory"), t("Invalid Parent Directory"), JOptionPane.ERROR_MESSAGE);
 				}
 			}
 			else
 			{
-				JOptionPane.showMessageDialog(tabbedPane, _("Could not access parent directory"), _("Invalid Parent Directory"), JOptionPane.ERROR_MESSAGE);
+				JOptionPane.showMessageDialog(tabbedPane, t("Could not access parent directory"), t("Invalid Parent Directory"), JOptionPane.ERROR_MESSAGE);
 			}
 		}
 	}
@@ -140,6 +140,22 @@ public class BluetoothConnection
 		return is.read( b );
 	}
 
+	/**
+	 * Read up to length bytes into the given array starting at offset
+	 *
+	 * @param b The byte buffer to read to
+	 * @param offset The offset in the buffer to start writing at
+	 * @param length The maximum number of bytes to read
+	 *
+	 * @return The number of bytes read or -1 if the end of stream is reached
+	 *
+	 * @throws IOException
+	 */
+	public int read( byte[] b, int offset, int length ) throws IOException
+	{
+		return is.read( b, offset, length );
+	}
+
 	/**
 	 * Read a boolean value
 	 * 
@@ -229,6 +245,14 @@ public class BluetoothConnection
 		os.write( data );
 	}
 
+	/**
+	 * @see java.io.DataOutputStream#write(byte[], int, int)
+	 */
+	public void write( byte[] data, int offset, int length ) throws IOException
+	{
+		os.write( data, offset, length );
+	}
+
 	/**
 	 * @see java.io.DataOutputStream#writeBoolean(boolean)
 	 */
@@ -20,6 +20,7 @@ public class BluetoothDevice implements DiscoveryListener
 	private final Bluetooth bt;
 	private BluetoothService service;
 	private int activeSearch;
+	private volatile boolean searching = false;
 	private String name = null;
 	private String address = null;
 	private String connectionUrl = null;
@@ -220,10 +221,14 @@ public class BluetoothDevice implements DiscoveryListener
 				synchronized( this.bt )
 				{
 					// Serh for available services for this device
+					this.searching = true;
 					this.activeSearch = this.bt.getDiscoveryAgent().searchServices( new int[] { BluetoothService.ATTR_SERVICENAME, BluetoothService.ATTR_SERVICEDESC, BluetoothService.ATTR_PROVIDERNAME }, new javax.bluetooth.UUID[] { this.bt.getUUID() }, this.device, this );
 
-					// Lock until we are done
-					this.bt.wait();
+					// Lock until our search is done, other devices that share
+					// the bt instance are notified on the same lock when their
+					// searches complete
+					while( this.searching )
+						this.bt.wait();
 				}
 			}
 			catch( BluetoothStateException e )
@@ -263,8 +268,8 @@ public class BluetoothDevice implements DiscoveryListener
 		// Notify observers
 		synchronized( this.bt )
 		{
-			if( this.activeSearch == transId )
-				this.bt.notifyAll();
+			this.searching = false;
+			this.bt.notifyAll();
 		}
 
 		// Check the response code
@@ -303,7 +308,10 @@ public class BluetoothDevice implements DiscoveryListener
 	@Override
 	public void servicesDiscovered( int transId, ServiceRecord[] records )
 	{
-		if( this.activeSearch == transId )
+		// The device is the listener of its own searches only, the
+		// transaction id may not have been stored yet when the first records
+		// arrive
+		if( this.searching )
 		{
 			if( records.length > 0 )
 				this.service = new BluetoothService( this, records[0] );//, this.bt );// TODO:
@@ -0,0 +1,86 @@
+package se.nicklasgavelin.bluetooth;
+
+import java.io.IOException;
+import javax.microedition.io.StreamConnection;
+import se.nicklasgavelin.log.Logging;
+import se.nicklasgavelin.sphero.exception.RobotBluetoothException;
+
+/**
+ * A device that is not reached over a Bluetooth radio but through a stream
+ * connection that is created on demand, for example a recorded session or a
+ * simulated device. No discovery is performed for these devices.
+ */
+public class StreamBluetoothDevice extends BluetoothDevice
+{
+	/**
+	 * Creates the stream connection when the device is connected to
+	 */
+	public interface ConnectionFactory
+	{
+		/**
+		 * Open a new stream connection to the device
+		 *
+		 * @return The stream connection
+		 *
+		 * @throws IOException If the connection could not be opened
+		 */
+		public StreamConnection open() throws IOException;
+	}
+
+	private final ConnectionFactory factory;
+	private final String name;
+
+	/**
+	 * Create a device with a given address
+	 *
+	 * @param address The (Bluetooth) address of the device
+	 * @param name The name of the device
+	 * @param factory The factory used to open connections to the device
+	 */
+	public StreamBluetoothDevice( String address, String name, ConnectionFactory factory )
+	{
+		super( null, "btspp://" + address + ":1" );
+		this.name = name;
+		this.factory = factory;
+	}
+
+	@Override
+	public String getName()
+	{
+		return this.name;
+	}
+
+	@Override
+	public void updateName()
+	{
+	}
+
+	@Override
+	public void discover() throws RobotBluetoothException
+	{
+	}
+
+	@Override
+	public void cancelDiscovery()
+	{
+	}
+
+	@Override
+	public BluetoothConnection connect() throws RobotBluetoothException
+	{
+		try
+		{
+			BluetoothConnection c = new BluetoothConnection( this.factory.open() );
+			c.device = this;
+			c.open();
+
+			return c;
+		}
+		catch( IOException e )
+		{
+			// Failure to connect for some reason
+			Logging.error( "Failed to open stream connection to " + this.getAddress(), e );
+			return null;
+		}
+	}
+}
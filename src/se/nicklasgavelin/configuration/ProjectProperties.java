@@ -6,6 +6,8 @@
 package se.nicklasgavelin.configuration;
 
 import java.awt.Color;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
 import java.util.Properties;
 import se.nicklasgavelin.log.Logging;
 import se.nicklasgavelin.sphero.RobotSetting;
@@ -14,6 +16,7 @@ import se.nicklasgavelin.sphero.command.RawMotorCommand;
 /**
  * Used for returning current configuration settings
  * Settings are stored in project.properties in the same packet as this class.
+ * Listeners can be added to be notified when a setting is changed.
  * 
  * @author Nicklas Gavelin, nicklas.gavelin@gmail.com, Luleå University of
  *         Technology
@@ -22,6 +25,7 @@ public class ProjectProperties extends Properties
 {
 	private static final long serialVersionUID = 4819632381205752349L;
 	private static ProjectProperties instance;
+	private final transient PropertyChangeSupport changeSupport = new PropertyChangeSupport( this );
 
 	/**
 	 * Create project properties
@@ -41,6 +45,48 @@ public class ProjectProperties extends Properties
 		}
 	}
 
+	/**
+	 * Add a listener that is notified when a property is set to a new value
+	 * 
+	 * @param listener The listener to add
+	 */
+	public void addPropertyChangeListener( PropertyChangeListener listener )
+	{
+		this.changeSupport.addPropertyChangeListener( listener );
+	}
+
+	/**
+	 * Remove a listener
+	 * 
+	 * @param listener The listener to remove
+	 */
+	public void removePropertyChangeListener( PropertyChangeListener listener )
+	{
+		this.changeSupport.removePropertyChangeListener( listener );
+	}
+
+	@Override
+	public synchronized Object put( Object key, Object value )
+	{
+		Object old = super.put( key, value );
+
+		// The listeners are not kept when serialized
+		if( this.changeSupport != null )
+			this.changeSupport.firePropertyChange( String.valueOf( key ), old, value );
+
+		return old;
+	}
+
+	@Override
+	public synchronized Object remove( Object key )
+	{
+		Object old = super.remove( key );
+		if( old != null && this.changeSupport != null )
+			this.changeSupport.firePropertyChange( String.valueOf( key ), old, null );
+
+		return old;
+	}
+
 	/**
 	 * Returns default robot settings
 	 * 
@@ -61,6 +107,116 @@ public class ProjectProperties extends Properties
 		return Integer.parseInt( this.getProperty( "sphero.socket.buffersize", "256" ) );
 	}
 
+	/**
+	 * Returns the number of streamed sensor samples that are kept in the
+	 * sensor history of a robot
+	 * 
+	 * @return The number of samples to keep
+	 */
+	public int getSensorHistorySize()
+	{
+		return Integer.parseInt( this.getProperty( "sphero.sensor.history", "4096" ) );
+	}
+
+	/**
+	 * Returns the time to wait for the response to a sent command before
+	 * the command is considered lost
+	 * 
+	 * @return The response timeout in ms
+	 */
+	public int getResponseTimeout()
+	{
+		return Integer.parseInt( this.getProperty( "sphero.response.timeout", "2000" ) );
+	}
+
+	/**
+	 * Returns the maximum number of sent commands that may wait for a
+	 * response at the same time, the rest are kept in the sending queue
+	 * 
+	 * @return The number of commands (1-256)
+	 */
+	public int getSendWindow()
+	{
+		return Math.max( 1, Math.min( 256, Integer.parseInt( this.getProperty( "sphero.send.window", "8" ) ) ) );
+	}
+
+	/**
+	 * Returns the number of threads of the scheduler that is shared by all
+	 * robots for delayed and periodic commands
+	 * 
+	 * @return The number of threads
+	 */
+	public int getSchedulerThreads()
+	{
+		return Math.max( 1, Integer.parseInt( this.getProperty( "sphero.scheduler.threads", "2" ) ) );
+	}
+
+	/**
+	 * Returns true if the listening and writing threads of the robots
+	 * should be virtual threads (requires Java 21 or later)
+	 * 
+	 * @return True for virtual threads, false for regular threads
+	 */
+	public boolean getVirtualThreads()
+	{
+		return Boolean.parseBoolean( this.getProperty( "sphero.threads.virtual", "false" ) );
+	}
+
+	/**
+	 * Returns the number of robots a fleet discovers and connects at the
+	 * same time
+	 * 
+	 * @return The number of concurrent connection attempts
+	 */
+	public int getFleetConcurrency()
+	{
+		return Math.max( 1, Integer.parseInt( this.getProperty( "sphero.fleet.concurrency", "4" ) ) );
+	}
+
+	/**
+	 * Returns the number of streamed sensor samples that are kept for each
+	 * subscriber of the sensor data publisher of a robot
+	 * 
+	 * @return The number of samples
+	 */
+	public int getSensorPublisherBuffer()
+	{
+		return Integer.parseInt( this.getProperty( "sphero.sensor.publisher.buffer", "256" ) );
+	}
+
+	/**
+	 * Returns true if robot listeners should be called on a thread of their
+	 * own instead of on the listening thread of the robot
+	 * 
+	 * @return True for a thread per listener, false otherwise
+	 */
+	public boolean getListenerThread()
+	{
+		return Boolean.parseBoolean( this.getProperty( "sphero.listener.thread", "false" ) );
+	}
+
+	/**
+	 * Returns the number of notifications that may wait for a listener with
+	 * a thread of its own before streamed sensor data is dropped
+	 * 
+	 * @return The number of notifications
+	 */
+	public int getListenerQueueSize()
+	{
+		return Integer.parseInt( this.getProperty( "sphero.listener.queue", "256" ) );
+	}
+
+	/**
+	 * Returns true if the metrics of every robot should be registered with
+	 * the platform MBean server
+	 * 
+	 * @return True to register the metrics, false otherwise
+	 */
+	public boolean getMetricsJmx()
+	{
+		return Boolean.parseBoolean( this.getProperty( "sphero.metrics.jmx", "false" ) );
+	}
+
 	/**
 	 * Returns the current debug state
 	 * 
@@ -133,6 +289,48 @@ public class ProjectProperties extends Properties
 		return Logging.Level.valueOf( this.getProperty( "debug.level", Logging.Level.FATAL.toString() ) );
 	}
 
+	/**
+	 * Returns true if log messages should be written by a background thread
+	 * 
+	 * @return True for asynchronous logging, false otherwise
+	 */
+	public boolean getDebugAsync()
+	{
+		return Boolean.parseBoolean( this.getProperty( "debug.async", "false" ) );
+	}
+
+	/**
+	 * Returns the number of log messages that may wait to be written when
+	 * logging asynchronously
+	 * 
+	 * @return The number of messages
+	 */
+	public int getDebugAsyncCapacity()
+	{
+		return Math.max( 2, Integer.parseInt( this.getProperty( "debug.async.capacity", "1024" ) ) );
+	}
+
+	/**
+	 * Returns true if a thread should wait instead of dropping its message
+	 * when too many messages are waiting to be written asynchronously
+	 * 
+	 * @return True to wait, false to drop
+	 */
+	public boolean getDebugAsyncBlock()
+	{
+		return Boolean.parseBoolean( this.getProperty( "debug.async.block", "false" ) );
+	}
+
+	/**
+	 * Set the debug level
+	 * 
+	 * @param level The new debug level
+	 */
+	public void setDebugLevel( Logging.Level level )
+	{
+		this.setProperty( "debug.level", level.toString() );
+	}
+
 	/**
 	 * Returns the properies instance
 	 * 
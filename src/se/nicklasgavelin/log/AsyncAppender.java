@@ -0,0 +1,185 @@
+package se.nicklasgavelin.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves the writing of log messages off the calling threads. Messages are
+ * put in a bounded ring by any number of threads without locking and are
+ * written by a single background thread in batches. When the ring is full a
+ * message is either dropped (and counted) or the calling thread waits until
+ * there is room, depending on the policy.
+ *
+ * The ring is a bounded multi producer queue where each slot has a sequence
+ * number telling if it's free for the producer at a position or filled for
+ * the consumer.
+ */
+final class AsyncAppender implements Runnable
+{
+	private static final int BATCH_SIZE = 256;
+	private static final long IDLE_WAIT = 1000000L, FULL_WAIT = 100000L; // ns
+
+	// Ring
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final Logging.Level[] levels;
+	private final String[] messages, threads;
+	private final Throwable[] throwables;
+	private final long[] times;
+	private final AtomicLong tail = new AtomicLong();
+	private long head = 0;
+
+	private final boolean block;
+	private final AtomicLong dropped;
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	/**
+	 * Create an appender and start its writing thread
+	 *
+	 * @param capacity The number of messages that may wait to be written,
+	 *            rounded up to a power of two
+	 * @param block True to let the calling thread wait when the ring is
+	 *            full, false to drop the message
+	 * @param dropped Counter of dropped messages
+	 */
+	AsyncAppender( int capacity, boolean block, AtomicLong dropped )
+	{
+		int size = Integer.highestOneBit( Math.max( 2, capacity ) - 1 ) << 1;
+
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray( size );
+		for( int i = 0; i < size; i++ )
+			this.sequences.set( i, i );
+
+		this.levels = new Logging.Level[ size ];
+		this.messages = new String[ size ];
+		this.threads = new String[ size ];
+		this.throwables = new Throwable[ size ];
+		this.times = new long[ size ];
+		this.block = block;
+		this.dropped = dropped;
+
+		this.thread = new Thread( this, "Logging" );
+		this.thread.setDaemon( true );
+		this.thread.start();
+	}
+
+	/**
+	 * Add a message to be written
+	 *
+	 * @param l The log level
+	 * @param msg The message
+	 * @param t Throwable to log or null
+	 *
+	 * @return True if added, false if dropped
+	 */
+	boolean append( Logging.Level l, String msg, Throwable t )
+	{
+		long position;
+		while( true )
+		{
+			position = this.tail.get();
+			long free = this.sequences.get( (int) position & this.mask ) - position;
+
+			if( free == 0 )
+			{
+				// The slot is free, claim it
+				if( this.tail.compareAndSet( position, position + 1 ) )
+					break;
+			}
+			else if( free < 0 )
+			{
+				// The ring is full
+				if( !this.block || !this.running )
+				{
+					this.dropped.incrementAndGet();
+					return false;
+				}
+				LockSupport.parkNanos( FULL_WAIT );
+			}
+			// Otherwise another thread claimed the position, try again
+		}
+
+		int slot = (int) position & this.mask;
+		this.levels[slot] = l;
+		this.messages[slot] = msg;
+		this.throwables[slot] = t;
+		this.threads[slot] = Thread.currentThread().getName();
+		this.times[slot] = System.currentTimeMillis();
+
+		// Publish the message to the writer
+		this.sequences.set( slot, position + 1 );
+		return true;
+	}
+
+	/**
+	 * Stop the writing thread after the waiting messages have been written
+	 */
+	void stop()
+	{
+		this.running = false;
+		LockSupport.unpark( this.thread );
+
+		try
+		{
+			this.thread.join( 1000 );
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		while( true )
+		{
+			int written = this.drain();
+			if( written == 0 )
+			{
+				if( !this.running )
+					break;
+				LockSupport.parkNanos( IDLE_WAIT );
+			}
+		}
+	}
+
+	/**
+	 * Write a batch of waiting messages
+	 *
+	 * @return The number of written messages
+	 */
+	private int drain()
+	{
+		int written = 0;
+		while( written < BATCH_SIZE )
+		{
+			int slot = (int) this.head & this.mask;
+			if( this.sequences.get( slot ) != this.head + 1 )
+				break;
+
+			Logging.Level l = this.levels[slot];
+			String msg = this.messages[slot], thread = this.threads[slot];
+			Throwable t = this.throwables[slot];
+			long time = this.times[slot];
+
+			this.messages[slot] = null;
+			this.throwables[slot] = null;
+
+			// Hand the slot back to the producers for the next lap
+			this.sequences.set( slot, this.head + this.mask + 1 );
+			this.head++;
+
+			Logging.write( l, msg, t, thread, time );
+			written++;
+		}
+
+		if( written > 0 )
+			Logging.flush();
+
+		return written;
+	}
+}
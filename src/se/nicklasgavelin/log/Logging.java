@@ -1,11 +1,16 @@
 package se.nicklasgavelin.log;
 
 import com.intel.bluetooth.DebugLog;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import se.nicklasgavelin.configuration.ProjectProperties;
 
@@ -15,6 +20,17 @@ import se.nicklasgavelin.configuration.ProjectProperties;
  * disabled by default. Otherwise the logging will follow
  * the settings in the Configuration class
  * 
+ * The debug state and level are read from the project properties once and
+ * kept up to date by listening for changes, checking if a level is enabled
+ * is a couple of field reads. Messages that are expensive to create should
+ * be guarded by isEnabled/isDebugEnabled or be logged with the Object or
+ * Supplier variants, which only create the message when it will be logged.
+ * 
+ * In asynchronous mode (debug.async) messages are handed to a background
+ * thread that writes them, the calling thread never waits for the log
+ * output. Messages are dropped when too many are waiting, unless
+ * debug.async.block is set.
+ * 
  * @author Nicklas Gavelin, nicklas.gavelin@gmail.com, Luleå University of
  *         Technology
  * @version 2.1
@@ -33,9 +49,31 @@ public class Logging
 	private static final Logger logger = Logger.getLogger( ProjectProperties.getInstance().getLoggerName() );// Configuration.loggerName
 																												// );
 
+	// Cached settings, updated when the project properties change
+	private static volatile boolean debugEnabled;
+	private static volatile Level debugLevel;
+
+	// Asynchronous writing of messages
+	private static volatile AsyncAppender asyncAppender;
+	private static final AtomicLong droppedMessages = new AtomicLong();
+	private static boolean shutdownHookAdded = false;
+
 	static
 	{
 		fromCollection.add( from );
+
+		updateSettings();
+		ProjectProperties.getInstance().addPropertyChangeListener( new PropertyChangeListener() {
+			@Override
+			public void propertyChange( PropertyChangeEvent evt )
+			{
+				String property = evt.getPropertyName();
+				if( "debug.enabled".equals( property ) || "debug.level".equals( property ) )
+					updateSettings();
+				else if( "debug.async".equals( property ) )
+					setAsyncEnabled( ProjectProperties.getInstance().getDebugAsync() );
+			}
+		} );
 	}
 
 	/**
@@ -164,6 +202,9 @@ public class Logging
 
 			Logging.debug( "[" + Logging.class.getCanonicalName() + "] Turning off debug as no log4j instance could be created" );
 		}
+
+		if( ProjectProperties.getInstance().getDebugAsync() )
+			setAsyncEnabled( true );
 	}
 
 	private static void setLevel()
@@ -204,6 +245,98 @@ public class Logging
 																	// );
 	}
 
+	/**
+	 * Read the debug state and level from the project properties
+	 */
+	private static void updateSettings()
+	{
+		ProjectProperties pp = ProjectProperties.getInstance();
+		debugLevel = pp.getDebugLevel();
+		debugEnabled = pp.getDebugEnabled();
+	}
+
+	/**
+	 * Returns true if messages of the given level will be logged
+	 * 
+	 * @param l The log level
+	 * 
+	 * @return True if enabled, false otherwise
+	 */
+	public static boolean isEnabled( Level l )
+	{
+		// Fatal messages are logged even when debug is disabled
+		return( debugEnabled || l == Level.FATAL ) && l.getValue() >= debugLevel.getValue();
+	}
+
+	/**
+	 * Returns true if debug messages will be logged
+	 * 
+	 * @return True if enabled, false otherwise
+	 */
+	public static boolean isDebugEnabled()
+	{
+		return isEnabled( Level.DEBUG );
+	}
+
+	/**
+	 * Turn asynchronous writing of messages on or off. When turned off the
+	 * messages that are waiting are written first.
+	 * 
+	 * @param enabled True to write messages on a background thread, false to
+	 *            write them on the calling thread
+	 */
+	public static synchronized void setAsyncEnabled( boolean enabled )
+	{
+		if( enabled == ( asyncAppender != null ) )
+			return;
+
+		if( enabled )
+		{
+			ProjectProperties pp = ProjectProperties.getInstance();
+			asyncAppender = new AsyncAppender( pp.getDebugAsyncCapacity(), pp.getDebugAsyncBlock(), droppedMessages );
+
+			// Write what is left when the application exits
+			if( !shutdownHookAdded )
+			{
+				shutdownHookAdded = true;
+				Runtime.getRuntime().addShutdownHook( new Thread( new Runnable() {
+					@Override
+					public void run()
+					{
+						setAsyncEnabled( false );
+					}
+				} ) );
+			}
+		}
+		else
+		{
+			AsyncAppender appender = asyncAppender;
+			asyncAppender = null;
+			appender.stop();
+		}
+	}
+
+	/**
+	 * Returns true if messages are written on a background thread
+	 * 
+	 * @return True for asynchronous writing, false otherwise
+	 */
+	public static boolean isAsyncEnabled()
+	{
+		return asyncAppender != null;
+	}
+
+	/**
+	 * Returns the number of messages that have been dropped as too many
+	 * messages were waiting to be written asynchronously
+	 * 
+	 * @return The number of dropped messages
+	 */
+	public static long getDroppedMessages()
+	{
+		return droppedMessages.get();
+	}
+
 	/**
 	 * Enable or disable logging manually
 	 * 
@@ -225,18 +358,20 @@ public class Logging
 	 */
 	private static void callAppenders( Level l, String msg, Throwable t )
 	{
+		// Check if we want the messages of this level to be logged
+		if( !isEnabled( l ) )
+			return;
+
 		// Perform initialization if not already done
 		initialize();
 
-		ProjectProperties pp = ProjectProperties.getInstance();
-
-		// Check if we have debug enabled or if the level is fatal
-		if( ( !pp.getDebugEnabled() && !l.equals( Level.FATAL ) ) )
-			return;
-
-		// Check if we want the messages of this level to be logged
-		if( l.getValue() < pp.getDebugLevel().getValue() )
+		// Let the background thread write the message
+		AsyncAppender async = asyncAppender;
+		if( async != null )
+		{
+			async.append( l, msg, t );
 			return;
+		}
 
 		if( !log4exists )
 		{
@@ -255,6 +390,48 @@ public class Logging
 		}
 	}
 
+	/**
+	 * Write a message that was logged asynchronously, called by the
+	 * background thread
+	 * 
+	 * @param l The level of the message
+	 * @param msg The message
+	 * @param t The throwable object or null
+	 * @param thread The name of the thread that logged the message
+	 * @param time The time the message was logged (ms)
+	 */
+	@SuppressWarnings( "deprecation" )
+	static void write( Level l, String msg, Throwable t, String thread, long time )
+	{
+		if( !log4exists )
+		{
+			// The location is not known on the background thread, the name of
+			// the logging thread is used instead
+			LogRecord record = new LogRecord( l.getLevel(), "\t" + msg + "\n" );
+			record.setMillis( time );
+			record.setSourceClassName( "[" + thread + "]" );
+			record.setThrown( t );
+			record.setLoggerName( logger.getName() );
+
+			logger.setLevel( debugLevel.getLevel() );
+			logger.log( record );
+		}
+		else
+		{
+			for( Appender la : logAppenders )
+				la.log( l, msg, t );
+		}
+	}
+
+	/**
+	 * Flush the log output after a batch of asynchronous messages
+	 */
+	static void flush()
+	{
+		for( Handler h : logger.getHandlers() )
+			h.flush();
+	}
+
 	/**
 	 * Debug method that is run instead of appenders if no appenders
 	 * could be found
@@ -267,7 +444,7 @@ public class Logging
 	{
 		// Fetch location for the message
 		UtilsJavaSE.StackTraceLocation s = UtilsJavaSE.getLocation( fromCollection );
-		logger.setLevel( ProjectProperties.getInstance().getDebugLevel().getLevel() );
+		logger.setLevel( debugLevel.getLevel() );
 		Logging.logger.logp( l.getLevel(), s.className, s.methodName, "\t" + msg + "\n", t );
 	}
 
@@ -334,13 +511,27 @@ public class Logging
 
 	/**
 	 * Print a debug message with a specific object
+	 * (the object is only turned into a string if the message is logged)
 	 * 
 	 * @param msg The message to log
 	 * @param o The object to log
 	 */
 	public static void debug( String msg, Object o )
 	{
-		callAppenders( Level.DEBUG, msg + " " + o.toString(), null );
+		if( isEnabled( Level.DEBUG ) )
+			callAppenders( Level.DEBUG, msg + " " + o, null );
+	}
+
+	/**
+	 * Print a debug message that is only created if debug messages will be
+	 * logged
+	 * 
+	 * @param msg Supplier of the message to log
+	 */
+	public static void debug( Supplier<String> msg )
+	{
+		if( isEnabled( Level.DEBUG ) )
+			callAppenders( Level.DEBUG, msg.get(), null );
 	}
 
 	/**
@@ -377,13 +568,15 @@ public class Logging
 
 	/**
 	 * Print an error message and a specific object
+	 * (the object is only turned into a string if the message is logged)
 	 * 
 	 * @param msg The message to log
 	 * @param o The object to log
 	 */
 	public static void error( String msg, Object o )
 	{
-		callAppenders( Level.ERROR, msg + " " + o.toString(), null );
+		if( isEnabled( Level.ERROR ) )
+			callAppenders( Level.ERROR, msg + " " + o, null );
 	}
 
 	/**
@@ -420,13 +613,27 @@ public class Logging
 
 	/**
 	 * Log a warning message with an object
+	 * (the object is only turned into a string if the message is logged)
 	 * 
 	 * @param msg The warning message
 	 * @param o The object to log
 	 */
 	public static void info( String msg, Object o )
 	{
-		callAppenders( Level.INFO, msg + " " + o.toString(), null );
+		if( isEnabled( Level.INFO ) )
+			callAppenders( Level.INFO, msg + " " + o, null );
+	}
+
+	/**
+	 * Print an info message that is only created if info messages will be
+	 * logged
+	 * 
+	 * @param msg Supplier of the message to log
+	 */
+	public static void info( Supplier<String> msg )
+	{
+		if( isEnabled( Level.INFO ) )
+			callAppenders( Level.INFO, msg.get(), null );
 	}
 
 	/**
@@ -463,13 +670,15 @@ public class Logging
 
 	/**
 	 * Log a warning message with an object
+	 * (the object is only turned into a string if the message is logged)
 	 * 
 	 * @param msg The warning message
 	 * @param o The object to log
 	 */
 	public static void warn( String msg, Object o )
 	{
-		callAppenders( Level.WARN, msg + " " + o.toString(), null );
+		if( isEnabled( Level.WARN ) )
+			callAppenders( Level.WARN, msg + " " + o, null );
 	}
 
 	/**
@@ -506,12 +715,14 @@ public class Logging
 
 	/**
 	 * Log a fatal message with an object
+	 * (the object is only turned into a string if the message is logged)
 	 * 
 	 * @param msg The fatal message
 	 * @param o The object to log
 	 */
 	public static void fatal( String msg, Object o )
 	{
-		callAppenders( Level.FATAL, msg + " " + o.toString(), null );
+		if( isEnabled( Level.FATAL ) )
+			callAppenders( Level.FATAL, msg + " " + o, null );
 	}
 }
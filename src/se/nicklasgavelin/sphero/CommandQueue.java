@@ -0,0 +1,281 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import se.nicklasgavelin.sphero.command.CommandMessage.COMMAND_MESSAGE_TYPE;
+
+/**
+ * Queue of commands that are waiting to be sent to the device.
+ *
+ * Commands that only set a state on the device (roll, raw motor and the
+ * leds) are coalesced: when such a command is added while an older command
+ * of the same type is still waiting to be sent the older command is
+ * replaced by the newer one, which keeps the position of the older
+ * command in the queue. A device that can't keep up therefore always acts on
+ * the latest state instead of working through old ones. System and user
+ * commands are never coalesced with each other.
+ *
+ * The queue also keeps statistics about the number of coalesced commands
+ * and the time commands spend in the queue.
+ *
+ * Thread safe. Uses a lock instead of a monitor so that a virtual thread
+ * waiting in take() doesn't pin its carrier thread.
+ */
+final class CommandQueue
+{
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = this.lock.newCondition();
+	private final ArrayDeque<OutgoingCommand> queue = new ArrayDeque<OutgoingCommand>();
+
+	// The latest command of each coalesced type, by type and system flag
+	private final OutgoingCommand[] latest = new OutgoingCommand[ COMMAND_MESSAGE_TYPE.values().length * 2 ];
+
+	// Statistics
+	private long coalesced = 0, taken = 0, totalAge = 0, maxAge = 0;
+
+	/**
+	 * Returns true if a newer command of the given type replaces an older
+	 * unsent one
+	 *
+	 * @param type The command type
+	 *
+	 * @return True if commands of the type are coalesced
+	 */
+	static boolean isCoalesced( COMMAND_MESSAGE_TYPE type )
+	{
+		switch ( type )
+		{
+			case ROLL:
+			case RAW_MOTOR:
+			case RGB_LED_OUTPUT:
+			case FRONT_LED_OUTPUT:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Add a command to the end of the queue, or replace an older command of
+	 * the same type that has not been sent yet
+	 *
+	 * @param command The command to add
+	 */
+	void put( OutgoingCommand command )
+	{
+		this.lock.lock();
+		try
+		{
+			if( isCoalesced( command.getType() ) )
+			{
+				int slot = slot( command );
+				OutgoingCommand older = this.latest[slot];
+				this.latest[slot] = command;
+
+				if( older != null )
+				{
+					// The older command keeps its place in the queue and will be
+					// sent as the newer one
+					this.coalesced++;
+					older.fail( new CancellationException( "Replaced by a newer " + command.getType() + " command" ) );
+					return;
+				}
+			}
+
+			this.queue.add( command );
+			this.notEmpty.signal();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the first command, waits for a command to be added if the queue
+	 * is empty
+	 *
+	 * @return The first command
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	OutgoingCommand take() throws InterruptedException
+	{
+		this.lock.lock();
+		try
+		{
+			while( this.queue.isEmpty() )
+				this.notEmpty.await();
+
+			return this.poll();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the first command without removing it
+	 *
+	 * @return The first command or null if the queue is empty
+	 */
+	OutgoingCommand peek()
+	{
+		this.lock.lock();
+		try
+		{
+			OutgoingCommand command = this.queue.peek();
+			if( command != null && isCoalesced( command.getType() ) )
+				command = this.latest[slot( command )];
+
+			return command;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the first command
+	 *
+	 * @return The first command or null if the queue is empty
+	 */
+	OutgoingCommand poll()
+	{
+		this.lock.lock();
+		try
+		{
+			OutgoingCommand command = this.queue.poll();
+			if( command == null )
+				return null;
+
+			if( isCoalesced( command.getType() ) )
+			{
+				int slot = slot( command );
+				command = this.latest[slot];
+				this.latest[slot] = null;
+			}
+
+			long age = System.nanoTime() - command.getCreated();
+			this.taken++;
+			this.totalAge += age;
+			if( age > this.maxAge )
+				this.maxAge = age;
+
+			return command;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of commands waiting to be sent
+	 *
+	 * @return The number of commands
+	 */
+	int size()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.queue.size();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of commands that have been replaced by a newer
+	 * command before they were sent
+	 *
+	 * @return The number of coalesced commands
+	 */
+	long getCoalescedCount()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.coalesced;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of commands that have been taken from the queue
+	 *
+	 * @return The number of commands
+	 */
+	long getTakenCount()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.taken;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the mean time between the creation of a command and the time
+	 * it was taken from the queue
+	 *
+	 * @return The mean age in ns
+	 */
+	long getMeanAge()
+	{
+		this.lock.lock();
+		try
+		{
+			return( this.taken == 0 ? 0 : this.totalAge / this.taken );
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the longest time between the creation of a command and the
+	 * time it was taken from the queue
+	 *
+	 * @return The max age in ns
+	 */
+	long getMaxAge()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.maxAge;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the slot in the latest array for a command
+	 */
+	private static int slot( OutgoingCommand command )
+	{
+		return command.getType().ordinal() * 2 + ( command.isSystemCommand() ? 1 : 0 );
+	}
+}
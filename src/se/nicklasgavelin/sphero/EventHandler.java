@@ -0,0 +1,18 @@
+package se.nicklasgavelin.sphero;
+
+import se.nicklasgavelin.sphero.RobotListener.EVENT_CODE;
+
+/**
+ * Handler for one type of robot event.
+ * You need to perform Robot.subscribe to receive events
+ */
+public interface EventHandler
+{
+	/**
+	 * Called when an event of the subscribed type occurs
+	 * 
+	 * @param r The robot the event occurred for
+	 * @param code The event
+	 */
+	public void event( Robot r, EVENT_CODE code );
+}
@@ -0,0 +1,252 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.Collection;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commands that have been sent to the device and are waiting for a
+ * response. The device echoes the sequence number of a command in its
+ * response, the commands are therefore stored in a table with one slot for
+ * each of the 256 possible sequence numbers. This allows responses to be
+ * matched even if a response is lost or arrives out of order.
+ *
+ * Each command gets a deadline when it's added, commands that have not
+ * received a response before their deadline are removed by expire().
+ *
+ * Thread safe, commands are added by the writer and removed by the
+ * listener. Uses a lock instead of a monitor so that a virtual thread
+ * waiting in awaitBelow() doesn't pin its carrier thread.
+ */
+final class InFlightCommands
+{
+	/**
+	 * Number of slots, one for each sequence number
+	 */
+	static final int SLOTS = 256;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition freed = this.lock.newCondition();
+	private final OutgoingCommand[] commands;
+	private final long[] deadlines;
+	private final long timeout;
+	private int size = 0;
+	private long nextDeadline = Long.MAX_VALUE;
+
+	/**
+	 * Create an empty table
+	 *
+	 * @param timeout The time to wait for a response in ms
+	 */
+	InFlightCommands( long timeout )
+	{
+		this.commands = new OutgoingCommand[ SLOTS ];
+		this.deadlines = new long[ SLOTS ];
+		this.timeout = timeout * 1000000L;
+	}
+
+	/**
+	 * Add a sent command
+	 *
+	 * @param command The sent command
+	 * @param now The current time (System.nanoTime)
+	 *
+	 * @return The command that was waiting with the same sequence number and
+	 *         was replaced, or null if the slot was free
+	 */
+	OutgoingCommand add( OutgoingCommand command, long now )
+	{
+		this.lock.lock();
+		try
+		{
+			int slot = command.getSequenceNumber() & 0xFF;
+			OutgoingCommand replaced = this.commands[slot];
+
+			if( replaced == null )
+				this.size++;
+
+			this.commands[slot] = command;
+			this.deadlines[slot] = now + this.timeout;
+
+			if( this.deadlines[slot] < this.nextDeadline )
+				this.nextDeadline = this.deadlines[slot];
+
+			return replaced;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the command that a response belongs to
+	 *
+	 * @param sequenceNumber The sequence number of the response
+	 *
+	 * @return The command or null if no command is waiting for the sequence
+	 *         number
+	 */
+	OutgoingCommand remove( int sequenceNumber )
+	{
+		this.lock.lock();
+		try
+		{
+			int slot = sequenceNumber & 0xFF;
+			OutgoingCommand command = this.commands[slot];
+
+			if( command != null )
+			{
+				this.commands[slot] = null;
+				this.size--;
+				this.freed.signalAll();
+			}
+
+			return command;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true if a command with the given sequence number is waiting for
+	 * a response
+	 * 
+	 * @param sequenceNumber The sequence number
+	 * 
+	 * @return True if the sequence number is in use
+	 */
+	boolean contains( int sequenceNumber )
+	{
+		this.lock.lock();
+		try
+		{
+			return this.commands[sequenceNumber & 0xFF] != null;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all commands that have passed their deadline
+	 *
+	 * @param now The current time (System.nanoTime)
+	 * @param expired The collection to add the removed commands to
+	 *
+	 * @return The number of removed commands
+	 */
+	int expire( long now, Collection<OutgoingCommand> expired )
+	{
+		this.lock.lock();
+		try
+		{
+			// Nothing to scan for until the earliest deadline has passed
+			if( this.size == 0 || now - this.nextDeadline < 0 )
+				return 0;
+
+			int removed = 0;
+			long next = Long.MAX_VALUE;
+
+			for( int i = 0; i < SLOTS; i++ )
+			{
+				if( this.commands[i] == null )
+					continue;
+
+				if( now - this.deadlines[i] >= 0 )
+				{
+					expired.add( this.commands[i] );
+					this.commands[i] = null;
+					this.size--;
+					removed++;
+				}
+				else if( this.deadlines[i] < next )
+					next = this.deadlines[i];
+			}
+
+			this.nextDeadline = next;
+			if( removed > 0 )
+				this.freed.signalAll();
+
+			return removed;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Wait until fewer than the given number of commands are waiting for a
+	 * response
+	 *
+	 * @param limit The number of commands
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	void awaitBelow( int limit ) throws InterruptedException
+	{
+		this.lock.lock();
+		try
+		{
+			while( this.size >= limit )
+				this.freed.await();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of commands that are waiting for a response
+	 *
+	 * @return The number of commands
+	 */
+	int size()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.size;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all commands
+	 *
+	 * @param removed The collection to add the removed commands to
+	 */
+	void clear( Collection<OutgoingCommand> removed )
+	{
+		this.lock.lock();
+		try
+		{
+			for( int i = 0; i < SLOTS; i++ )
+			{
+				if( this.commands[i] != null )
+					removed.add( this.commands[i] );
+				this.commands[i] = null;
+			}
+
+			this.size = 0;
+			this.nextDeadline = Long.MAX_VALUE;
+			this.freed.signalAll();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+}
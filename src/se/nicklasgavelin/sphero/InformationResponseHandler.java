@@ -0,0 +1,20 @@
+package se.nicklasgavelin.sphero;
+
+import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+
+/**
+ * Handler for one type of information response (streamed data, emits,
+ * collisions).
+ * You need to perform Robot.subscribe to receive information responses
+ */
+public interface InformationResponseHandler
+{
+	/**
+	 * Called when an information response of the subscribed type
+	 * is received
+	 * 
+	 * @param r The robot that sent the information response
+	 * @param response The information response
+	 */
+	public void informationResponseReceived( Robot r, InformationResponseMessage response );
+}
@@ -0,0 +1,256 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import se.nicklasgavelin.log.Logging;
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.information.CollisiondetectedResponse;
+
+/**
+ * Calls a robot listener on a thread of its own so that a slow listener
+ * doesn't hold up the listening thread of the robot. The notifications are
+ * put in a bounded queue. When the queue is full the oldest streamed sensor
+ * data (DATA information responses) is dropped to make room, responses,
+ * events and collisions are never dropped and are queued even if the queue
+ * is full.
+ *
+ * The queue is guarded by a lock instead of a monitor so that a waiting
+ * virtual dispatcher thread doesn't pin its carrier thread.
+ */
+class ListenerDispatcher implements RobotListener, Runnable
+{
+	private final RobotListener listener;
+	private final RobotMetrics metrics;
+	private final int capacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = this.lock.newCondition();
+	private final ArrayDeque<Notification> queue = new ArrayDeque<Notification>();
+	private final Thread thread;
+	private boolean running = true;
+
+	/**
+	 * Create a dispatcher and start its thread
+	 *
+	 * @param listener The listener to call
+	 * @param capacity The number of notifications that may wait before sensor
+	 *            data is dropped
+	 * @param metrics Counters of the robot, for dropped notifications
+	 */
+	ListenerDispatcher( RobotListener listener, int capacity, RobotMetrics metrics )
+	{
+		this.listener = listener;
+		this.capacity = Math.max( 1, capacity );
+		this.metrics = metrics;
+
+		this.thread = Robot.getThreadFactory().newThread( this );
+		this.thread.setName( "Robot listener " + listener.getClass().getSimpleName() );
+		this.thread.setDaemon( true );
+		this.thread.start();
+	}
+
+	/**
+	 * Returns the listener that is called by the dispatcher
+	 *
+	 * @return The listener
+	 */
+	RobotListener getListener()
+	{
+		return this.listener;
+	}
+
+	/**
+	 * Stop the dispatcher, notifications that are waiting are thrown away
+	 */
+	void stop()
+	{
+		this.lock.lock();
+		try
+		{
+			this.running = false;
+			this.queue.clear();
+			this.notEmpty.signalAll();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/*
+	 * *****************************************************
+	 * QUEUEING
+	 * ****************************************************
+	 */
+
+	@Override
+	public void responseReceived( final Robot r, final ResponseMessage response, final CommandMessage dc )
+	{
+		this.add( new Notification( false ) {
+			@Override
+			void dispatch( RobotListener l )
+			{
+				l.responseReceived( r, response, dc );
+			}
+		} );
+	}
+
+	@Override
+	public void event( final Robot r, final EVENT_CODE code )
+	{
+		this.add( new Notification( false ) {
+			@Override
+			void dispatch( RobotListener l )
+			{
+				l.event( r, code );
+			}
+		} );
+	}
+
+	@Override
+	public void informationResponseReceived( final Robot r, final InformationResponseMessage response )
+	{
+		this.add( new Notification( response.getInformationResponseType() == INFORMATION_RESPONSE_CODE.DATA ) {
+			@Override
+			void dispatch( RobotListener l )
+			{
+				l.informationResponseReceived( r, response );
+			}
+		} );
+	}
+
+	@Override
+	public void collisionDetected( final Robot r, final CollisiondetectedResponse response )
+	{
+		this.add( new Notification( false ) {
+			@Override
+			void dispatch( RobotListener l )
+			{
+				l.collisionDetected( r, response );
+			}
+		} );
+	}
+
+	/**
+	 * Queue a notification, dropping the oldest sensor data if the queue is
+	 * full
+	 *
+	 * @param n The notification
+	 */
+	private void add( Notification n )
+	{
+		this.lock.lock();
+		try
+		{
+			if( !this.running )
+				return;
+
+			if( this.queue.size() >= this.capacity && !this.dropOldestData() && n.droppable )
+			{
+				// Only notifications that must not be dropped are waiting, drop
+				// the new sensor data instead
+				this.metrics.listenerNotificationDropped();
+				return;
+			}
+
+			this.queue.addLast( n );
+			this.notEmpty.signal();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the oldest sensor data notification from the queue
+	 *
+	 * @return True if a notification was removed, false if there was no
+	 *         sensor data in the queue
+	 */
+	private boolean dropOldestData()
+	{
+		Iterator<Notification> i = this.queue.iterator();
+		while( i.hasNext() )
+		{
+			if( i.next().droppable )
+			{
+				i.remove();
+				this.metrics.listenerNotificationDropped();
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * *****************************************************
+	 * DISPATCHING
+	 * ****************************************************
+	 */
+
+	@Override
+	public void run()
+	{
+		while( true )
+		{
+			Notification n;
+			this.lock.lock();
+			try
+			{
+				while( this.running && this.queue.isEmpty() )
+					this.notEmpty.await();
+
+				if( !this.running )
+					return;
+
+				n = this.queue.removeFirst();
+			}
+			catch( InterruptedException e )
+			{
+				return;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+
+			try
+			{
+				n.dispatch( this.listener );
+			}
+			catch( RuntimeException e )
+			{
+				Logging.error( "Listener " + this.listener.getClass().getCanonicalName() + " failed", e );
+			}
+		}
+	}
+
+	/**
+	 * A notification waiting to be passed to the listener
+	 */
+	private static abstract class Notification
+	{
+		private final boolean droppable;
+
+		/**
+		 * @param droppable True if the notification may be dropped when the
+		 *            queue is full
+		 */
+		Notification( boolean droppable )
+		{
+			this.droppable = droppable;
+		}
+
+		abstract void dispatch( RobotListener l );
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.concurrent.CompletableFuture;
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.util.ByteArrayBuffer;
+
+/**
+ * A command on its way to the device together with what the robot needs
+ * to know when the response arrives: if it's a system command (sent by
+ * the robot itself and not by the user) and the future to complete with
+ * the response, if any.
+ */
+final class OutgoingCommand
+{
+	private final CommandMessage command;
+	private final boolean systemCommand;
+	private final CompletableFuture<ResponseMessage> future;
+	private final long created = System.nanoTime();
+	private int sequenceNumber;
+	private volatile long sent;
+
+	/**
+	 * Create an outgoing command without a future
+	 *
+	 * @param command The command to send
+	 * @param systemCommand True for a system command, false otherwise
+	 */
+	OutgoingCommand( CommandMessage command, boolean systemCommand )
+	{
+		this( command, systemCommand, null );
+	}
+
+	/**
+	 * Create an outgoing command
+	 *
+	 * @param command The command to send
+	 * @param systemCommand True for a system command, false otherwise
+	 * @param future The future to complete with the response or null
+	 */
+	OutgoingCommand( CommandMessage command, boolean systemCommand, CompletableFuture<ResponseMessage> future )
+	{
+		this.command = command;
+		this.systemCommand = systemCommand;
+		this.future = future;
+	}
+
+	/**
+	 * Returns the command
+	 *
+	 * @return The command
+	 */
+	CommandMessage getCommand()
+	{
+		return this.command;
+	}
+
+	/**
+	 * Returns the command type
+	 *
+	 * @return The command type
+	 */
+	CommandMessage.COMMAND_MESSAGE_TYPE getType()
+	{
+		return this.command.getCommand();
+	}
+
+	/**
+	 * Returns the sequence number the command was sent with. The command
+	 * message itself may be shared and sent with other sequence numbers.
+	 * 
+	 * @return The sequence number
+	 */
+	int getSequenceNumber()
+	{
+		return this.sequenceNumber;
+	}
+
+	/**
+	 * Write the command to the end of a buffer with the given sequence
+	 * number
+	 * 
+	 * @param buffer The buffer to write to
+	 * @param sequenceNumber The sequence number to send the command with
+	 * 
+	 * @return The number of written bytes, 0 if the command didn't fit
+	 */
+	int write( ByteArrayBuffer buffer, int sequenceNumber )
+	{
+		int written = this.command.writePacket( buffer, sequenceNumber );
+		if( written > 0 )
+			this.sequenceNumber = sequenceNumber;
+
+		return written;
+	}
+
+	/**
+	 * Returns the time the command was created
+	 *
+	 * @return The time of creation (System.nanoTime)
+	 */
+	long getCreated()
+	{
+		return this.created;
+	}
+
+	/**
+	 * Set the time the command was written to the connection
+	 * 
+	 * @param sent The time of sending (System.nanoTime)
+	 */
+	void setSent( long sent )
+	{
+		this.sent = sent;
+	}
+
+	/**
+	 * Returns the time the command was written to the connection
+	 * 
+	 * @return The time of sending (System.nanoTime)
+	 */
+	long getSent()
+	{
+		return this.sent;
+	}
+
+	/**
+	 * Returns true if the command is a system command
+	 *
+	 * @return True for a system command, false otherwise
+	 */
+	boolean isSystemCommand()
+	{
+		return this.systemCommand;
+	}
+
+	/**
+	 * Complete the future of the command with the received response
+	 *
+	 * @param response The response
+	 */
+	void complete( ResponseMessage response )
+	{
+		if( this.future != null )
+			this.future.complete( response );
+	}
+
+	/**
+	 * Complete the future of the command with an error
+	 *
+	 * @param t The error
+	 */
+	void fail( Throwable t )
+	{
+		if( this.future != null )
+			this.future.completeExceptionally( t );
+	}
+}
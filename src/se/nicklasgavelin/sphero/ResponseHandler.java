@@ -0,0 +1,21 @@
+package se.nicklasgavelin.sphero;
+
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+
+/**
+ * Handler for the responses to one type of command.
+ * You need to perform Robot.subscribe to receive responses
+ */
+public interface ResponseHandler
+{
+	/**
+	 * Called when a response is received for a command of the
+	 * subscribed type
+	 * 
+	 * @param r The robot connected to the response
+	 * @param response The response received
+	 * @param dc The command the response is for
+	 */
+	public void responseReceived( Robot r, ResponseMessage response, CommandMessage dc );
+}
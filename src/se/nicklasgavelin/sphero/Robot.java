@@ -3,8 +3,13 @@ package se.nicklasgavelin.sphero;
 import java.awt.Color;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import se.nicklasgavelin.bluetooth.BluetoothConnection;
@@ -17,17 +22,26 @@ import se.nicklasgavelin.sphero.command.*;
 import se.nicklasgavelin.sphero.exception.InvalidRobotAddressException;
 import se.nicklasgavelin.sphero.exception.RobotBluetoothException;
 import se.nicklasgavelin.sphero.exception.RobotInitializeConnectionFailed;
+import se.nicklasgavelin.sphero.exception.RobotResponseException;
 import se.nicklasgavelin.sphero.macro.MacroCommand;
 import se.nicklasgavelin.sphero.macro.MacroObject;
 import se.nicklasgavelin.sphero.macro.command.Delay;
 import se.nicklasgavelin.sphero.macro.command.Emit;
 import se.nicklasgavelin.sphero.macro.command.RGB;
+import se.nicklasgavelin.sphero.record.StreamRecorder;
 import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
 import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.SensorData;
+import se.nicklasgavelin.sphero.response.SensorDataBatch;
+import se.nicklasgavelin.sphero.response.SensorTimeSeries;
 import se.nicklasgavelin.sphero.response.information.CollisiondetectedResponse;
+import se.nicklasgavelin.sphero.response.information.DataResponse;
+import se.nicklasgavelin.sphero.response.parser.DataStreamParser;
+import se.nicklasgavelin.sphero.response.parser.ResponseFrameDecoder;
 import se.nicklasgavelin.sphero.response.regular.GetBluetoothInfoResponse;
 import se.nicklasgavelin.util.ByteArrayBuffer;
-import se.nicklasgavelin.util.Pair;
+import se.nicklasgavelin.util.LatencyHistogram;
 import se.nicklasgavelin.util.Value;
 
 /**
@@ -63,7 +77,13 @@ public class Robot
 	// Listener/writer
 	private Robot.RobotStreamListener listeningThread;
 	private Robot.RobotSendingQueue sendingTimer;
-	private List<RobotListener> listeners;
+	// Copied on every change so that notifying doesn't need a lock
+	private volatile RobotListener[] listeners = new RobotListener[ 0 ];
+	private final Object listenerLock = new Object();
+	// Handlers subscribed by message type
+	private final SubscriptionTable<ResponseHandler> responseHandlers = new SubscriptionTable<ResponseHandler>( CommandMessage.COMMAND_MESSAGE_TYPE.values().length, new ResponseHandler[ 0 ] );
+	private final SubscriptionTable<InformationResponseHandler> informationHandlers = new SubscriptionTable<InformationResponseHandler>( INFORMATION_RESPONSE_CODE.values().length, new InformationResponseHandler[ 0 ] );
+	private final SubscriptionTable<EventHandler> eventHandlers = new SubscriptionTable<EventHandler>( EVENT_CODE.values().length, new EventHandler[ 0 ] );
 	// Other
 	private String name = null;
 	// Robot macro
@@ -72,8 +92,29 @@ public class Robot
 	private Robot.RobotMovement movement;
 	private Robot.RobotRawMovement rawMovement;
 	private Robot.RobotLED led;
+
+	// Sensor streaming
+	private volatile SensorTimeSeries sensorHistory;
+	private final SensorDataPublisher sensorPublisher;
+	private volatile DataStreamParser dataStreamParser;
+	private volatile long dataStreamPeriod;
+
+	// Recording of the raw connection stream
+	private volatile StreamRecorder streamRecorder;
+
+	// Round trip latencies by command type
+	private final LatencyHistogram[] latencies = createLatencyHistograms();
+
+	// I/O counters
+	private final RobotMetrics metrics = new RobotMetrics( this );
 	// Pinger
 	private float PING_INTERVAL; // Time in milliseconds
+	// Shared by all robots for delayed and periodic commands
+	private static ScheduledExecutorService scheduler;
+	// Creates the listening and writing threads of all robots
+	private static ThreadFactory threadFactory;
+	// Interval for checking for commands without a response (ms)
+	private static final long EXPIRE_INTERVAL = 100;
 	// Address
 	/**
 	 * The start of the Bluetooth address that is describing if the address
@@ -81,6 +122,12 @@ public class Robot
 	 */
 	public static final String ROBOT_ADDRESS_PREFIX = "00066";
 	public static final String ROBOT_ADDRESS_PREFIX_V2 = "6886";
+
+	/**
+	 * The sampling rate of the sensors (Hz) before the data streaming
+	 * divisor is applied
+	 */
+	public static final int DATA_STREAMING_RATE = 400;
 	// Robot controller
 	// private RobotController controller;
 	private static int error_num = 0;
@@ -143,12 +190,11 @@ public class Robot
 		this.rawMovement = new Robot.RobotRawMovement();
 		this.led = new Robot.RobotLED();
 		this.macroSettings = new Robot.MACRO_SETTINGS();
+		this.sensorPublisher = new SensorDataPublisher( ProjectProperties.getInstance().getSensorPublisherBuffer() );
 
 		// Discover the connection services that we can use
 		bt.discover();
 
-		// Create an empty array of listeners
-		this.listeners = new ArrayList<RobotListener>();
 
 		Logging.debug( "Robot created successfully" );
 
@@ -175,6 +221,123 @@ public class Robot
 		} ) );
 	}
 
+	/*
+	 * *****************************************************
+	 * SCHEDULER
+	 * ****************************************************
+	 */
+
+	/**
+	 * Set the scheduler that all robots use for delayed and periodic
+	 * commands (including the ping that keeps the connection alive).
+	 * Robots that are already connected keep using the previous scheduler
+	 * until they reconnect.
+	 * 
+	 * @param s The scheduler
+	 */
+	public static synchronized void setScheduler( ScheduledExecutorService s )
+	{
+		if( s == null )
+			throw new NullPointerException( "The scheduler must not be null" );
+		scheduler = s;
+	}
+
+	/**
+	 * Returns the scheduler that all robots use for delayed and periodic
+	 * commands. Unless set with setScheduler this is a shared pool of
+	 * daemon threads with sphero.scheduler.threads threads.
+	 * 
+	 * @return The shared scheduler
+	 */
+	public static synchronized ScheduledExecutorService getScheduler()
+	{
+		if( scheduler == null )
+		{
+			ScheduledThreadPoolExecutor e = new ScheduledThreadPoolExecutor( ProjectProperties.getInstance().getSchedulerThreads(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "Robot scheduler " + count.incrementAndGet() );
+					t.setDaemon( true );
+					return t;
+				}
+			} );
+
+			// Periodic commands are cancelled on every disconnect, don't keep
+			// them around until their next run
+			e.setRemoveOnCancelPolicy( true );
+			scheduler = e;
+		}
+
+		return scheduler;
+	}
+
+	/**
+	 * Set the thread factory that creates the listening and writing
+	 * threads of all robots. Robots that are already connected keep their
+	 * threads until they reconnect.
+	 * 
+	 * @param f The thread factory
+	 */
+	public static synchronized void setThreadFactory( ThreadFactory f )
+	{
+		if( f == null )
+			throw new NullPointerException( "The thread factory must not be null" );
+		threadFactory = f;
+	}
+
+	/**
+	 * Returns the thread factory that creates the listening and writing
+	 * threads of all robots. Unless set with setThreadFactory this creates
+	 * virtual threads if sphero.threads.virtual is true and the Java runtime
+	 * supports them, and regular threads otherwise.
+	 * 
+	 * @return The thread factory
+	 */
+	public static synchronized ThreadFactory getThreadFactory()
+	{
+		if( threadFactory == null )
+		{
+			if( ProjectProperties.getInstance().getVirtualThreads() )
+				threadFactory = createVirtualThreadFactory();
+
+			if( threadFactory == null )
+			{
+				threadFactory = new ThreadFactory() {
+					@Override
+					public Thread newThread( Runnable r )
+					{
+						return new Thread( r );
+					}
+				};
+			}
+		}
+
+		return threadFactory;
+	}
+
+	/**
+	 * Create a factory for virtual threads. Looked up by reflection as
+	 * virtual threads are only available from Java 21.
+	 * 
+	 * @return The factory or null if virtual threads are not supported
+	 */
+	private static ThreadFactory createVirtualThreadFactory()
+	{
+		try
+		{
+			Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			return (ThreadFactory) Class.forName( "java.lang.Thread$Builder" ).getMethod( "factory" ).invoke( builder );
+		}
+		catch( Exception e )
+		{
+			Logging.warn( "Virtual threads are not supported by this Java runtime, using regular threads" );
+			return null;
+		}
+	}
+
 	/*
 	 * *****************************************************
 	 * LISTENERS
@@ -182,35 +345,140 @@ public class Robot
 	 */
 
 	/**
-	 * Add a robot listener to the current class instance
+	 * Add a robot listener to the current class instance. The listener is
+	 * called on a thread of its own if sphero.listener.thread is true, see
+	 * addListener(RobotListener, boolean).
 	 * 
 	 * @param l The listener to add
 	 */
 	public void addListener( RobotListener l )
+	{
+		this.addListener( l, ProjectProperties.getInstance().getListenerThread() );
+	}
+
+	/**
+	 * Add a robot listener to the current class instance.
+	 * 
+	 * A listener without a thread of its own is called directly by the
+	 * listening thread of the robot and must return quickly, as nothing is
+	 * read from the robot while it's running. A listener with a thread of its
+	 * own gets its notifications through a queue of
+	 * sphero.listener.queue notifications. When the queue is full the oldest
+	 * streamed sensor data is dropped, other notifications are never dropped.
+	 * 
+	 * @param l The listener to add
+	 * @param ownThread True to call the listener on a thread of its own, false
+	 *            to call it on the listening thread
+	 */
+	public void addListener( RobotListener l, boolean ownThread )
 	{
 		Logging.debug( "Adding listener of type " + l.getClass().getCanonicalName() );
 
-		synchronized( this.listeners )
+		synchronized( this.listenerLock )
 		{
-			if( !this.listeners.contains( l ) )
-				this.listeners.add( l );
+			if( this.indexOfListener( l ) != -1 )
+				return;
+
+			RobotListener[] current = this.listeners;
+			RobotListener[] updated = Arrays.copyOf( current, current.length + 1 );
+			updated[current.length] = ( ownThread ? new ListenerDispatcher( l, ProjectProperties.getInstance().getListenerQueueSize(), this.metrics ) : l );
+			this.listeners = updated;
 		}
 	}
 
 	/**
 	 * Remove a listener that is listening from the current class
-	 * instance.
+	 * instance. Notifications that are waiting to be passed to the listener
+	 * are thrown away.
 	 * 
 	 * @param l The listener to remove
 	 */
 	public void removeListener( RobotListener l )
 	{
-		synchronized( this.listeners )
+		synchronized( this.listenerLock )
 		{
 			// Check so that we can remove it
-			if( this.listeners.contains( l ) )
-				this.listeners.remove(l);
+			int index = this.indexOfListener( l );
+			if( index == -1 )
+				return;
+
+			RobotListener[] current = this.listeners;
+			RobotListener[] updated = new RobotListener[ current.length - 1 ];
+			System.arraycopy( current, 0, updated, 0, index );
+			System.arraycopy( current, index + 1, updated, index, updated.length - index );
+			this.listeners = updated;
+
+			if( current[index] instanceof ListenerDispatcher )
+				( (ListenerDispatcher) current[index] ).stop();
+		}
+	}
+
+	/**
+	 * Returns the index of a listener in the listener array, looking through
+	 * dispatchers for listeners with a thread of their own
+	 * 
+	 * @param l The listener
+	 * 
+	 * @return The index or -1 if not found
+	 */
+	private int indexOfListener( RobotListener l )
+	{
+		RobotListener[] current = this.listeners;
+		for( int i = 0; i < current.length; i++ )
+		{
+			RobotListener r = current[i];
+			if( r instanceof ListenerDispatcher )
+				r = ( (ListenerDispatcher) r ).getListener();
+
+			if( r.equals( l ) )
+				return i;
 		}
+
+		return -1;
+	}
+
+	/**
+	 * Subscribe to the responses to one type of command. Unlike a listener
+	 * the handler is only called for the subscribed type. The handler is
+	 * called on the listening thread of the robot and must return quickly.
+	 * 
+	 * @param type The command type
+	 * @param handler The handler
+	 * 
+	 * @return The subscription, cancel it to stop calling the handler
+	 */
+	public RobotSubscription subscribe( CommandMessage.COMMAND_MESSAGE_TYPE type, ResponseHandler handler )
+	{
+		return this.responseHandlers.add( type.ordinal(), handler );
+	}
+
+	/**
+	 * Subscribe to one type of information response (streamed data, emits or
+	 * collisions). The handler is called on the listening thread of the
+	 * robot and must return quickly.
+	 * 
+	 * @param type The information response type
+	 * @param handler The handler
+	 * 
+	 * @return The subscription, cancel it to stop calling the handler
+	 */
+	public RobotSubscription subscribe( INFORMATION_RESPONSE_CODE type, InformationResponseHandler handler )
+	{
+		return this.informationHandlers.add( type.ordinal(), handler );
+	}
+
+	/**
+	 * Subscribe to one type of event. The handler is called on the thread
+	 * that caused the event and must return quickly.
+	 * 
+	 * @param type The event
+	 * @param handler The handler
+	 * 
+	 * @return The subscription, cancel it to stop calling the handler
+	 */
+	public RobotSubscription subscribe( EVENT_CODE type, EventHandler handler )
+	{
+		return this.eventHandlers.add( type.ordinal(), handler );
 	}
 
 	/**
@@ -221,34 +489,78 @@ public class Robot
 	 */
 	private void notifyListenersDeviceResponse( ResponseMessage dr, CommandMessage dc )
 	{
-		Logging.debug( "Notifying listeners about device respose " + dr + " for device command " + dc );
+		if( Logging.isDebugEnabled() )
+			Logging.debug( "Notifying listeners about device respose " + dr + " for device command " + dc );
 
-		synchronized( this.listeners )
+		long start = System.nanoTime();
+		// Go through all listeners and notify them
+		for( RobotListener r : this.listeners )
 		{
-			// Go through all listeners and notify them
-			for( RobotListener r : this.listeners )
+			try
+			{
 				r.responseReceived( this, dr, dc );
+			}
+			catch( RuntimeException e )
+			{
+				this.callbackFailed( r, e );
+			}
+		}
+		if( dc != null )
+		{
+			for( ResponseHandler h : this.responseHandlers.get( dc.getCommand().ordinal() ) )
+			{
+				try
+				{
+					h.responseReceived( this, dr, dc );
+				}
+				catch( RuntimeException e )
+				{
+					this.callbackFailed( h, e );
+				}
+			}
 		}
+		this.metrics.listenerDispatched( System.nanoTime() - start );
 	}
 
 	private void notifyListenersInformationResponse( InformationResponseMessage dir )
 	{
-		Logging.debug( "Nofifying listeners about information response " + dir );
-		
-		synchronized( this.listeners )
+		Logging.debug( "Nofifying listeners about information response", dir );
+		this.detachIfObserved( dir );
+
+		long start = System.nanoTime();
+		for( RobotListener r : this.listeners )
 		{
-			for( RobotListener r : this.listeners )
-				r.informationResponseReceived(this, dir);
+			try
+			{
+				r.informationResponseReceived( this, dir );
+			}
+			catch( RuntimeException e )
+			{
+				this.callbackFailed( r, e );
+			}
 		}
+		this.notifyInformationHandlers( dir );
+		this.metrics.listenerDispatched( System.nanoTime() - start );
 	}
 
 	private void notifyCollisionDetected(InformationResponseMessage dir) {
-		Logging.debug("Notify listeners about collision detected: " + dir);
-		synchronized (this.listeners) {
-			for(RobotListener r : this.listeners) {
-				r.collisionDetected(this, (CollisiondetectedResponse)dir);
+		Logging.debug( "Notify listeners about collision detected:", dir );
+		this.detachIfObserved( dir );
+
+		long start = System.nanoTime();
+		for( RobotListener r : this.listeners )
+		{
+			try
+			{
+				r.collisionDetected( this, (CollisiondetectedResponse) dir );
+			}
+			catch( RuntimeException e )
+			{
+				this.callbackFailed( r, e );
 			}
 		}
+		this.notifyInformationHandlers( dir );
+		this.metrics.listenerDispatched( System.nanoTime() - start );
 	}
 
 	/**
@@ -258,13 +570,80 @@ public class Robot
 	 */
 	private void notifyListenerEvent( EVENT_CODE event )
 	{
-		Logging.debug( "Notifying listeners about event " + event );
+		Logging.debug( "Notifying listeners about event", event );
 
 		// Notify all listeners
-		synchronized( this.listeners )
+		for( RobotListener r : this.listeners )
 		{
-			for( RobotListener r : this.listeners )
+			try
+			{
 				r.event( this, event );
+			}
+			catch( RuntimeException e )
+			{
+				this.callbackFailed( r, e );
+			}
+		}
+		for( EventHandler h : this.eventHandlers.get( event.ordinal() ) )
+		{
+			try
+			{
+				h.event( this, event );
+			}
+			catch( RuntimeException e )
+			{
+				this.callbackFailed( h, e );
+			}
+		}
+	}
+
+	/**
+	 * Log an exception thrown by a listener or handler, the exception must
+	 * not reach the listening thread as it would close the connection
+	 * 
+	 * @param callback The listener or handler that failed
+	 * @param e The exception
+	 */
+	private void callbackFailed( Object callback, RuntimeException e )
+	{
+		Logging.error( "Listener " + callback.getClass().getName() + " failed", e );
+	}
+
+	/**
+	 * Copy the packet of an information response out of the receive buffer
+	 * if there is a listener or handler that will get the message. Streamed
+	 * data that no one listens to is never copied.
+	 * 
+	 * @param dir The information response
+	 */
+	private void detachIfObserved( InformationResponseMessage dir )
+	{
+		INFORMATION_RESPONSE_CODE type = dir.getInformationResponseType();
+		if( this.listeners.length > 0 || ( type != null && this.informationHandlers.get( type.ordinal() ).length > 0 ) )
+			dir.detach();
+	}
+
+	/**
+	 * Notify the handlers subscribed to the type of an information response
+	 * 
+	 * @param dir The information response
+	 */
+	private void notifyInformationHandlers( InformationResponseMessage dir )
+	{
+		INFORMATION_RESPONSE_CODE type = dir.getInformationResponseType();
+		if( type != null )
+		{
+			for( InformationResponseHandler h : this.informationHandlers.get( type.ordinal() ) )
+			{
+				try
+				{
+					h.informationResponseReceived( this, dir );
+				}
+				catch( RuntimeException e )
+				{
+					this.callbackFailed( h, e );
+				}
+			}
 		}
 	}
 
@@ -274,8 +653,9 @@ public class Robot
 	 */
 	private void connectionClosedUnexpected()
 	{
-		// Cancel the sending of new messages
-		this.sendingTimer.cancel();
+		// Stop the sending of messages, the writer may be blocked waiting
+		// for responses that will never arrive
+		this.sendingTimer.stopAll();
 
 		// Cancel the listening of incomming messages
 		this.listeningThread.stopThread();
@@ -283,6 +663,12 @@ public class Robot
 		// Close the bluetooth connection
 		this.btc.stop();
 
+		// Remove the metrics from JMX until we reconnect
+		this.metrics.unregister();
+
+		// No more sensor data will arrive on this connection
+		this.sensorPublisher.complete();
+
 		// Notify about disconnect
 		if( this.connected )
 		{
@@ -370,13 +756,17 @@ public class Robot
 		this.listeningThread = new Robot.RobotStreamListener( btc );
 		this.listeningThread.start();
 
-		// Create our sending timer
+		// Create our sending timer and stop any old one
 		if( this.sendingTimer != null )
-			this.sendingTimer.cancel();
+			this.sendingTimer.stopAll();
 		this.sendingTimer = new Robot.RobotSendingQueue( btc );
 
+		// Publish the metrics while we are connected
+		if( ProjectProperties.getInstance().getMetricsJmx() )
+			this.metrics.register();
+
 		// Reset the robot
-		this.sendSystemCommand( new AbortMacroCommand() );
+		this.sendSystemCommand( AbortMacroCommand.INSTANCE );
 		this.sendSystemCommand( new RollCommand( this.movement.getHeading(), this.movement.getVelocity(), this.movement.getStop() ) );
 		this.sendSystemCommand( new CalibrateCommand( this.movement.getHeading() ) );
 		this.sendSystemCommand( new FrontLEDCommand( this.led.getFrontLEDBrightness() ) );
@@ -442,13 +832,17 @@ public class Robot
 			this.connected = false;
 			this.disconnecting = true;
 
+			// Remove the metrics from JMX and end the sensor data
+			this.metrics.unregister();
+			this.sensorPublisher.complete();
+
 			// Stop our transmission of commands
 			this.sendingTimer.cancel();
 
 			// Send a direct command to motorStop any movement (eludes the .cancel
 			// command)
-			this.sendingTimer.forceCommand( new AbortMacroCommand() );
-			this.sendingTimer.forceCommand( new RollCommand( 0, 0, true ) );
+			this.sendingTimer.forceCommand( AbortMacroCommand.INSTANCE );
+			this.sendingTimer.forceCommand( RollCommand.STOP );
 			this.sendingTimer.forceCommand( new FrontLEDCommand( 0 ) );
 			this.sendingTimer.forceCommand( new RGBLEDCommand( Color.BLACK ) );
 		}
@@ -470,6 +864,31 @@ public class Robot
 		this.sendingTimer.enqueue( command, false );
 	}
 
+	/**
+	 * Send a command to the active robot and get the response through a
+	 * future. The future is completed by the listening thread when the
+	 * response to the command is received, RobotListeners are notified
+	 * about the response as usual.
+	 * 
+	 * The future is completed exceptionally with a RobotResponseException
+	 * with the code CODE_ERROR_TIME_OUT if no response is received within
+	 * the response timeout and with a RobotBluetoothException if the
+	 * connection is closed before that.
+	 * 
+	 * @param command The command to send
+	 * 
+	 * @return The future response
+	 */
+	public CompletableFuture<ResponseMessage> sendAsync( CommandMessage command )
+	{
+		CompletableFuture<ResponseMessage> future = new CompletableFuture<ResponseMessage>();
+
+		if( !this.connected || !this.sendingTimer.enqueue( new OutgoingCommand( command, false, future ) ) )
+			future.completeExceptionally( new RobotBluetoothException( "Not connected to the robot" ) );
+
+		return future;
+	}
+
 	/**
 	 * Enqueue a command to be sent after a macro has finished execution
 	 * 
@@ -496,24 +915,30 @@ public class Robot
 	 * 
 	 * @param command The command to send
 	 * @param delay The delay before the command is sent
+	 * 
+	 * @return A handle that can be used to cancel the command before it's
+	 *         sent
 	 */
-	public void sendCommand( CommandMessage command, float delay )
+	public Future<?> sendCommand( CommandMessage command, float delay )
 	{
-		this.sendingTimer.enqueue( command, delay );
+		return this.sendingTimer.enqueue( command, delay );
 	}
 
 	/**
 	 * Send a command infinite times with a certain initial delay and a certain
-	 * given period length between next-coming messages.
+	 * given period length between next-coming messages. The transmissions
+	 * stop when the returned handle is cancelled or the robot disconnects.
 	 * 
 	 * @param command The command to send
 	 * @param initialDelay The initial delay before the first message is sent
 	 *            (in milliseconds)
 	 * @param periodLength The length between the transmissions
+	 * 
+	 * @return A handle that can be used to cancel the transmissions
 	 */
-	public void sendPeriodicCommand( CommandMessage command, float initialDelay, float periodLength )
+	public Future<?> sendPeriodicCommand( CommandMessage command, float initialDelay, float periodLength )
 	{
-		this.sendingTimer.enqueue( command, false, initialDelay, periodLength );
+		return this.sendingTimer.enqueue( command, false, initialDelay, periodLength );
 	}
 
 	/**
@@ -669,10 +1094,60 @@ public class Robot
 				// Update the name
 				this.bt.updateName();
 
+				break;
+
+			/*
+			 * The masks decide the layout of the data messages that we
+			 * will receive from now on
+			 */
+			case SET_DATA_STREAMING:
+				SetDataStreamingCommand sds = (SetDataStreamingCommand) command;
+				this.dataStreamPeriod = Math.max( 1, sds.getDivisor() ) * 1000000000L / DATA_STREAMING_RATE;
+
+				// The history is only allocated once data is streamed and
+				// only for the channels that are streamed
+				if( this.sensorHistory == null )
+					this.sensorHistory = new SensorTimeSeries( ProjectProperties.getInstance().getSensorHistorySize(), sds.getMask(), sds.getMask2() );
+				else
+					this.sensorHistory.enable( sds.getMask(), sds.getMask2() );
+
+				this.dataStreamParser = new DataStreamParser( sds.getMask(), sds.getMask2(), sds.getPacketFrames() );
+
 				break;
 		}
 	}
 
+	/**
+	 * Decode a received data message with the masks that are currently
+	 * streamed and append the frames to the sensor history. The frames of a
+	 * packet are spread backwards in time from the time of arrival.
+	 * 
+	 * @param data The data message
+	 * @param batch The batch to decode into (reused by the caller)
+	 */
+	private void recordSensorData( DataResponse data, SensorDataBatch batch )
+	{
+		SensorTimeSeries history = this.sensorHistory;
+		if( data.getParser() == null || history == null )
+			return;
+
+		batch.clear();
+		int frames = data.getSensorData( batch );
+		if( frames > 0 )
+		{
+			long period = this.dataStreamPeriod;
+			long first = System.nanoTime() - ( frames - 1 ) * period;
+			history.append( batch, 0, frames, first, period );
+
+			// Only create sample objects when someone wants them
+			if( this.sensorPublisher.hasSubscribers() )
+			{
+				for( int i = 0; i < frames; i++ )
+					this.sensorPublisher.publish( batch.getSensorData( i, new SensorData() ), first + i * period );
+			}
+		}
+	}
+
 	/*
 	 * *****************************************************
 	 * MACRO COMMANDS
@@ -1242,65 +1717,294 @@ public class Robot
 		return this.rawMovement;
 	}
 
-	/*
-	 * *****************************************************
-	 * STREAM LISTENER/WRITER
-	 * ****************************************************
+	/**
+	 * Returns the history of streamed sensor data. The history is created
+	 * when the first SetDataStreamingCommand is acknowledged and records the
+	 * channels of every acknowledged SetDataStreamingCommand.
+	 * 
+	 * @return The sensor history or null if data streaming hasn't been
+	 *         enabled
 	 */
+	public SensorTimeSeries getSensorHistory()
+	{
+		return this.sensorHistory;
+	}
+
 	/**
-	 * Handles the listening for the connected robot
+	 * Returns the parser for the sensor data that is currently streamed,
+	 * created from the masks of the last acknowledged
+	 * SetDataStreamingCommand. The same parser is attached to every received
+	 * DataResponse.
 	 * 
-	 * @author Nicklas Gavelin
+	 * @return The parser or null if data streaming hasn't been enabled
 	 */
-	private class RobotStreamListener extends Thread
+	public DataStreamParser getDataStreamParser()
 	{
-		// Thread motorStop/continue
-		private boolean stop = false;
-		// Bluetooth connection to use
-		private BluetoothConnection btc;
-		// Queue for commands that are waiting for responses
-		private LinkedList<Pair<CommandMessage, Boolean>> waitingForResponse;
+		return this.dataStreamParser;
+	}
 
-		/**
-		 * Create a listener from the Bluetooth connection
-		 * 
-		 * @param btc The Bluetooth connection
-		 */
-		public RobotStreamListener( BluetoothConnection btc )
-		{
-			this.btc = btc;
-			this.waitingForResponse = new LinkedList<Pair<CommandMessage, Boolean>>();
-		}
+	/**
+	 * Returns the publisher of the streamed sensor samples. Samples are only
+	 * published after data streaming has been enabled with a
+	 * SetDataStreamingCommand.
+	 * 
+	 * @return The sensor data publisher
+	 */
+	public SensorDataPublisher getSensorDataPublisher()
+	{
+		return this.sensorPublisher;
+	}
 
-		/**
-		 * Enqueue a command that are waiting for a response from the device
-		 * 
-		 * @param cmd The pair of the command and the flag that tells if it's a
-		 *            system command or not
-		 */
-		protected void enqueue( Pair<CommandMessage, Boolean> cmd )
-		{
-			this.waitingForResponse.add( cmd );
-		}
+	/**
+	 * Returns the number of commands that are waiting to be sent
+	 * 
+	 * @return The number of queued commands
+	 */
+	public int getSendingQueueSize()
+	{
+		return( this.sendingTimer != null ? this.sendingTimer.sendingQueue.size() : 0 );
+	}
 
-		/**
-		 * Stop the actively running thread
-		 */
-		public void stopThread()
-		{
-			this.stop = true;
-		}
+	/**
+	 * Returns the number of sent commands that are waiting for a response
+	 * 
+	 * @return The number of waiting commands
+	 */
+	public int getWaitingCommandCount()
+	{
+		Robot.RobotStreamListener listener = this.listeningThread;
+		return( listener != null ? listener.getWaitingCount() : 0 );
+	}
 
-		private byte[] linkedToArray( List<Byte> list )
+	/**
+	 * Returns the I/O metrics of the robot
+	 * 
+	 * @return The metrics
+	 */
+	public RobotMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * Returns the round trip latencies of a command type, from the time a
+	 * command was written to the connection until its response was
+	 * received. The histogram is updated as responses arrive and is kept
+	 * between connections.
+	 * 
+	 * @param type The command type
+	 * 
+	 * @return The latency histogram of the command type
+	 */
+	public LatencyHistogram getLatencyHistogram( CommandMessage.COMMAND_MESSAGE_TYPE type )
+	{
+		return this.latencies[type.ordinal()];
+	}
+
+	/**
+	 * Remove the recorded latencies of all command types
+	 */
+	public void resetLatencyHistograms()
+	{
+		for( LatencyHistogram h : this.latencies )
+			h.reset();
+	}
+
+	/**
+	 * Create a latency histogram for each command type
+	 */
+	private static LatencyHistogram[] createLatencyHistograms()
+	{
+		LatencyHistogram[] histograms = new LatencyHistogram[ CommandMessage.COMMAND_MESSAGE_TYPE.values().length ];
+		for( int i = 0; i < histograms.length; i++ )
+			histograms[i] = new LatencyHistogram();
+
+		return histograms;
+	}
+
+	/**
+	 * Returns the number of commands that were replaced by a newer command
+	 * of the same type before they were sent (roll, raw motor and led
+	 * commands). Counted from the latest connect.
+	 * 
+	 * @return The number of coalesced commands
+	 */
+	public long getCoalescedCommandCount()
+	{
+		return( this.sendingTimer != null ? this.sendingTimer.sendingQueue.getCoalescedCount() : 0 );
+	}
+
+	/**
+	 * Returns the mean time from the creation of a command until it's
+	 * sent. Counted from the latest connect.
+	 * 
+	 * @return The mean command age in ns
+	 */
+	public long getMeanCommandAge()
+	{
+		return( this.sendingTimer != null ? this.sendingTimer.sendingQueue.getMeanAge() : 0 );
+	}
+
+	/**
+	 * Returns the longest time from the creation of a command until it was
+	 * sent. Counted from the latest connect.
+	 * 
+	 * @return The max command age in ns
+	 */
+	public long getMaxCommandAge()
+	{
+		return( this.sendingTimer != null ? this.sendingTimer.sendingQueue.getMaxAge() : 0 );
+	}
+
+	/**
+	 * Set a recorder that will record all bytes read from and written to
+	 * the robot connection. Set to null to stop recording, the recorder is
+	 * not closed by the robot.
+	 * 
+	 * @param recorder The recorder or null
+	 */
+	public void setStreamRecorder( StreamRecorder recorder )
+	{
+		this.streamRecorder = recorder;
+	}
+
+	/**
+	 * Returns the current stream recorder
+	 * 
+	 * @return The stream recorder or null if not recording
+	 */
+	public StreamRecorder getStreamRecorder()
+	{
+		return this.streamRecorder;
+	}
+
+	/*
+	 * *****************************************************
+	 * STREAM LISTENER/WRITER
+	 * ****************************************************
+	 */
+	/**
+	 * Handles the listening for the connected robot
+	 * 
+	 * @author Nicklas Gavelin
+	 */
+	private class RobotStreamListener implements Runnable
+	{
+		// Thread motorStop/continue
+		private boolean stop = false;
+		// Bluetooth connection to use
+		private BluetoothConnection btc;
+		// Commands that are waiting for responses, by sequence number
+		private final InFlightCommands waitingForResponse;
+		// Only used by the expiry task of the sending queue
+		private final List<OutgoingCommand> expired = new ArrayList<OutgoingCommand>();
+		// Reused when decoding received sensor data
+		private final SensorDataBatch sensorBatch = new SensorDataBatch( 16 );
+
+		/**
+		 * Create a listener from the Bluetooth connection
+		 * 
+		 * @param btc The Bluetooth connection
+		 */
+		public RobotStreamListener( BluetoothConnection btc )
+		{
+			this.btc = btc;
+			this.waitingForResponse = new InFlightCommands( ProjectProperties.getInstance().getResponseTimeout() );
+		}
+
+		/**
+		 * Start listening on a thread from the robot thread factory
+		 */
+		public void start()
 		{
-			byte[] d = new byte[ list.size() ];
-			for( int i = 0; i < list.size(); i++ )
-				d[i] = list.get( i );
+			Robot.getThreadFactory().newThread( this ).start();
+		}
 
-			// for ( int i = 0; list.size() > 0; i++ )
-			// d[ i] = list.remove( 0 );
+		/**
+		 * Enqueue a command that are waiting for a response from the device.
+		 * Called by the writer before the batch is written so that a fast
+		 * response always finds its command, the writer sets the time the
+		 * command was sent once the batch is flushed.
+		 * 
+		 * @param cmd The command that is about to be sent
+		 */
+		protected void enqueue( OutgoingCommand cmd )
+		{
+			OutgoingCommand replaced = this.waitingForResponse.add( cmd, System.nanoTime() );
+			if( replaced != null )
+			{
+				Logging.warn( "No response received for " + replaced.getType() + " before its sequence number was reused" );
+				replaced.fail( new RobotResponseException( ResponseMessage.RESPONSE_CODE.CODE_ERROR_TIME_OUT, "No response received for " + replaced.getType() ) );
+			}
+		}
+
+		/**
+		 * Wait until fewer than the given number of commands are waiting for
+		 * a response
+		 * 
+		 * @param window The number of commands
+		 * 
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		protected void awaitWindow( int window ) throws InterruptedException
+		{
+			this.waitingForResponse.awaitBelow( window );
+		}
+
+		/**
+		 * Returns true if a command with the given sequence number is waiting
+		 * for a response
+		 * 
+		 * @param sequenceNumber The sequence number
+		 * 
+		 * @return True if the sequence number is in use
+		 */
+		protected boolean isWaiting( int sequenceNumber )
+		{
+			return this.waitingForResponse.contains( sequenceNumber );
+		}
+
+		/**
+		 * Returns the number of commands that are waiting for a response
+		 * 
+		 * @return The number of commands
+		 */
+		protected int getWaitingCount()
+		{
+			return this.waitingForResponse.size();
+		}
+
+		/**
+		 * Remove the commands that have not received a response in time
+		 */
+		protected void expireCommands()
+		{
+			if( this.waitingForResponse.expire( System.nanoTime(), this.expired ) == 0 )
+				return;
+
+			for( OutgoingCommand cmd : this.expired )
+			{
+				Logging.warn( "No response received for " + cmd.getType() + " (sequence number " + ( cmd.getSequenceNumber() & 0xFF ) + ")" );
+				cmd.fail( new RobotResponseException( ResponseMessage.RESPONSE_CODE.CODE_ERROR_TIME_OUT, "No response received for " + cmd.getType() ) );
+
+				// The response we are waiting for when disconnecting is lost,
+				// don't wait for it forever
+				if( cmd.isSystemCommand() && Robot.this.disconnecting && cmd.getType().equals( CommandMessage.COMMAND_MESSAGE_TYPE.RGB_LED_OUTPUT ) )
+				{
+					Robot.this.disconnecting = false;
+					this.stopThread();
+				}
+			}
+
+			this.expired.clear();
+		}
 
-			return d;
+		/**
+		 * Stop the actively running thread
+		 */
+		public void stopThread()
+		{
+			this.stop = true;
 		}
 
 		/**
@@ -1309,325 +2013,347 @@ public class Robot
 		@Override
 		public void run()
 		{
-			// ByteArrayBuffer buf = new ByteArrayBuffer( BUFFER_SIZE );
-
-			// Create a data array that contains all our read
-			// data.
-			byte[] data = new byte[ ProjectProperties.getInstance().getBufferSize() ];
-			LinkedList<Byte> buffer = new LinkedList<Byte>();
+			// Incoming data is read straight into the decoder buffer, complete
+			// frames are then handled in place and any partial frame is kept
+			// until the rest of it has been read
+			ResponseFrameDecoder decoder = new ResponseFrameDecoder( ProjectProperties.getInstance().getBufferSize() );
+			long discarded = 0;
 
 			// Run until we manually motorStop the thread
 			while( !this.stop )
 			{
 				try
 				{
-					int read = this.btc.read( data );
+					// Fetch the writable space first as it may move the write
+					// index
+					int writable = decoder.writableBytes();
+					int offset = decoder.writeIndex();
+					int read = this.btc.read( decoder.buffer(), offset, writable );
 					if( read == -1 )
 						throw new IOException( "Reached end of stream" );
 
-					// Append all newly read values to our buffer
-					// These values may only be the header or may as well be
-					// multiple messages depending on how much we could read this time
-					for( int k = 0; k < read; k++ )
-						buffer.add( data[k] );
+					decoder.commitWrite( read );
+					metrics.bytesRead( read );
+
+					StreamRecorder recorder = Robot.this.streamRecorder;
+					if( recorder != null )
+						recorder.received( decoder.buffer(), offset, read );
 
-					// Now we will continue to read until we got the whole message
-					// if we already have the whole message, skip this part
-					for( int dataLength = 0; buffer.size() < ( ResponseMessage.RESPONSE_HEADER_LENGTH + dataLength ); )
+					// Handle all complete messages that we have received, there
+					// may be none, one or multiple depending on how much we could
+					// read this time
+					while( decoder.nextFrame() )
 					{
-						// We need to read more of the data input to get a complete
-						// message
-						// Now read once again until we reach the end of the message
-						read = this.btc.read( data ); // Store it in the data array as
-														// earlier
-
-						// Append the read data to our data list
-						for( int k = 0; k < read; k++ )
-							buffer.add( data[k] );
-
-						// Now we have read a number of bytes and may have the complete
-						// message
-						// But we will check so that we have read equal to the complete
-						// message
-						// length or more (more messages than one is fine as long as we
-						// have at least one
-						// complete message)
-						if( buffer.size() > ResponseMessage.PAYLOAD_LENGTH_INDEX )
+						metrics.frameDecoded();
+
+						// Drop damaged frames before their sequence number is
+						// used, a damaged sequence number would otherwise
+						// complete the wrong command
+						if( !decoder.isChecksumValid() )
 						{
-							// We check the length of the packet by reading the length
-							// index
-							// These indexes are the same both for information and regular
-							// packets
-							// so it's fine selecting whatever index that we need
-							dataLength = linkedToArray( buffer )[ResponseMessage.PAYLOAD_LENGTH_INDEX];
+							metrics.checksumError();
+							Logging.warn( "Dropped frame with invalid checksum" );
+							continue;
 						}
+
+						// The checksum has been verified, the message doesn't
+						// have to sum it again
+						this.handleFrame( new ResponseMessage.ResponseHeader( decoder.buffer(), decoder.frameOffset(), true ) );
 					}
 
-					// Now we have at least one fine packet
-					// convert the linked list to an array that we can read from (easier
-					// reading)
-					byte[] nData = linkedToArray( buffer );
-
-					// Now we have our read data, the next step is to start reading
-					// messages until
-					// we have read all completed messages in the array, after we have
-					// read all messages
-					// we will dump all remaining data in the buffer once again and then
-					// we will continue
-					// reading from the top again
-					int read2 = 0; // Read to point in array
-					for( int pointer = 0; pointer < buffer.size() && ( nData.length - pointer >= ResponseMessage.RESPONSE_HEADER_LENGTH ) && ( nData.length - pointer >= ( ResponseMessage.RESPONSE_HEADER_LENGTH + nData[pointer + ResponseMessage.PAYLOAD_LENGTH_INDEX] ) ); )
+					metrics.bytesDiscarded( decoder.getDiscardedBytes() - discarded );
+					discarded = decoder.getDiscardedBytes();
+				}
+				catch( NullPointerException e )
+				{
+					Logging.error( "NullPointerException", e );
+				}
+				catch( NoSuchElementException e )
+				{
+					Logging.error( "NoSuchElementException", e );
+				}
+				catch( Exception e )
+				{
+					if( connected )
+						Logging.fatal( "Listening thread closed down unexpectedly", e );
+					connectionClosedUnexpected();
+				}
+			}
+
+			// No more responses will be received for the commands that are
+			// still waiting
+			List<OutgoingCommand> remaining = new ArrayList<OutgoingCommand>();
+			this.waitingForResponse.clear( remaining );
+			for( OutgoingCommand cmd : remaining )
+				cmd.fail( new RobotBluetoothException( "Connection closed before a response was received" ) );
+		}
+
+		/**
+		 * Handle a single complete message received from the device
+		 * 
+		 * @param drh The header of the received message
+		 */
+		private void handleFrame( ResponseMessage.ResponseHeader drh )
+		{
+			// Check the type of the response,
+			// Regular response is messages received after sending a command
+			// to the device
+			// Information response is messages received as an effect of
+			// sending a specific command that
+			// sets the Sphero to keep sending information for some given
+			// reason
+			switch ( drh.getResponseType() )
+			{
+			/* Regular response message */
+				case REGULAR:
+					// We have received the message as an action that depends
+					// on a message
+					// we sent earlier, the device echoes the sequence number
+					// of the command so we use it to find the command
+					OutgoingCommand cmd = waitingForResponse.remove( drh.getSequenceNumber() );
+					if( cmd == null )
+					{
+						// Late response to a command that has timed out or a
+						// response that we never sent a command for
+						Logging.warn( "Dropped response with unknown sequence number " + ( drh.getSequenceNumber() & 0xFF ) );
+						metrics.unmatchedResponse();
+						break;
+					}
+
+					// The response may arrive before the writer has set the
+					// time the batch was sent
+					long sent = cmd.getSent();
+					if( sent != 0 )
+						latencies[cmd.getType().ordinal()].record( System.nanoTime() - sent );
+
+					// Fetch the type of command that we sent, this is used
+					// for debugging purposes
+					CommandMessage.COMMAND_MESSAGE_TYPE cmdType = cmd.getType();
+
+					// The command that we sent will act as the decider for
+					// which type of response that
+					// we received. The response we create is in fact the
+					// response which corresponds to the
+					// command that we sent, although it's an super type that
+					// we extend for increased functionality
+					ResponseMessage response = ResponseMessage.valueOf( cmd.getCommand(), drh );
+					if( response == null )
 					{
-						// Now the above restrictions make these things come true
-						// 1. Our current position in the buffer array (nData) is not more
-						// than our buffer size
-						// 2. Our current message length is above that of the header
-						// length of a message (We got a header to read)
-						// 3. Our current message length is above that of the header
-						// length + the packet length (We got a complete packet to read)
-						// These restriction makes us able to read a COMPLETED message and
-						// not only the header part of the message
-
-						// Now we will start by creating an object for our header
-						// The header will select our specific message values such as
-						// response code and type
-						// and also the length of the contained data
-						ResponseMessage.ResponseHeader drh = new ResponseMessage.ResponseHeader( nData, pointer );
-
-						// Check the type of the response,
-						// Regular response is messages received after sending a command
-						// to the device
-						// Information response is messages received as an effect of
-						// sending a specific command that
-						// sets the Sphero to keep sending information for some given
-						// reason
-						switch ( drh.getResponseType() )
+						// No response class for the command, the command is
+						// already out of the table so it has to be failed here
+						metrics.unknownFrame();
+						cmd.fail( new RobotResponseException( drh.getResponseCode(), "No response could be created for " + cmdType ) );
+						break;
+					}
+
+					// Frames with a bad checksum never get here, a corrupt
+					// response has a payload that couldn't be read
+					if( response.isCorrupt() )
+						metrics.corruptFrame();
+
+					// The response is handed to the user, so it needs a copy
+					// of the packet that outlives the receive buffer
+					response.detach();
+
+					// Print some debug information that will help us if we
+					// end up with trouble later on
+					if( Logging.isDebugEnabled() )
+						Logging.debug( "Received response packet: " + response + ( cmd.isSystemCommand() ? " as a SYSTEM RESPONSE" : "" ) );
+
+					// Update internal values if we got an OK response code
+					// from the robot
+					// on the command that we sent. We use a switch case
+					// instead of an if/elseif for nicer looking code ;-)
+					switch ( drh.getResponseCode() )
+					{
+					/*
+					 * Code OK, nothing went wrong with the command that we
+					 * sent
+					 */
+						case CODE_OK:
+							// Update the internal settings for the robot with
+							// the response stuff that we have received
+							updateInternalValues( cmd.getCommand() );
+							break;
+						default:
+							Logging.error( "Received response code " + drh.getResponseCode() + " for " + cmdType );
+							break;
+					}
+
+					try
+					{
+						// Check if we sent the command as a system command
+						// (command sent by the inner classes or robot class for
+						// setting
+						// up the device itself and not by the user)
+						if( cmd.isSystemCommand() ) // System command
 						{
-						/* Regular response message */
-							case REGULAR:
-								// We have received the message as an action that depends
-								// on a message
-								// we sent earlier, now check which message that this
-								// response corresponds to
-								Pair<CommandMessage, Boolean> cmd = waitingForResponse.remove();
-
-								// Fetch the type of command that we sent, this is used
-								// for debugging purposes
-								CommandMessage.COMMAND_MESSAGE_TYPE cmdType = cmd.getFirst().getCommand();
-
-								// The command that we sent will act as the decider for
-								// which type of response that
-								// we received. The response we create is in fact the
-								// response which corresponds to the
-								// command that we sent, although it's an super type that
-								// we extend for increased functionality
-								ResponseMessage response = ResponseMessage.valueOf( cmd.getFirst(), drh );
-
-								// Print some debug information that will help us if we
-								// end up with trouble later on
-								Logging.debug( "Received response packet: " + response + ( cmd.getSecond() ? " as a SYSTEM RESPONSE" : "" ) );
-
-								// Update internal values if we got an OK response code
-								// from the robot
-								// on the command that we sent. We use a switch case
-								// instead of an if/elseif for nicer looking code ;-)
-								switch ( drh.getResponseCode() )
-								{
-								/*
-								 * Code OK, nothing went wrong with the command that we
-								 * sent
-								 */
-									case CODE_OK:
-										// Update the internal settings for the robot with
-										// the response stuff that we have received
-										updateInternalValues( cmd.getFirst() );
-										break;
-									default:
-										Logging.error( "Received response code " + drh.getResponseCode() + " for " + cmdType );
+							// The sent command is a system command
+							// Check which type of command to see if we need to
+							// update something internal
+							switch ( cmdType )
+							{
+							/*
+							 * A bluetooth information message that returns
+							 * information about the bluetooth
+							 * connection
+							 */
+								case GET_BLUETOOTH_INFO:
+									// Check that the response is OK so that we
+									// can do something with our data
+									if( drh.getResponseCode().equals( ResponseMessage.RESPONSE_CODE.CODE_OK ) )
+									{
+										// Update Sphero name
+										GetBluetoothInfoResponse gb = (GetBluetoothInfoResponse) response;
+										if( !gb.isCorrupt() )
+											name = gb.getName();
 										break;
-								}
-
-								// Check if we sent the command as a system command
-								// (command sent by the inner classes or robot class for
-								// setting
-								// up the device itself and not by the user)
-								if( cmd.getSecond() ) // System command
-								{
-									// The sent command is a system command
-									// Check which type of command to see if we need to
-									// update something internal
-									switch ( cmdType )
+									}
+									break;
+								case RGB_LED_OUTPUT:
+									if( Robot.this.disconnecting )
 									{
-									/*
-									 * A bluetooth information message that returns
-									 * information about the bluetooth
-									 * connection
-									 */
-										case GET_BLUETOOTH_INFO:
-											// Check that the response is OK so that we
-											// can do something with our data
-											if( drh.getResponseCode().equals( ResponseMessage.RESPONSE_CODE.CODE_OK ) )
-											{
-												// Update Sphero name
-												GetBluetoothInfoResponse gb = (GetBluetoothInfoResponse) response;
-												if( !gb.isCorrupt() )
-													name = gb.getName();
-												break;
-											}
-											break;
-										case RGB_LED_OUTPUT:
-											if( Robot.this.disconnecting )
-											{
-												if( cmd.getFirst().getCommand().equals( CommandMessage.COMMAND_MESSAGE_TYPE.RGB_LED_OUTPUT ) )
-												{
-													// Notify
-													// We are disconnecting
-													Robot.this.disconnecting = false;
-													this.stopThread();
-												}
-											}
-											break;
+										if( cmdType.equals( CommandMessage.COMMAND_MESSAGE_TYPE.RGB_LED_OUTPUT ) )
+										{
+											// Notify
+											// We are disconnecting
+											Robot.this.disconnecting = false;
+											this.stopThread();
+										}
 									}
-								}
-								else
-								// Notify user
-								{
-									// The sent command is a user sent command that we
-									// need to notify the user about
-									Robot.this.notifyListenersDeviceResponse( response, cmd.getFirst() );
-								}
+									break;
+							}
+						}
+						else
+						// Notify user
+						{
+							// The sent command is a user sent command that we
+							// need to notify the user about
+							Robot.this.notifyListenersDeviceResponse( response, cmd.getCommand() );
+						}
+					}
+					finally
+					{
+						// Complete the future of a command sent with sendAsync,
+						// also when a listener fails as the command is no
+						// longer in the table
+						cmd.complete( response );
+					}
+					break;
+
+				/* Information response message */
+				case INFORMATION:
+					// Check if we got a OK response code so that we can read
+					// the message that we received
+					// Otherwise we need to throw away the message
+					switch ( drh.getResponseCode() )
+					{
+					/* OK response code, message is fine */
+						case CODE_OK:
+							// Now create our message from the data that we
+							// have received
+							InformationResponseMessage dir = InformationResponseMessage.valueOf( drh );
+
+							// Unknown type of information message, nothing to
+							// handle
+							if( dir == null )
+							{
+								metrics.unknownFrame();
 								break;
+							}
 
-							/* Information response message */
-							case INFORMATION:
-								// Check if we got a OK response code so that we can read
-								// the message that we received
-								// Otherwise we need to throw away the message
-								switch ( drh.getResponseCode() )
+							if( !dir.isCorrupt() )
+							{
+								// Message content is OK and we can send the
+								// data onwards for handling
+								switch ( dir.getInformationResponseType() )
 								{
-								/* OK response code, message is fine */
-									case CODE_OK:
-										// Now create our message from the data that we
-										// have received
-										InformationResponseMessage dir = InformationResponseMessage.valueOf( drh );
-
-										if( !dir.isCorrupt() )
+								/* Data message, contains sensor data */
+								/* Emit macro message */
+									case EMIT:
+										if( Robot.this.macroSettings.macroRunning )
 										{
-											// Message content is OK and we can send the
-											// data onwards for handling
-											switch ( dir.getInformationResponseType() )
+											// We have a macro running and
+											// received an emit message
+											// now we want to continue sending
+											// any data that is left
+											// for transmission regarding a
+											// macro
+											if( Robot.this.macroSettings.ballMemory.size() > 0 )
 											{
-											/* Data message, contains sensor data */
-											/* Emit macro message */
-												case EMIT:
-													if( Robot.this.macroSettings.macroRunning )
-													{
-														// We have a macro running and
-														// received an emit message
-														// now we want to continue sending
-														// any data that is left
-														// for transmission regarding a
-														// macro
-														if( Robot.this.macroSettings.ballMemory.size() > 0 )
-														{
-															// Remove the size of the last
-															// macro that we have
-															// allocated for the macro
-															// data
-															// as the robot has a limited
-															// amount of memory for macro
-															// storage
-															Robot.this.macroSettings.ballMemory.remove( (Integer) macroSettings.ballMemory.toArray()[0] );
-														}
-
-														// Transmit any remaining macro
-														// data now that we got more
-														// memory on the device
-														Robot.this.macroSettings.emptyMacroCommandQueue();
-														Robot.this.macroSettings.stopIfFinished();
-													}
-													break;
-												/**
-												 * data for collision event
-												 */
-												case COLLISIONDETECTED:
-
-
-													Robot.this.notifyCollisionDetected(dir);
-													break;
-												/*
-												 * Data message and any other type of
-												 * message
-												 */
-												case DATA:
-													// Notify listeners about a received
-													// data message
-													Robot.this.notifyListenersInformationResponse( dir );
-													break;
-
-												/*
-												 * Not implemented type of information
-												 * message received, ignore it and log
-												 * this
-												 * occurrence
-												 */
-												default:
-													// Logging.error(
-													// "Unkown type of information message was received "
-													// );
-													break;
+												// Remove the size of the last
+												// macro that we have
+												// allocated for the macro
+												// data
+												// as the robot has a limited
+												// amount of memory for macro
+												// storage
+												Robot.this.macroSettings.ballMemory.remove( (Integer) macroSettings.ballMemory.toArray()[0] );
 											}
+
+											// Transmit any remaining macro
+											// data now that we got more
+											// memory on the device
+											Robot.this.macroSettings.emptyMacroCommandQueue();
+											Robot.this.macroSettings.stopIfFinished();
 										}
-										else
-											// Received a corrupt message code for some
-											// reason, log the instance
-											Logging.error( "Received corrupt information response message " + dir );
 										break;
-								}
-								break;
+									/**
+									 * data for collision event
+									 */
+									case COLLISIONDETECTED:
 
-							/* Unknown response code received */
-							default:
-								// Logging.error( "Unkown response type received: " +
-								// drh.getResponseType() );
-								break;
-						}
 
-						// Now we need to move our pointer forward so that
-						// we may continue to read any other messages that we have read in
-						// our
-						// buffer array, but first check which type of header that we need
-						// to use for calculating the complete packet length
-						int headerLength = ( drh.getResponseType().equals( ResponseMessage.ResponseHeader.RESPONSE_TYPE.INFORMATION ) ? ResponseMessage.INFORMATION_RESPONSE_HEADER_LENGTH : ResponseMessage.RESPONSE_HEADER_LENGTH );
+										Robot.this.notifyCollisionDetected(dir);
+										break;
+									/*
+									 * Data message and any other type of
+									 * message
+									 */
+									case DATA:
+										// Attach the masks that are streamed so
+										// that the listeners can decode it
+										DataResponse data = (DataResponse) dir;
+										data.setParser( Robot.this.dataStreamParser );
+
+										// Keep the decoded samples
+										Robot.this.recordSensorData( data, this.sensorBatch );
+
+										// Notify listeners about a received
+										// data message
+										Robot.this.notifyListenersInformationResponse( dir );
+										break;
 
-						// Add the current packet length to the data pointer
-						read2 = ( pointer += drh.getPayloadLength() + headerLength );
+									/*
+									 * Not implemented type of information
+									 * message received, ignore it and log
+									 * this
+									 * occurrence
+									 */
+									default:
+										// Logging.error(
+										// "Unkown type of information message was received "
+										// );
+										break;
+								}
+							}
+							else
+							{
+								// Received a corrupt message code for some
+								// reason, log the instance
+								metrics.corruptFrame();
+								Logging.error( "Received corrupt information response message " + dir );
+							}
+							break;
 					}
+					break;
 
-					// Now we need to clear our data array and add any data that
-					// we couldn't read cause it was incomplete to our buffer
-					// for handling when we have read more information
-					buffer.clear();
-
-					// Add the remaining data to the buffer by reading
-					// from our abandoned position
-					for( ; read2 < nData.length; read2++ )
-						buffer.add( nData[read2] );
-				}
-				catch( NullPointerException e )
-				{
-					Logging.error( "NullPointerException", e );
-				}
-				catch( NoSuchElementException e )
-				{
-					Logging.error( "NoSuchElementException", e );
-				}
-				catch( Exception e )
-				{
-					if( connected )
-						Logging.fatal( "Listening thread closed down unexpectedly", e );
-					connectionClosedUnexpected();
-				}
+				/* Unknown response code received */
+				default:
+					metrics.unknownFrame();
+					// Logging.error( "Unkown response type received: " +
+					// drh.getResponseType() );
+					break;
 			}
 		}
 	}
@@ -1658,21 +2384,26 @@ public class Robot
 
 	/**
 	 * Handles the sending of commands to the active robot.
-	 * Manages multiple queues (one timer and one sending queue). The
-	 * sending queue is for sending direct messages and the timer queue
-	 * is used to schedule commands to be sent after a certain delay
+	 * Manages the sending queue and the commands scheduled on the shared
+	 * scheduler. The sending queue is for sending direct messages and the
+	 * scheduler is used to enqueue commands after a certain delay
 	 * or with periodic transmissions.
 	 * 
 	 * @author Nicklas Gavelin
 	 */
-	private class RobotSendingQueue extends Timer
+	private class RobotSendingQueue
 	{
 		// Internal storage
-		private boolean stop = false, stopAccepting = false;
+		private volatile boolean stop = false, stopAccepting = false;
 		private final BluetoothConnection btc;
 		// Writer & queue that the writer uses
-		private Robot.RobotSendingQueue.Writer w;
-		private final BlockingQueue<Pair<CommandMessage, Boolean>> sendingQueue;
+		private Thread w;
+		private final CommandQueue sendingQueue;
+		// Scheduled commands, cancelled together with the queue
+		private final ScheduledExecutorService scheduler;
+		private final List<Future<?>> scheduled = new ArrayList<Future<?>>();
+		// Sequence numbers of the connection
+		private final AtomicInteger sequenceNumber = new AtomicInteger();
 
 		/**
 		 * Create a robot stream writer for a specific Bluetooth connection
@@ -1682,10 +2413,20 @@ public class Robot
 		protected RobotSendingQueue( BluetoothConnection btc )
 		{
 			this.btc = btc;
-			this.sendingQueue = new LinkedBlockingQueue<Pair<CommandMessage, Boolean>>();
-			this.w = new Robot.RobotSendingQueue.Writer();
+			this.sendingQueue = new CommandQueue();
+			this.scheduler = Robot.getScheduler();
+			this.w = Robot.getThreadFactory().newThread( new Robot.RobotSendingQueue.Writer() );
 
 			this.startWriter();
+
+			// Remove commands that have waited too long for a response
+			this.schedule( new Runnable() {
+				@Override
+				public void run()
+				{
+					listeningThread.expireCommands();
+				}
+			}, EXPIRE_INTERVAL, EXPIRE_INTERVAL );
 		}
 
 		/**
@@ -1706,12 +2447,12 @@ public class Robot
 		 */
 		public void forceCommand( CommandMessage command )
 		{
-			this.sendingQueue.add( new Pair<CommandMessage, Boolean>( command, true ) );
+			this.sendingQueue.put( new OutgoingCommand( command, true ) );
 		}
 
 		/**
 		 * Enqueue a single command to be sent as soon as possible without using
-		 * the timer objects that are often used to enqueue commands to be sent
+		 * the scheduler that is used to enqueue commands to be sent
 		 * after a certain delay.
 		 * 
 		 * @param command The command to send
@@ -1720,77 +2461,55 @@ public class Robot
 		 */
 		public void enqueue( CommandMessage command, boolean systemCommand )
 		{
-			synchronized( sendingQueue )
-			{
-				try
-				{
-					if( !this.stop && !this.stopAccepting )
-						this.sendingQueue.put( new Pair<CommandMessage, Boolean>( command, systemCommand ) );
-				}
-				catch( InterruptedException e )
-				{
-				}
-			}
+			this.enqueue( new OutgoingCommand( command, systemCommand ) );
 		}
 
 		/**
-		 * Enqueue a single command to be sent as soon as possible without using
-		 * the timer objects that are often used to enqueue commands to be sent
-		 * after a certain delay. The command will be sent as a SYSTEM command
-		 * and will not notify any RobotListeners after a response is received!
+		 * Enqueue a single command to be sent as soon as possible
+		 * 
+		 * @param command The command to send
+		 * 
+		 * @return True if the command was enqueued, false if the queue no
+		 *         longer accepts commands
+		 */
+		public boolean enqueue( OutgoingCommand command )
+		{
+			if( this.stop || this.stopAccepting )
+				return false;
+
+			this.sendingQueue.put( command );
+			return true;
+		}
+
+		/**
+		 * Enqueue a single user command to be sent after a specific delay
 		 * 
 		 * @param command The command to send
 		 * @param delay The delay to send the command after (in ms)
+		 * 
+		 * @return A handle that can be used to cancel the command
 		 */
-		public void enqueue( CommandMessage command, float delay )
-		{
-			this.enqueue( command, delay, false );
-		}
-
-//		/**
-//		 * Enqueue a command with a certain repeat period and initial delay
-//		 * before sending the
-//		 * first message. <b>The message will be repeated as long as the writer
-//		 * allows it</b>.
-//		 * 
-//		 * @param command The command to transmit
-//		 * @param initialDelay The initial delay before sending the first one
-//		 * @param periodLength The period length between the transmissions
-//		 */
-//		public void enqueue( CommandMessage command, float initialDelay, float periodLength )
-//		{
-//			this.enqueue( command, false, initialDelay, periodLength );
-//		}
+		public Future<?> enqueue( CommandMessage command, float delay )
+		{
+			return this.enqueue( command, delay, false );
+		}
 
 		/**
 		 * Enqueue a command with a certain repeat period and initial delay
 		 * before sending the
-		 * first message. <b>The message will be repeated as long as the writer
-		 * allows it</b>.
+		 * first message. <b>The message will be repeated until the handle is
+		 * cancelled or the queue is stopped</b>.
 		 * 
 		 * @param command The command to send
 		 * @param systemCommand True for a system command, false otherwise
 		 * @param initialDelay The initial delay for sending
 		 * @param periodLength The period length between transmissions
-		 */
-		public void enqueue( CommandMessage command, boolean systemCommand, float initialDelay, float periodLength )
-		{
-			if( !this.stop && !this.stopAccepting )
-				this.schedule( new Robot.RobotSendingQueue.CommandTask( new Pair<CommandMessage, Boolean>( command, systemCommand ) ), (long) initialDelay, (long) periodLength );
-		}
-
-		/**
-		 * Enqueue an already existing command task to run at a certain initial
-		 * delay and
-		 * a certain period length
 		 * 
-		 * @param task The task to run after the timer runs
-		 * @param delay The delay before running the task in milliseconds
+		 * @return A handle that can be used to cancel the transmissions
 		 */
-		private void enqueue( Robot.RobotSendingQueue.CommandTask task, float delay )
+		public Future<?> enqueue( CommandMessage command, boolean systemCommand, float initialDelay, float periodLength )
 		{
-			if( !this.stop && !this.stopAccepting )
-				this.schedule( task, (long) delay );
+			return this.schedule( new Robot.RobotSendingQueue.CommandTask( command, systemCommand ), (long) initialDelay, (long) periodLength );
 		}
 
 		/**
@@ -1800,30 +2519,102 @@ public class Robot
 		 * @param delay The delay to send after (in ms)
 		 * @param systemCommand True if the command is a system command, false
 		 *            otherwise
+		 * 
+		 * @return A handle that can be used to cancel the command
 		 */
-		public void enqueue( CommandMessage command, float delay, boolean systemCommand )
+		public Future<?> enqueue( CommandMessage command, float delay, boolean systemCommand )
 		{
-			if( !this.stop && !this.stopAccepting )
-				this.schedule( new Robot.RobotSendingQueue.CommandTask( new Pair<CommandMessage, Boolean>( command, systemCommand ) ), (long) delay );
+			return this.schedule( new Robot.RobotSendingQueue.CommandTask( command, systemCommand ), (long) delay, 0 );
 		}
 
 		/**
-		 * Stops the current timer. Will not be possible to restart it once
-		 * this method is run!
+		 * Schedule a task on the shared scheduler
+		 * 
+		 * @param task The task
+		 * @param delay The delay before the first run (in ms)
+		 * @param period The delay between the end of a run and the start of
+		 *            the next (in ms), 0 to only run once
+		 * 
+		 * @return The handle of the task, cancelled if the queue no longer
+		 *         accepts commands
+		 */
+		private Future<?> schedule( Runnable task, long delay, long period )
+		{
+			synchronized( this.scheduled )
+			{
+				if( this.stop || this.stopAccepting )
+				{
+					CompletableFuture<Void> cancelled = new CompletableFuture<Void>();
+					cancelled.cancel( false );
+					return cancelled;
+				}
+
+				// Forget about tasks that have already run
+				for( Iterator<Future<?>> i = this.scheduled.iterator(); i.hasNext(); )
+					if( i.next().isDone() )
+						i.remove();
+
+				Future<?> f;
+				if( period > 0 )
+					f = this.scheduler.scheduleWithFixedDelay( task, Math.max( 0, delay ), period, TimeUnit.MILLISECONDS );
+				else
+					f = this.scheduler.schedule( task, Math.max( 0, delay ), TimeUnit.MILLISECONDS );
+
+				this.scheduled.add( f );
+				return f;
+			}
+		}
+
+		/**
+		 * Stops the scheduled commands and stops accepting new commands.
+		 * Will not be possible to restart it once this method is run!
 		 */
-		@Override
 		public void cancel()
 		{
-			this.stopAccepting = true;
-			super.cancel();
+			synchronized( this.scheduled )
+			{
+				this.stopAccepting = true;
+
+				for( Future<?> f : this.scheduled )
+					f.cancel( false );
+				this.scheduled.clear();
+			}
 		}
 
 		/**
-		 * Stop everything
+		 * Returns the next sequence number of the connection. The sequence
+		 * number is a single byte, numbers that are still waiting for a
+		 * response are skipped so that a response can't be matched to the
+		 * wrong command.
+		 * 
+		 * @return The sequence number (0-255)
+		 */
+		private int nextSequenceNumber()
+		{
+			for( int i = 0; i < InFlightCommands.SLOTS; i++ )
+			{
+				int sequenceNumber = this.sequenceNumber.getAndIncrement() & 0xFF;
+				if( !listeningThread.isWaiting( sequenceNumber ) )
+					return sequenceNumber;
+			}
+
+			// Every number is in use (only possible with a window of 256),
+			// the command replaces the oldest one
+			return this.sequenceNumber.getAndIncrement() & 0xFF;
+		}
+
+		/**
+		 * Stop everything, the scheduled commands are cancelled and the
+		 * writer is interrupted as it may be waiting for the window or for a
+		 * command that will never come
 		 */
 		public void stopAll()
 		{
 			this.stop = true;
+			this.cancel();
+
+			if( Thread.currentThread() != this.w )
+				this.w.interrupt();
 		}
 
 		/**
@@ -1831,57 +2622,31 @@ public class Robot
 		 * 
 		 * @author Nicklas Gavelin
 		 */
-		private class CommandTask extends TimerTask
+		private class CommandTask implements Runnable
 		{
 			// Storage of the command to send
-			private Pair<CommandMessage, Boolean> execute;
-			private int repeat = 0;
-			private float delay;
-			private boolean repeating = false;
+			private final CommandMessage command;
+			private final boolean systemCommand;
 
 			/**
 			 * Create a command task to send a command
 			 * 
-			 * @param execute The command together with a boolean value
-			 *            describing if it's a system message or not
-			 */
-			private CommandTask( Pair<CommandMessage, Boolean> execute )
-			{
-				this.execute = execute;
-			}
-
-			/**
-			 * Create a command task with a repeated number of runs
-			 * 
-			 * @param execute The command to execute
-			 * @param delay The delay between the commands
-			 * @param repeat The number of repeats to perform (-1 for infinite
-			 *            repeats)
+			 * @param command The command to send
+			 * @param systemCommand True if the command is a system command,
+			 *            false otherwise
 			 */
-			private CommandTask( Pair<CommandMessage, Boolean> execute, float delay, int repeat )
+			private CommandTask( CommandMessage command, boolean systemCommand )
 			{
-				this( execute );
-				this.repeat = repeat;
-				this.delay = delay;
-
-				if( repeat != -1 ) // Infinite command, will be sent until the end of
-									// time!
-					this.repeating = true;
+				this.command = command;
+				this.systemCommand = systemCommand;
 			}
 
 			@Override
 			public void run()
 			{
-				// Enqueue the command directly to the writer
-				enqueue( execute.getFirst(), execute.getSecond() );
-
-				// Check if we want to repeat the command
-				if( repeating )
-				{
-					if( repeat == -1 || --repeat > 0 )
-						enqueue( this, delay );
-
-				}
+				// Enqueue the command directly to the writer, as a new
+				// outgoing command so that its age is counted from now
+				enqueue( new OutgoingCommand( this.command, this.systemCommand ) );
 			}
 		}
 
@@ -1890,12 +2655,14 @@ public class Robot
 		 * 
 		 * @author Nicklas Gavelin
 		 */
-		private class Writer extends Thread
+		private class Writer implements Runnable
 		{
 			@Override
 			public void run()
 			{
 				ByteArrayBuffer sendingBuffer = new ByteArrayBuffer( 256 );
+				List<OutgoingCommand> batch = new ArrayList<OutgoingCommand>();
+				int window = ProjectProperties.getInstance().getSendWindow();
 
 				// Run until we manually motorStop the thread or
 				// a connection error occurs.
@@ -1903,81 +2670,94 @@ public class Robot
 				{
 					try
 					{
-						// Fetch a message from the sending queue and append the data of that packet to our
-						// sending buffer. We will then try to add more data to our sending buffer.
-						Pair<CommandMessage, Boolean> p = sendingQueue.take();
-
-						// Append message to sending buffer
-						sendingBuffer.append( p.getFirst().getPacket(), 0, p.getFirst().getPacketLength() );
+						// Only keep a limited number of commands waiting for a
+						// response, newer commands stay in the queue where they
+						// may replace older ones of the same type
+						listeningThread.awaitWindow( window );
+
+						// Fetch a message from the sending queue and write its
+						// packet directly into our sending buffer, the sequence
+						// number is given when the packet is written. We will
+						// then try to add more packets to our sending buffer.
+						OutgoingCommand p = sendingQueue.take();
+						if( p.write( sendingBuffer, nextSequenceNumber() ) == 0 )
+						{
+							Logging.error( "Packet of " + p.getType() + " doesn't fit in the sending buffer" );
+							p.fail( new IllegalArgumentException( "Packet too large" ) );
+							continue;
+						}
 
 						// Add command to listening queue
 						listeningThread.enqueue( p );
-						// sent.add( p );
+						batch.add( p );
 
-						Logging.debug( "Queueing " + p.getFirst() );
+						Logging.debug( "Queueing", p.getCommand() );
 
-						// Lock until we have sent our messages in-case someone
-						// else tries to do access our sendingQueue at the same time (enqueue)
-						synchronized( sendingQueue )
+						try
 						{
-							try
+							// We will try to send as much as we can, as long as
+							// the window allows it
+							while( listeningThread.getWaitingCount() < window )
 							{
-								// We will try to send as much as we can
-								if( !sendingQueue.isEmpty() )
-								{
-									// Go through all the messages that we can
-									for( int i = 0; i < sendingQueue.size(); i++ )
-									{
-										Pair<CommandMessage, Boolean> c = sendingQueue.peek();
-
-										// Peek at the the rest of the messages
-										int length = c.getFirst().getPacketLength();
-
-										// Check that we have enough space to add the next
-										// message to, if not
-										// send what we got and continue later on
-										if( sendingBuffer.length() - length < 0 )
-											break;
+								OutgoingCommand c = sendingQueue.peek();
+								if( c == null )
+									break;
+
+								// Check that we have enough space to add the next
+								// message to, if not
+								// send what we got and continue later on
+								if( sendingBuffer.capacity() - sendingBuffer.length() < c.getCommand().getPacketLength() )
+									break;
+
+								// Enqueue the next command
+								c = sendingQueue.poll();
+								c.write( sendingBuffer, nextSequenceNumber() );
+								listeningThread.enqueue( c );
+								batch.add( c );
+
+								Logging.debug( "Queueing", c.getCommand() );
+							}
 
-										// Enqueue the next command
-										sendingBuffer.append( c.getFirst().getPacket(), 0, c.getFirst().getPacketLength() );
-										listeningThread.enqueue( c );
-										// sent.add( c );
-										sendingQueue.remove();
+							// Write to socket
+							Logging.debug( "Sending", sendingBuffer );
+							btc.write( sendingBuffer.buffer(), 0, sendingBuffer.length() );
+							btc.flush();
 
-										Logging.debug( "Queueing " + c.getFirst() );
-									}
-								}
+							// Latencies are measured from the flush, not from
+							// when the command was added to the batch
+							long now = System.nanoTime();
+							for( OutgoingCommand c : batch )
+								c.setSent( now );
 
-								// Write to socket
-								Logging.debug( "Sending " + sendingBuffer );
-								btc.write( sendingBuffer.toByteArray() );
-								btc.flush();
+							metrics.bytesWritten( sendingBuffer.length() );
+							metrics.commandsSent( batch.size() );
 
-								// update( sent );
-							}
-							catch( IOException e )
-							{
-								// Remove last until we have removed all messages that we
-								// tried to send
-								// for ( int i = 0; i < added; i++ ) // TODO: Remove this
-								// listeningThread.removeLast();
-
-								// Close unexpectedly
-								if( connected )
-									Logging.fatal( "Writing thread closed down unexpectedly", e );
-								connectionClosedUnexpected();
-							}
-							finally
-							{
-								sendingBuffer.clear();
-							}
+							StreamRecorder recorder = Robot.this.streamRecorder;
+							if( recorder != null )
+								recorder.sent( sendingBuffer.buffer(), 0, sendingBuffer.length() );
+						}
+						catch( IOException e )
+						{
+							// Close unexpectedly
+							if( connected )
+								Logging.fatal( "Writing thread closed down unexpectedly", e );
+							connectionClosedUnexpected();
+						}
+						finally
+						{
+							sendingBuffer.clear();
+							batch.clear();
 						}
 					}
 					catch( InterruptedException e )
 					{
 					} // Nothing important, just continue on
 				}
+
+				// The commands that are left will never be sent
+				OutgoingCommand p;
+				while( ( p = sendingQueue.poll() ) != null )
+					p.fail( new RobotBluetoothException( "Connection closed before the command was sent" ) );
 			}
 		}
 	}
@@ -2016,7 +2796,7 @@ public class Robot
 		private void stopMacro()
 		{
 			// Abort the current macro
-			sendCommand( new AbortMacroCommand() );
+			sendCommand( AbortMacroCommand.INSTANCE );
 
 			// Clear the memory
 			this.commands.clear();
@@ -2164,6 +2944,7 @@ public class Robot
 
 			emits++;
 			Robot.this.sendSystemCommand( svc );
+			Robot.this.metrics.macroChunkStreamed();
 
 			// Check if we can continue creating more messages to send
 			if( !this.commands.isEmpty() && freeBallMemory() > rs.macroMinSpaceSize )
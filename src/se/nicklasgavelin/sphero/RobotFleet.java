@@ -0,0 +1,587 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import se.nicklasgavelin.bluetooth.Bluetooth;
+import se.nicklasgavelin.bluetooth.Bluetooth.EVENT;
+import se.nicklasgavelin.bluetooth.BluetoothDevice;
+import se.nicklasgavelin.bluetooth.BluetoothDiscoveryListener;
+import se.nicklasgavelin.configuration.ProjectProperties;
+import se.nicklasgavelin.log.Logging;
+import se.nicklasgavelin.sphero.RobotListener.EVENT_CODE;
+import se.nicklasgavelin.sphero.command.CommandMessage;
+import se.nicklasgavelin.sphero.command.FrontLEDCommand;
+import se.nicklasgavelin.sphero.command.RGBLEDCommand;
+import se.nicklasgavelin.sphero.command.RollCommand;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.information.CollisiondetectedResponse;
+
+/**
+ * Connects to and supervises a group of robots. Service discovery and
+ * connection of the robots is done in parallel by a pool of threads, the
+ * size of the pool limits the number of robots that are being connected at
+ * the same time (Bluetooth stacks usually only handle a few concurrent
+ * searches). Robots whose connection closes unexpectedly are reconnected.
+ *
+ * Commands can be broadcast to all connected robots, a broadcast command
+ * is created once and the same command is written directly into the
+ * sending buffer of every connection.
+ *
+ * Example usage:
+ * RobotFleet fleet = new RobotFleet();
+ * fleet.discover( new Bluetooth( Bluetooth.SERIAL_COM ) );
+ * ...
+ * fleet.setRGBLEDColor( Color.RED );
+ */
+public class RobotFleet
+{
+	private final List<Member> members = new CopyOnWriteArrayList<Member>();
+	private final ExecutorService executor;
+	private volatile boolean reconnect = true;
+	private volatile long reconnectDelay = 2000;
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Create a fleet that connects sphero.fleet.concurrency robots at the
+	 * same time
+	 */
+	public RobotFleet()
+	{
+		this( ProjectProperties.getInstance().getFleetConcurrency() );
+	}
+
+	/**
+	 * Create a fleet
+	 *
+	 * @param concurrency The number of robots that are discovered and
+	 *            connected at the same time
+	 */
+	public RobotFleet( int concurrency )
+	{
+		this.executor = Executors.newFixedThreadPool( Math.max( 1, concurrency ), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread( Runnable r )
+			{
+				Thread t = new Thread( r, "Robot fleet " + count.incrementAndGet() );
+				t.setDaemon( true );
+				return t;
+			}
+		} );
+	}
+
+	/*
+	 * *****************************************************
+	 * MEMBERS
+	 * ****************************************************
+	 */
+
+	/**
+	 * Search for devices and add every Sphero device that is found to the
+	 * fleet. Returns directly, the devices are connected as they are found.
+	 *
+	 * @param bt The Bluetooth instance to search with
+	 */
+	public void discover( final Bluetooth bt )
+	{
+		bt.addListener( new BluetoothDiscoveryListener() {
+			@Override
+			public void deviceDiscovered( BluetoothDevice device )
+			{
+				if( isRobotAddress( device.getAddress() ) )
+					add( device );
+			}
+
+			@Override
+			public void deviceSearchCompleted( Collection<BluetoothDevice> devices )
+			{
+				bt.removeListener( this );
+			}
+
+			@Override
+			public void deviceSearchFailed( EVENT error )
+			{
+				Logging.error( "Fleet device search failed: " + error.getErrorMessage() );
+				bt.removeListener( this );
+			}
+
+			@Override
+			public void deviceSearchStarted()
+			{
+			}
+		} );
+
+		bt.discover();
+	}
+
+	/**
+	 * Add a device to the fleet, the robot is created and connected by the
+	 * connection pool. Devices that are already in the fleet are ignored.
+	 *
+	 * @param device The device
+	 *
+	 * @return A future that completes with the robot when the connection
+	 *         attempt is done (the robot is null if it couldn't be created)
+	 */
+	public synchronized Future<Robot> add( BluetoothDevice device )
+	{
+		for( Member m : this.members )
+		{
+			if( m.device.getAddress().equals( device.getAddress() ) )
+				return this.executor.submit( m.getRobotTask() );
+		}
+
+		Member m = new Member( device );
+		this.members.add( m );
+		return this.executor.submit( m.getConnectTask() );
+	}
+
+	/**
+	 * Add several devices to the fleet
+	 *
+	 * @param devices The devices
+	 *
+	 * @return The futures of the connection attempts, in the order of the
+	 *         devices
+	 */
+	public List<Future<Robot>> addAll( Collection<BluetoothDevice> devices )
+	{
+		List<Future<Robot>> futures = new ArrayList<Future<Robot>>( devices.size() );
+		for( BluetoothDevice d : devices )
+			futures.add( this.add( d ) );
+
+		return futures;
+	}
+
+	/**
+	 * Remove a robot from the fleet and disconnect it
+	 *
+	 * @param address The address of the robot
+	 */
+	public void remove( String address )
+	{
+		for( Member m : this.members )
+		{
+			if( m.device.getAddress().equals( address ) )
+			{
+				this.members.remove( m );
+				m.removed = true;
+				if( m.robot != null )
+				{
+					m.robot.removeListener( m );
+					m.robot.disconnect();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the robots that have been created, connected or not
+	 *
+	 * @return The robots
+	 */
+	public List<Robot> getRobots()
+	{
+		List<Robot> robots = new ArrayList<Robot>();
+		for( Member m : this.members )
+			if( m.robot != null )
+				robots.add( m.robot );
+
+		return robots;
+	}
+
+	/**
+	 * Returns the number of connected robots
+	 *
+	 * @return The number of connected robots
+	 */
+	public int getConnectedCount()
+	{
+		int connected = 0;
+		for( Member m : this.members )
+			if( m.robot != null && m.robot.isConnected() )
+				connected++;
+
+		return connected;
+	}
+
+	/**
+	 * Returns the health of every robot in the fleet
+	 *
+	 * @return The health of the robots, in the order they were added
+	 */
+	public List<Health> getHealth()
+	{
+		List<Health> health = new ArrayList<Health>( this.members.size() );
+		for( Member m : this.members )
+			health.add( new Health( m ) );
+
+		return health;
+	}
+
+	/**
+	 * Set if robots whose connection closes unexpectedly should be
+	 * reconnected (default true)
+	 *
+	 * @param reconnect True to reconnect
+	 * @param delay The delay before reconnecting (in ms)
+	 */
+	public void setReconnect( boolean reconnect, long delay )
+	{
+		this.reconnect = reconnect;
+		this.reconnectDelay = Math.max( 0, delay );
+	}
+
+	/**
+	 * Disconnect all robots and stop the connection pool. The fleet can't be
+	 * used after this.
+	 */
+	public void shutdown()
+	{
+		this.shutdown = true;
+		this.executor.shutdownNow();
+
+		for( Member m : this.members )
+			if( m.robot != null )
+				m.robot.disconnect();
+	}
+
+	/*
+	 * *****************************************************
+	 * BROADCAST
+	 * ****************************************************
+	 */
+
+	/**
+	 * Send a command to all connected robots. The command is shared by all
+	 * robots, each robot writes it with its own sequence number.
+	 *
+	 * @param command The command to send
+	 */
+	public void sendCommand( CommandMessage command )
+	{
+		for( Member m : this.members )
+			if( m.robot != null && m.robot.isConnected() )
+				m.robot.sendCommand( command );
+	}
+
+	/**
+	 * Set the RGB LED color of all connected robots
+	 *
+	 * @param c The color
+	 */
+	public void setRGBLEDColor( Color c )
+	{
+		this.sendCommand( new RGBLEDCommand( c ) );
+	}
+
+	/**
+	 * Set the front LED brightness of all connected robots
+	 *
+	 * @param brightness The brightness, 0-1
+	 */
+	public void setFrontLEDBrightness( float brightness )
+	{
+		this.sendCommand( new FrontLEDCommand( brightness ) );
+	}
+
+	/**
+	 * Roll all connected robots with the same heading and speed
+	 *
+	 * @param heading The heading (0-360)
+	 * @param speed The speed (0-1)
+	 */
+	public void roll( float heading, float speed )
+	{
+		this.sendCommand( new RollCommand( heading, speed, false ) );
+	}
+
+	/**
+	 * Stop the motors of all connected robots. Each robot keeps its own
+	 * heading so the command is made for each robot.
+	 */
+	public void stopMotors()
+	{
+		for( Member m : this.members )
+			if( m.robot != null && m.robot.isConnected() )
+				m.robot.stopMotors();
+	}
+
+	/**
+	 * Returns true if the address belongs to a Sphero device
+	 */
+	private static boolean isRobotAddress( String address )
+	{
+		return address != null && ( address.startsWith( Robot.ROBOT_ADDRESS_PREFIX ) || address.startsWith( Robot.ROBOT_ADDRESS_PREFIX_V2 ) );
+	}
+
+	/*
+	 * *****************************************************
+	 * INTERNAL CLASSES
+	 * ****************************************************
+	 */
+
+	/**
+	 * A snapshot of the health of a single robot in the fleet
+	 */
+	public static class Health
+	{
+		private final String address, name;
+		private final boolean connected;
+		private final int reconnects, queueSize;
+		private final long coalescedCommands, meanCommandAge, maxCommandAge;
+		private final EVENT_CODE lastEvent;
+		private final String lastError;
+
+		private Health( Member m )
+		{
+			Robot r = m.robot;
+			this.address = m.device.getAddress();
+			this.name = ( r != null ? r.getName() : m.device.getName() );
+			this.connected = ( r != null && r.isConnected() );
+			this.reconnects = m.reconnects.get();
+			this.queueSize = ( r != null ? r.getSendingQueueSize() : 0 );
+			this.coalescedCommands = ( r != null ? r.getCoalescedCommandCount() : 0 );
+			this.meanCommandAge = ( r != null ? r.getMeanCommandAge() : 0 );
+			this.maxCommandAge = ( r != null ? r.getMaxCommandAge() : 0 );
+			this.lastEvent = m.lastEvent;
+			this.lastError = m.lastError;
+		}
+
+		/**
+		 * Returns the address of the robot
+		 *
+		 * @return The Bluetooth address
+		 */
+		public String getAddress()
+		{
+			return this.address;
+		}
+
+		/**
+		 * Returns the name of the robot
+		 *
+		 * @return The name
+		 */
+		public String getName()
+		{
+			return this.name;
+		}
+
+		/**
+		 * Returns true if the robot was connected
+		 *
+		 * @return True if connected
+		 */
+		public boolean isConnected()
+		{
+			return this.connected;
+		}
+
+		/**
+		 * Returns the number of times the robot has been reconnected
+		 *
+		 * @return The number of reconnects
+		 */
+		public int getReconnects()
+		{
+			return this.reconnects;
+		}
+
+		/**
+		 * Returns the number of commands waiting to be sent
+		 *
+		 * @return The number of queued commands
+		 */
+		public int getQueueSize()
+		{
+			return this.queueSize;
+		}
+
+		/**
+		 * Returns the number of coalesced commands since the latest connect
+		 *
+		 * @return The number of coalesced commands
+		 */
+		public long getCoalescedCommands()
+		{
+			return this.coalescedCommands;
+		}
+
+		/**
+		 * Returns the mean time from creation to sending of a command
+		 *
+		 * @return The mean command age in ns
+		 */
+		public long getMeanCommandAge()
+		{
+			return this.meanCommandAge;
+		}
+
+		/**
+		 * Returns the longest time from creation to sending of a command
+		 *
+		 * @return The max command age in ns
+		 */
+		public long getMaxCommandAge()
+		{
+			return this.maxCommandAge;
+		}
+
+		/**
+		 * Returns the latest event of the robot
+		 *
+		 * @return The latest event or null if no event has occurred
+		 */
+		public EVENT_CODE getLastEvent()
+		{
+			return this.lastEvent;
+		}
+
+		/**
+		 * Returns the latest error while creating or connecting the robot
+		 *
+		 * @return The error message or null
+		 */
+		public String getLastError()
+		{
+			return this.lastError;
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.address + " (" + this.name + ") " + ( this.connected ? "connected" : "not connected" ) + ", reconnects " + this.reconnects + ", queued " + this.queueSize + ", last event " + this.lastEvent + ( this.lastError != null ? ", last error " + this.lastError : "" );
+		}
+	}
+
+	/**
+	 * A device in the fleet and the robot created for it. Listens to the
+	 * robot to reconnect it when the connection is lost.
+	 */
+	private class Member implements RobotListener
+	{
+		private final BluetoothDevice device;
+		private volatile Robot robot;
+		private volatile EVENT_CODE lastEvent;
+		private volatile String lastError;
+		private volatile boolean removed = false;
+		private final AtomicInteger reconnects = new AtomicInteger();
+
+		private Member( BluetoothDevice device )
+		{
+			this.device = device;
+		}
+
+		/**
+		 * Returns a task that creates (if needed) and connects the robot
+		 */
+		private Callable<Robot> getConnectTask()
+		{
+			return new Callable<Robot>() {
+				@Override
+				public Robot call()
+				{
+					connect();
+					return robot;
+				}
+			};
+		}
+
+		/**
+		 * Returns a task that returns the robot
+		 */
+		private Callable<Robot> getRobotTask()
+		{
+			return new Callable<Robot>() {
+				@Override
+				public Robot call()
+				{
+					return robot;
+				}
+			};
+		}
+
+		/**
+		 * Create the robot if needed and connect to it
+		 */
+		private synchronized void connect()
+		{
+			if( this.removed || shutdown )
+				return;
+
+			try
+			{
+				if( this.robot == null )
+				{
+					Robot r = new Robot( this.device );
+					r.addListener( this );
+					this.robot = r;
+				}
+
+				if( !this.robot.isConnected() && !this.robot.connect() )
+					this.lastError = "Failed to connect";
+			}
+			catch( Exception e )
+			{
+				this.lastError = e.toString();
+				Logging.error( "Fleet failed to add robot " + this.device.getAddress(), e );
+			}
+		}
+
+		@Override
+		public void event( Robot r, EVENT_CODE code )
+		{
+			this.lastEvent = code;
+
+			if( code == EVENT_CODE.CONNECTION_CLOSED_UNEXPECTED && reconnect && !shutdown && !this.removed )
+			{
+				Logging.info( "Reconnecting " + this.device.getAddress() + " in " + reconnectDelay + " ms" );
+
+				// Wait on the shared scheduler, connect in the pool
+				Robot.getScheduler().schedule( new Runnable() {
+					@Override
+					public void run()
+					{
+						if( shutdown )
+							return;
+
+						reconnects.incrementAndGet();
+						executor.submit( getConnectTask() );
+					}
+				}, reconnectDelay, TimeUnit.MILLISECONDS );
+			}
+		}
+
+		@Override
+		public void responseReceived( Robot r, ResponseMessage response, CommandMessage dc )
+		{
+		}
+
+		@Override
+		public void informationResponseReceived( Robot r, InformationResponseMessage response )
+		{
+		}
+
+		@Override
+		public void collisionDetected( Robot r, CollisiondetectedResponse response )
+		{
+		}
+	}
+}
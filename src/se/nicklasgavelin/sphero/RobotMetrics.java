@@ -0,0 +1,491 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import se.nicklasgavelin.log.Logging;
+
+/**
+ * Counters for the I/O of a robot. The counters are updated by the
+ * listening and writing threads of the robot and are kept in LongAdders so
+ * that counting adds next to nothing to the cost of sending and receiving.
+ * The counters are kept for the lifetime of the robot, over reconnects.
+ *
+ * The values can be read one by one, as a snapshot or through JMX by
+ * registering the metrics with the platform MBean server (done
+ * automatically for every connected robot when sphero.metrics.jmx is true,
+ * the metrics are removed again when the robot disconnects).
+ */
+public class RobotMetrics implements RobotMetricsMXBean
+{
+	/**
+	 * The domain of the JMX object names
+	 */
+	public static final String JMX_DOMAIN = "se.nicklasgavelin.sphero";
+
+	private final Robot robot;
+	private final LongAdder bytesRead = new LongAdder(), bytesWritten = new LongAdder(), bytesDiscarded = new LongAdder();
+	private final LongAdder framesDecoded = new LongAdder(), corruptFrames = new LongAdder(), checksumErrors = new LongAdder(), unknownFrames = new LongAdder(), unmatchedResponses = new LongAdder();
+	private final LongAdder commandsSent = new LongAdder(), macroChunksStreamed = new LongAdder();
+	private final LongAdder listenerDispatches = new LongAdder(), listenerDispatchTime = new LongAdder(), listenerNotificationsDropped = new LongAdder();
+	private ObjectName objectName;
+
+	/**
+	 * Create the metrics of a robot
+	 *
+	 * @param robot The robot
+	 */
+	RobotMetrics( Robot robot )
+	{
+		this.robot = robot;
+	}
+
+	/*
+	 * *****************************************************
+	 * UPDATES
+	 * ****************************************************
+	 */
+
+	void bytesRead( int bytes )
+	{
+		this.bytesRead.add( bytes );
+	}
+
+	void bytesWritten( int bytes )
+	{
+		this.bytesWritten.add( bytes );
+	}
+
+	void bytesDiscarded( long bytes )
+	{
+		if( bytes > 0 )
+			this.bytesDiscarded.add( bytes );
+	}
+
+	void frameDecoded()
+	{
+		this.framesDecoded.increment();
+	}
+
+	void corruptFrame()
+	{
+		this.corruptFrames.increment();
+	}
+
+	void checksumError()
+	{
+		this.checksumErrors.increment();
+	}
+
+	void unknownFrame()
+	{
+		this.unknownFrames.increment();
+	}
+
+	void unmatchedResponse()
+	{
+		this.unmatchedResponses.increment();
+	}
+
+	void commandsSent( int commands )
+	{
+		this.commandsSent.add( commands );
+	}
+
+	void macroChunkStreamed()
+	{
+		this.macroChunksStreamed.increment();
+	}
+
+	void listenerDispatched( long time )
+	{
+		this.listenerDispatches.increment();
+		this.listenerDispatchTime.add( time );
+	}
+
+	void listenerNotificationDropped()
+	{
+		this.listenerNotificationsDropped.increment();
+	}
+
+	/*
+	 * *****************************************************
+	 * VALUES
+	 * ****************************************************
+	 */
+
+	@Override
+	public String getAddress()
+	{
+		return this.robot.getAddress();
+	}
+
+	@Override
+	public boolean isConnected()
+	{
+		return this.robot.isConnected();
+	}
+
+	/**
+	 * Returns the number of bytes read from the connection
+	 *
+	 * @return The number of read bytes
+	 */
+	@Override
+	public long getBytesRead()
+	{
+		return this.bytesRead.sum();
+	}
+
+	/**
+	 * Returns the number of bytes written to the connection
+	 *
+	 * @return The number of written bytes
+	 */
+	@Override
+	public long getBytesWritten()
+	{
+		return this.bytesWritten.sum();
+	}
+
+	/**
+	 * Returns the number of received bytes that were skipped while searching
+	 * for the start of a frame
+	 *
+	 * @return The number of discarded bytes
+	 */
+	@Override
+	public long getBytesDiscarded()
+	{
+		return this.bytesDiscarded.sum();
+	}
+
+	/**
+	 * Returns the number of complete frames received
+	 *
+	 * @return The number of frames
+	 */
+	@Override
+	public long getFramesDecoded()
+	{
+		return this.framesDecoded.sum();
+	}
+
+	/**
+	 * Returns the number of responses with a valid checksum whose payload
+	 * couldn't be read (ResponseMessage.isCorrupt), frames with an invalid
+	 * checksum are only counted as checksum errors
+	 *
+	 * @return The number of corrupt responses
+	 */
+	@Override
+	public long getCorruptFrames()
+	{
+		return this.corruptFrames.sum();
+	}
+
+	/**
+	 * Returns the number of frames with a checksum that doesn't match their
+	 * content, these frames are dropped
+	 *
+	 * @return The number of checksum errors
+	 */
+	@Override
+	public long getChecksumErrors()
+	{
+		return this.checksumErrors.sum();
+	}
+
+	/**
+	 * Returns the number of frames of an unknown response type or an unknown
+	 * information type and responses that no response message could be
+	 * created for
+	 *
+	 * @return The number of unknown frames
+	 */
+	@Override
+	public long getUnknownFrames()
+	{
+		return this.unknownFrames.sum();
+	}
+
+	/**
+	 * Returns the number of responses with a sequence number that no command
+	 * is waiting for, usually late responses to commands that have timed out
+	 *
+	 * @return The number of unmatched responses
+	 */
+	@Override
+	public long getUnmatchedResponses()
+	{
+		return this.unmatchedResponses.sum();
+	}
+
+	/**
+	 * Returns the number of commands written to the connection
+	 *
+	 * @return The number of sent commands
+	 */
+	@Override
+	public long getCommandsSent()
+	{
+		return this.commandsSent.sum();
+	}
+
+	/**
+	 * Returns the number of macro chunks sent while streaming macros
+	 *
+	 * @return The number of macro chunks
+	 */
+	@Override
+	public long getMacroChunksStreamed()
+	{
+		return this.macroChunksStreamed.sum();
+	}
+
+	/**
+	 * Returns the number of times the listeners have been notified about a
+	 * response
+	 *
+	 * @return The number of dispatches
+	 */
+	@Override
+	public long getListenerDispatches()
+	{
+		return this.listenerDispatches.sum();
+	}
+
+	/**
+	 * Returns the total time spent in the listeners when notifying them about
+	 * responses
+	 *
+	 * @return The dispatch time in ns
+	 */
+	@Override
+	public long getListenerDispatchTime()
+	{
+		return this.listenerDispatchTime.sum();
+	}
+
+	/**
+	 * Returns the number of sensor data notifications that were dropped as
+	 * the queue of a listener with a thread of its own was full
+	 *
+	 * @return The number of dropped notifications
+	 */
+	@Override
+	public long getListenerNotificationsDropped()
+	{
+		return this.listenerNotificationsDropped.sum();
+	}
+
+	/**
+	 * Returns the number of commands waiting to be sent
+	 *
+	 * @return The number of queued commands
+	 */
+	@Override
+	public int getSendingQueueSize()
+	{
+		return this.robot.getSendingQueueSize();
+	}
+
+	/**
+	 * Returns the number of sent commands waiting for a response
+	 *
+	 * @return The number of waiting commands
+	 */
+	@Override
+	public int getWaitingCommandCount()
+	{
+		return this.robot.getWaitingCommandCount();
+	}
+
+	/**
+	 * Returns a snapshot of all values
+	 *
+	 * @return The snapshot
+	 */
+	public Snapshot getSnapshot()
+	{
+		return new Snapshot( this );
+	}
+
+	/*
+	 * *****************************************************
+	 * JMX
+	 * ****************************************************
+	 */
+
+	/**
+	 * Register the metrics with the platform MBean server as
+	 * se.nicklasgavelin.sphero:type=Robot,address=[address]. Does nothing if
+	 * already registered, replaces the metrics of an older robot with the
+	 * same address.
+	 */
+	public synchronized void register()
+	{
+		if( this.objectName != null )
+			return;
+
+		try
+		{
+			ObjectName name = new ObjectName( JMX_DOMAIN + ":type=Robot,address=" + ObjectName.quote( this.robot.getAddress() ) );
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+			// A newer robot for the same device replaces the older one
+			if( server.isRegistered( name ) )
+				server.unregisterMBean( name );
+			server.registerMBean( this, name );
+			this.objectName = name;
+		}
+		catch( JMException e )
+		{
+			Logging.error( "Failed to register metrics for " + this.robot.getAddress(), e );
+		}
+	}
+
+	/**
+	 * Remove the metrics from the platform MBean server
+	 */
+	public synchronized void unregister()
+	{
+		if( this.objectName == null )
+			return;
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean( this.objectName );
+		}
+		catch( JMException e )
+		{
+			Logging.error( "Failed to unregister metrics for " + this.robot.getAddress(), e );
+		}
+
+		this.objectName = null;
+	}
+
+	/*
+	 * *****************************************************
+	 * INTERNAL CLASSES
+	 * ****************************************************
+	 */
+
+	/**
+	 * The values of the metrics at a single point in time
+	 */
+	public static class Snapshot
+	{
+		private final long bytesRead, bytesWritten, bytesDiscarded;
+		private final long framesDecoded, corruptFrames, checksumErrors, unknownFrames, unmatchedResponses;
+		private final long commandsSent, macroChunksStreamed;
+		private final long listenerDispatches, listenerDispatchTime, listenerNotificationsDropped;
+		private final int sendingQueueSize, waitingCommandCount;
+
+		private Snapshot( RobotMetrics m )
+		{
+			this.bytesRead = m.getBytesRead();
+			this.bytesWritten = m.getBytesWritten();
+			this.bytesDiscarded = m.getBytesDiscarded();
+			this.framesDecoded = m.getFramesDecoded();
+			this.corruptFrames = m.getCorruptFrames();
+			this.checksumErrors = m.getChecksumErrors();
+			this.unknownFrames = m.getUnknownFrames();
+			this.unmatchedResponses = m.getUnmatchedResponses();
+			this.commandsSent = m.getCommandsSent();
+			this.macroChunksStreamed = m.getMacroChunksStreamed();
+			this.listenerDispatches = m.getListenerDispatches();
+			this.listenerDispatchTime = m.getListenerDispatchTime();
+			this.listenerNotificationsDropped = m.getListenerNotificationsDropped();
+			this.sendingQueueSize = m.getSendingQueueSize();
+			this.waitingCommandCount = m.getWaitingCommandCount();
+		}
+
+		public long getBytesRead()
+		{
+			return this.bytesRead;
+		}
+
+		public long getBytesWritten()
+		{
+			return this.bytesWritten;
+		}
+
+		public long getBytesDiscarded()
+		{
+			return this.bytesDiscarded;
+		}
+
+		public long getFramesDecoded()
+		{
+			return this.framesDecoded;
+		}
+
+		public long getCorruptFrames()
+		{
+			return this.corruptFrames;
+		}
+
+		public long getChecksumErrors()
+		{
+			return this.checksumErrors;
+		}
+
+		public long getUnknownFrames()
+		{
+			return this.unknownFrames;
+		}
+
+		public long getUnmatchedResponses()
+		{
+			return this.unmatchedResponses;
+		}
+
+		public long getCommandsSent()
+		{
+			return this.commandsSent;
+		}
+
+		public long getMacroChunksStreamed()
+		{
+			return this.macroChunksStreamed;
+		}
+
+		public long getListenerDispatches()
+		{
+			return this.listenerDispatches;
+		}
+
+		public long getListenerDispatchTime()
+		{
+			return this.listenerDispatchTime;
+		}
+
+		public long getListenerNotificationsDropped()
+		{
+			return this.listenerNotificationsDropped;
+		}
+
+		public int getSendingQueueSize()
+		{
+			return this.sendingQueueSize;
+		}
+
+		public int getWaitingCommandCount()
+		{
+			return this.waitingCommandCount;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "read " + this.bytesRead + " B, written " + this.bytesWritten + " B, discarded " + this.bytesDiscarded + " B, frames " + this.framesDecoded + ", corrupt " + this.corruptFrames + ", checksum errors " + this.checksumErrors + ", unknown " + this.unknownFrames + ", unmatched " + this.unmatchedResponses + ", commands sent " + this.commandsSent + ", macro chunks " + this.macroChunksStreamed + ", dispatches " + this.listenerDispatches + " (" + this.listenerDispatchTime / 1000 + " us), dropped notifications " + this.listenerNotificationsDropped + ", queued " + this.sendingQueueSize + ", waiting " + this.waitingCommandCount;
+		}
+	}
+}
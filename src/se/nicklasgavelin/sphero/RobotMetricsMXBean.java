@@ -0,0 +1,46 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+/**
+ * Management interface of the metrics of a robot, see RobotMetrics for a
+ * description of the values.
+ */
+public interface RobotMetricsMXBean
+{
+	public String getAddress();
+
+	public boolean isConnected();
+
+	public long getBytesRead();
+
+	public long getBytesWritten();
+
+	public long getBytesDiscarded();
+
+	public long getFramesDecoded();
+
+	public long getCorruptFrames();
+
+	public long getChecksumErrors();
+
+	public long getUnknownFrames();
+
+	public long getUnmatchedResponses();
+
+	public long getCommandsSent();
+
+	public long getMacroChunksStreamed();
+
+	public long getListenerDispatches();
+
+	public long getListenerDispatchTime();
+
+	public long getListenerNotificationsDropped();
+
+	public int getSendingQueueSize();
+
+	public int getWaitingCommandCount();
+}
@@ -0,0 +1,43 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+/**
+ * A handler subscribed with Robot.subscribe. The handler is called until the
+ * subscription is cancelled.
+ */
+public final class RobotSubscription
+{
+	private final SubscriptionTable<?> table;
+	private final int type;
+	private final Object handler;
+	private volatile boolean cancelled = false;
+
+	RobotSubscription( SubscriptionTable<?> table, int type, Object handler )
+	{
+		this.table = table;
+		this.type = type;
+		this.handler = handler;
+	}
+
+	/**
+	 * Stop calling the handler, does nothing if already cancelled
+	 */
+	public void cancel()
+	{
+		if( this.table.remove( this.type, this.handler ) )
+			this.cancelled = true;
+	}
+
+	/**
+	 * Returns true if the subscription has been cancelled
+	 *
+	 * @return True if cancelled, false otherwise
+	 */
+	public boolean isCancelled()
+	{
+		return this.cancelled;
+	}
+}
@@ -0,0 +1,431 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import se.nicklasgavelin.log.Logging;
+import se.nicklasgavelin.sphero.response.SensorData;
+
+/**
+ * Publishes the streamed sensor samples of a robot, one SensorData for
+ * every sample, decoded with the masks of the last acknowledged
+ * SetDataStreamingCommand. Nothing is decoded into SensorData objects while
+ * there are no subscribers.
+ *
+ * Samples are only passed to a subscriber as it requests them. The samples
+ * a subscriber hasn't requested yet are kept in a buffer of its own, when
+ * the buffer is full the oldest sample is dropped. For subscribers that are
+ * slower than the stream there are two views of the publisher:
+ * conflate(), where only the latest sample is kept, and sample(), where at
+ * most one sample per period is passed on.
+ *
+ * The subscribers are called on a pool of threads shared by all publishers
+ * and never on the listening thread of the robot. A thread is only busy
+ * while it's passing samples to a subscriber, so a subscriber that blocks
+ * holds up no one but itself.
+ *
+ * When the robot disconnects every subscriber is completed, onComplete is
+ * called once the samples it has requested have been passed on. All
+ * signals to a subscriber, including onError and onComplete, are sent by
+ * the same drain loop and never concurrently.
+ */
+public class SensorDataPublisher implements Flow.Publisher<SensorData>
+{
+	private static final Inner[] EMPTY = new Inner[ 0 ];
+
+	// Shared by all publishers, threads are created as needed
+	private static final ExecutorService executor = Executors.newCachedThreadPool( new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread( Runnable r )
+		{
+			Thread t = new Thread( r, "Sensor data publisher " + count.incrementAndGet() );
+			t.setDaemon( true );
+			return t;
+		}
+	} );
+
+	private final int bufferSize;
+	private final AtomicLong dropped = new AtomicLong();
+	// Copied on every change so that publishing doesn't need a lock
+	private volatile Inner[] subscriptions = EMPTY;
+
+	/**
+	 * Create a publisher
+	 *
+	 * @param bufferSize The number of samples kept for each subscriber
+	 */
+	SensorDataPublisher( int bufferSize )
+	{
+		this.bufferSize = Math.max( 1, bufferSize );
+	}
+
+	/**
+	 * Subscribe to all samples, keeping up to sphero.sensor.publisher.buffer
+	 * samples that haven't been requested yet
+	 *
+	 * @param subscriber The subscriber
+	 */
+	@Override
+	public void subscribe( Flow.Subscriber<? super SensorData> subscriber )
+	{
+		this.subscribe( subscriber, this.bufferSize, 0 );
+	}
+
+	/**
+	 * Returns a view of the publisher where only the latest sample is kept
+	 * for a subscriber, samples that arrive before the subscriber has
+	 * requested the previous one replace it
+	 *
+	 * @return The conflating publisher
+	 */
+	public Flow.Publisher<SensorData> conflate()
+	{
+		return new Flow.Publisher<SensorData>() {
+			@Override
+			public void subscribe( Flow.Subscriber<? super SensorData> subscriber )
+			{
+				SensorDataPublisher.this.subscribe( subscriber, 1, 0 );
+			}
+		};
+	}
+
+	/**
+	 * Returns a view of the publisher that passes at most one sample per
+	 * period to a subscriber, the other samples are skipped without being
+	 * buffered
+	 *
+	 * @param period The shortest time between two samples (ms)
+	 *
+	 * @return The sampling publisher
+	 */
+	public Flow.Publisher<SensorData> sample( long period )
+	{
+		final long interval = period * 1000000L;
+		return new Flow.Publisher<SensorData>() {
+			@Override
+			public void subscribe( Flow.Subscriber<? super SensorData> subscriber )
+			{
+				SensorDataPublisher.this.subscribe( subscriber, SensorDataPublisher.this.bufferSize, interval );
+			}
+		};
+	}
+
+	/**
+	 * Returns true if there is at least one subscriber
+	 *
+	 * @return True if there are subscribers, false otherwise
+	 */
+	public boolean hasSubscribers()
+	{
+		return this.subscriptions.length > 0;
+	}
+
+	/**
+	 * Returns the number of samples that have been dropped as a subscriber
+	 * didn't request them before its buffer was full
+	 *
+	 * @return The number of dropped samples
+	 */
+	public long getDropped()
+	{
+		return this.dropped.get();
+	}
+
+	/**
+	 * Pass a sample to all subscribers, called by the listening thread
+	 *
+	 * @param data The sample
+	 * @param time The time of the sample (System.nanoTime)
+	 */
+	void publish( SensorData data, long time )
+	{
+		for( Inner s : this.subscriptions )
+			s.offer( data, time );
+	}
+
+	/**
+	 * Complete all subscribers, called when the robot disconnects. Later
+	 * subscribers receive the samples of the next connection.
+	 */
+	void complete()
+	{
+		Inner[] current;
+		synchronized( this )
+		{
+			current = this.subscriptions;
+			this.subscriptions = EMPTY;
+		}
+
+		for( Inner s : current )
+			s.complete();
+	}
+
+	/**
+	 * Add a subscriber
+	 */
+	private void subscribe( Flow.Subscriber<? super SensorData> subscriber, int capacity, long interval )
+	{
+		if( subscriber == null )
+			throw new NullPointerException( "The subscriber must not be null" );
+
+		Inner s = new Inner( subscriber, capacity, interval );
+		subscriber.onSubscribe( s );
+
+		synchronized( this )
+		{
+			if( s.cancelled )
+				return;
+
+			Inner[] current = this.subscriptions;
+			Inner[] updated = Arrays.copyOf( current, current.length + 1 );
+			updated[current.length] = s;
+			this.subscriptions = updated;
+		}
+	}
+
+	/**
+	 * Remove a subscription
+	 */
+	private synchronized void remove( Inner s )
+	{
+		Inner[] current = this.subscriptions;
+		for( int i = 0; i < current.length; i++ )
+		{
+			if( current[i] == s )
+			{
+				Inner[] updated = ( current.length == 1 ? EMPTY : new Inner[ current.length - 1 ] );
+				System.arraycopy( current, 0, updated, 0, i );
+				System.arraycopy( current, i + 1, updated, i, updated.length - i );
+				this.subscriptions = updated;
+				return;
+			}
+		}
+	}
+
+	/*
+	 * *****************************************************
+	 * INTERNAL CLASSES
+	 * ****************************************************
+	 */
+
+	/**
+	 * The subscription of a single subscriber with its buffer and demand.
+	 * Samples and terminal signals are delivered by a drain loop on the
+	 * executor, at most one drain runs at a time so the subscriber is never
+	 * called concurrently.
+	 */
+	private class Inner implements Flow.Subscription, Runnable
+	{
+		private final Flow.Subscriber<? super SensorData> subscriber;
+		private final int capacity;
+		private final long interval;
+		private final ArrayDeque<SensorData> buffer;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled = false, completed = false;
+		private volatile Throwable error;
+		// Set by the drain loop once a terminal signal has been sent
+		private boolean terminated = false;
+		private long lastTime;
+		private boolean first = true;
+
+		private Inner( Flow.Subscriber<? super SensorData> subscriber, int capacity, long interval )
+		{
+			this.subscriber = subscriber;
+			this.capacity = capacity;
+			this.interval = interval;
+			this.buffer = new ArrayDeque<SensorData>( Math.min( capacity, 64 ) );
+		}
+
+		/**
+		 * Buffer a sample and start delivering it
+		 */
+		private void offer( SensorData data, long time )
+		{
+			// Skip samples that are too close to the previous one
+			if( this.interval > 0 )
+			{
+				if( !this.first && time - this.lastTime < this.interval )
+					return;
+				this.first = false;
+				this.lastTime = time;
+			}
+
+			synchronized( this.buffer )
+			{
+				if( this.buffer.size() >= this.capacity )
+				{
+					this.buffer.pollFirst();
+
+					// Replacing the sample when conflating isn't a loss
+					if( this.capacity > 1 )
+						SensorDataPublisher.this.dropped.incrementAndGet();
+				}
+				this.buffer.addLast( data );
+			}
+
+			this.schedule();
+		}
+
+		@Override
+		public void request( long n )
+		{
+			if( this.cancelled )
+				return;
+
+			if( n <= 0 )
+			{
+				this.fail( new IllegalArgumentException( "The number of requested samples must be positive, got " + n ) );
+				return;
+			}
+
+			long current, updated;
+			do
+			{
+				current = this.demand.get();
+				updated = current + n;
+				if( updated < 0 )
+					updated = Long.MAX_VALUE;
+			}
+			while( !this.demand.compareAndSet( current, updated ) );
+
+			this.schedule();
+		}
+
+		@Override
+		public void cancel()
+		{
+			if( this.cancelled )
+				return;
+
+			this.cancelled = true;
+			SensorDataPublisher.this.remove( this );
+
+			synchronized( this.buffer )
+			{
+				this.buffer.clear();
+			}
+		}
+
+		/**
+		 * Stop the subscription with an error, the error is passed to the
+		 * subscriber by the drain loop
+		 */
+		private void fail( Throwable e )
+		{
+			if( this.error == null )
+				this.error = e;
+			SensorDataPublisher.this.remove( this );
+			this.schedule();
+		}
+
+		/**
+		 * Complete the subscription, the drain loop calls onComplete once the
+		 * requested samples have been passed on
+		 */
+		private void complete()
+		{
+			this.completed = true;
+			this.schedule();
+		}
+
+		/**
+		 * Stop sending signals and throw away the buffered samples
+		 */
+		private void terminate()
+		{
+			this.terminated = true;
+			SensorDataPublisher.this.remove( this );
+
+			synchronized( this.buffer )
+			{
+				this.buffer.clear();
+			}
+		}
+
+		/**
+		 * Start a drain unless one is already running
+		 */
+		private void schedule()
+		{
+			if( this.pending.getAndIncrement() == 0 )
+				executor.execute( this );
+		}
+
+		@Override
+		public void run()
+		{
+			int missed = 1;
+			while( true )
+			{
+				this.drain();
+
+				missed = this.pending.addAndGet( -missed );
+				if( missed == 0 )
+					return;
+			}
+		}
+
+		/**
+		 * Pass the requested samples to the subscriber, followed by a
+		 * terminal signal if the subscription has failed or completed
+		 */
+		private void drain()
+		{
+			while( !this.cancelled && !this.terminated )
+			{
+				Throwable e = this.error;
+				if( e != null )
+				{
+					this.terminate();
+					this.subscriber.onError( e );
+					return;
+				}
+
+				SensorData data = null;
+				if( this.demand.get() > 0 )
+				{
+					synchronized( this.buffer )
+					{
+						data = this.buffer.pollFirst();
+					}
+				}
+
+				if( data == null )
+				{
+					// Nothing more to pass on until more is requested
+					if( this.completed )
+					{
+						this.terminate();
+						this.subscriber.onComplete();
+					}
+					return;
+				}
+
+				if( this.demand.get() != Long.MAX_VALUE )
+					this.demand.decrementAndGet();
+
+				try
+				{
+					this.subscriber.onNext( data );
+				}
+				catch( RuntimeException ex )
+				{
+					Logging.error( "Sensor data subscriber " + this.subscriber.getClass().getCanonicalName() + " failed", ex );
+					this.fail( ex );
+				}
+			}
+		}
+	}
+}
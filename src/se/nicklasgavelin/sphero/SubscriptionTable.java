@@ -0,0 +1,104 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The handlers subscribed to the types of one kind of message (command
+ * types, information response codes or events). Each type has an array of
+ * handlers of its own that is copied on every change, so finding the
+ * handlers of a message is a single array index and needs no lock.
+ *
+ * @param <H> The type of the handlers
+ */
+class SubscriptionTable<H>
+{
+	private final H[] empty;
+	private final AtomicReferenceArray<H[]> handlers;
+
+	/**
+	 * Create a table without handlers
+	 *
+	 * @param types The number of types (the number of enum values)
+	 * @param empty An empty array of the handler type, copied to create the
+	 *            arrays of handlers
+	 */
+	SubscriptionTable( int types, H[] empty )
+	{
+		this.empty = empty;
+		this.handlers = new AtomicReferenceArray<H[]>( types );
+		for( int i = 0; i < types; i++ )
+			this.handlers.set( i, empty );
+	}
+
+	/**
+	 * Returns the handlers of a type, the array must not be modified
+	 *
+	 * @param type The type (enum ordinal)
+	 *
+	 * @return The handlers, an empty array if there are none
+	 */
+	H[] get( int type )
+	{
+		return this.handlers.get( type );
+	}
+
+	/**
+	 * Add a handler to a type
+	 *
+	 * @param type The type (enum ordinal)
+	 * @param handler The handler
+	 *
+	 * @return The subscription that removes the handler again
+	 */
+	RobotSubscription add( int type, H handler )
+	{
+		if( handler == null )
+			throw new NullPointerException( "The handler must not be null" );
+
+		while( true )
+		{
+			H[] current = this.handlers.get( type );
+			H[] updated = Arrays.copyOf( current, current.length + 1 );
+			updated[current.length] = handler;
+
+			if( this.handlers.compareAndSet( type, current, updated ) )
+				return new RobotSubscription( this, type, handler );
+		}
+	}
+
+	/**
+	 * Remove a handler from a type
+	 *
+	 * @param type The type (enum ordinal)
+	 * @param handler The handler
+	 *
+	 * @return True if the handler was removed, false if it wasn't subscribed
+	 */
+	boolean remove( int type, Object handler )
+	{
+		while( true )
+		{
+			H[] current = this.handlers.get( type );
+
+			int index = -1;
+			for( int i = 0; i < current.length && index == -1; i++ )
+				if( current[i] == handler )
+					index = i;
+
+			if( index == -1 )
+				return false;
+
+			H[] updated = ( current.length == 1 ? this.empty : Arrays.copyOf( this.empty, current.length - 1 ) );
+			System.arraycopy( current, 0, updated, 0, index );
+			System.arraycopy( current, index + 1, updated, index, updated.length - index );
+
+			if( this.handlers.compareAndSet( type, current, updated ) )
+				return true;
+		}
+	}
+}
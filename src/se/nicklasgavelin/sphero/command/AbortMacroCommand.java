@@ -8,6 +8,12 @@ package se.nicklasgavelin.sphero.command;
  */
 public class AbortMacroCommand extends CommandMessage
 {
+	/**
+	 * Abort macro command without data, the command is immutable and may be
+	 * sent any number of times
+	 */
+	public static final AbortMacroCommand INSTANCE = new AbortMacroCommand();
+
 	/**
 	 * Create a abort macro command
 	 */
@@ -5,6 +5,7 @@
 package se.nicklasgavelin.sphero.command;
 
 import java.util.Date;
+import se.nicklasgavelin.util.ByteArrayBuffer;
 
 /**
  *
@@ -13,25 +14,15 @@ import java.util.Date;
  */
 public class CommandMessage
 {
-    /* Static values */
-    private static int nSeq = 0;
-
-    /* Static indicies */
+    /* Static lengths, the header is start 1, start 2, device id, command,
+     * sequence number and data length */
     private static final byte COMMAND_PREFIX = -1;
     private static final int CHECKSUM_LENGTH = 1,
-            INDEX_START_1 = 0,
-            INDEX_START_2 = 1,
-            INDEX_DEVICE_ID = 2,
-            INDEX_COMMAND = 3,
-            INDEX_COMMAND_SEQUENCE_NO = 4,
-            INDEX_COMMAND_DATA_LENGTH = 5, COMMAND_HEADER_LENGTH = 6;
+            COMMAND_HEADER_LENGTH = 6;
 
     /* Internal storage */
-    private Date timestamp;
-    private boolean seqSet = false;
-    private int seqNum;
     private COMMAND_MESSAGE_TYPE command;
-    private byte[] packet;
+    private volatile byte[] packet;
 
 
     public CommandMessage( COMMAND_MESSAGE_TYPE _command )
@@ -41,20 +32,19 @@ public class CommandMessage
 
 
     /**
-     * Returns the internal sequence number
-     * Will also set the sequence number if it's not set
+     * Returns the sequence number of the packet returned by getPacket, which
+     * is always 0. The sequence number is given by the connection every time
+     * the command is sent and isn't stored in the command, as a command may
+     * be sent several times.
      *
-     * @return The internal sequence number
+     * @return The sequence number (0)
+     * @deprecated The sequence number is given when the command is written
+     *             with writePacket
      */
+    @Deprecated
     public int getSequenceNumber()
     {
-        if ( !this.seqSet )
-        {
-            this.seqNum = CommandMessage.nSeq++;
-            this.seqSet = true;
-        }
-
-        return this.seqNum;
+        return 0;
     }
 
 
@@ -70,8 +60,9 @@ public class CommandMessage
 
 
     /**
-     * Returns the packet data.
-     * WILL SET THE SEQUENCE NUMBER DURING THE FIRST CALL!
+     * Returns the packet data, created with sequence number 0. The packet is
+     * created on the first call and cached, the command must not change
+     * after that.
      *
      * @return The packet data
      */
@@ -106,6 +97,34 @@ public class CommandMessage
     }
 
 
+    /**
+     * Returns the length of the packet data, commands that override
+     * writePacketData should override this method as well
+     *
+     * @return The length of the packet data
+     */
+    protected int getPacketDataLength()
+    {
+        byte[] data = getPacketData();
+        return data != null ? data.length : 0;
+    }
+
+
+    /**
+     * Write the packet data to the end of a buffer. Commands that are sent
+     * often override this method (and getPacketDataLength) to write their
+     * data without creating an intermediate array.
+     *
+     * @param buffer The buffer to write to
+     */
+    protected void writePacketData( ByteArrayBuffer buffer )
+    {
+        byte[] data = getPacketData();
+        if ( data != null )
+            buffer.append( data );
+    }
+
+
     /**
      * Returns the complete packet length including header, checksum and data
      * length
@@ -114,69 +133,88 @@ public class CommandMessage
      */
     public int getPacketLength()
     {
-        return (this.getPacket().length);
+        if ( this.packet != null )
+            return this.packet.length;
+        return COMMAND_HEADER_LENGTH + getPacketDataLength() + CHECKSUM_LENGTH;
     }
 
 
     /**
-     * Create the packet content
+     * Write the packet to the end of a buffer with the given sequence number.
+     * The checksum is calculated while the packet is written, no intermediate
+     * packet array is created. The command itself isn't changed, so a command
+     * may be written several times, to several buffers and by several
+     * threads at once.
      *
-     * @return The packet content
+     * @param buffer         The buffer to write to
+     * @param sequenceNumber The sequence number of the packet
+     *
+     * @return The number of written bytes, 0 if the packet didn't fit in the
+     *         buffer (nothing is written in that case)
      */
-    protected byte[] packetize()
+    public int writePacket( ByteArrayBuffer buffer, int sequenceNumber )
     {
-        byte[] data = getPacketData();
-
-        int data_length = data != null ? data.length : 0;
+        int data_length = getPacketDataLength();
         int packet_length = data_length + COMMAND_HEADER_LENGTH + CHECKSUM_LENGTH;
 
-        byte[] buffer = new byte[ packet_length ];
-        byte checksum = 0;
+        // The buffer silently drops what doesn't fit
+        if ( buffer.capacity() - buffer.length() < packet_length )
+            return 0;
 
-        buffer[ INDEX_START_1] = COMMAND_PREFIX;
-        buffer[ INDEX_START_2] = COMMAND_PREFIX;
+        sequenceNumber &= 0xFF;
 
         byte device_id = this.command.getDeviceId();
-        checksum = ( byte ) (checksum + device_id);
-        buffer[ INDEX_DEVICE_ID] = device_id;
-
         byte cmd = this.command.getCommandId();
-        checksum = ( byte ) (checksum + cmd);
-        buffer[ INDEX_COMMAND] = cmd;
+        byte response_length = getCommandLength( data_length );
 
-        int sequenceNumber = this.getSequenceNumber();
-        checksum = ( byte ) (checksum + sequenceNumber);
-        buffer[ INDEX_COMMAND_SEQUENCE_NO] = ( byte ) (sequenceNumber);
+        buffer.append( COMMAND_PREFIX );
+        buffer.append( COMMAND_PREFIX );
+        buffer.append( device_id );
+        buffer.append( cmd );
+        buffer.append( sequenceNumber );
+        buffer.append( response_length );
 
-        byte response_length = getCommandLength( data_length );
-        checksum = ( byte ) (checksum + response_length);
-        buffer[ INDEX_COMMAND_DATA_LENGTH] = response_length;
+        int checksum = device_id + cmd + sequenceNumber + response_length;
 
-        // Check if we need to calculate the checksum for the data we have added
-        if ( data != null )
-        {
-            // Calculate the checksum for the data (also add the data to the array)
-            for ( int i = 0; i < data_length; i++ )
-            {
-                buffer[(i + COMMAND_HEADER_LENGTH)] = data[i];
-                checksum = ( byte ) (checksum + data[i]);
-            }
-        }
+        // Sum the data where it was written
+        int start = buffer.length();
+        writePacketData( buffer );
+        byte[] b = buffer.buffer();
+        for ( int i = start; i < buffer.length(); i++ )
+            checksum += b[i];
+
+        buffer.append( ( byte ) (checksum ^ 0xFFFFFFFF) );
+
+        return packet_length;
+    }
 
-        buffer[(packet_length - CHECKSUM_LENGTH)] = ( byte ) (checksum ^ 0xFFFFFFFF);
 
-        return buffer;
+    /**
+     * Create the packet content
+     *
+     * @return The packet content
+     */
+    protected byte[] packetize()
+    {
+        ByteArrayBuffer buffer = new ByteArrayBuffer( COMMAND_HEADER_LENGTH + getPacketDataLength() + CHECKSUM_LENGTH );
+        writePacket( buffer, 0 );
+
+        return buffer.buffer();
     }
 
 
     /**
-     * Returns the timestamp when the message was made into a packet
+     * Returns the timestamp when the message was made into a packet, which
+     * has never been set. A command may be sent several times, the time it
+     * was sent is kept by the connection for every send.
      *
-     * @return The timestamp when the message was packetized
+     * @return null
+     * @deprecated The time a command is sent isn't stored in the command
      */
+    @Deprecated
     public Date getTimestamp()
     {
-        return this.timestamp;
+        return null;
     }
 
     /* *****************************
@@ -1,5 +1,6 @@
 package se.nicklasgavelin.sphero.command;
 
+import se.nicklasgavelin.util.ByteArrayBuffer;
 import se.nicklasgavelin.util.Value;
 
 /**
@@ -45,11 +46,14 @@ public class FrontLEDCommand extends CommandMessage
 	}
 
 	@Override
-	public byte[] getPacketData()
+	protected int getPacketDataLength()
 	{
-		byte[] data = new byte[ 1 ];
-		data[0] = (byte) (int) ( 255.0D * this.brightness );
+		return 1;
+	}
 
-		return data;
+	@Override
+	protected void writePacketData( ByteArrayBuffer buffer )
+	{
+		buffer.append( (byte) (int) ( 255.0D * this.brightness ) );
 	}
 }
@@ -1,17 +1,21 @@
 package se.nicklasgavelin.sphero.command;
 
 import se.nicklasgavelin.sphero.Robot;
+import se.nicklasgavelin.util.ByteArrayBuffer;
 
 /**
  * Ping command to keep the connection to the Sphero alive. The original Ping
  * command doesn't work as expected as a CODE_ERROR_UNSUPPORTED is returned.
  * Modified the FrontLEDCommand to work as a ping command to.
  * 
+ * The brightness of the robot is read every time the command is written, so
+ * a single ping command can be sent repeatedly for a robot.
+ * 
  * @author Nicklas Gavelin, nicklas.gavelin@gmail.com, Luleå University of Technology
  */
 public class PingCommand extends CommandMessage
 {
-	private float brightness;
+	private final Robot robot;
 
 	/**
 	 * Create a ping command for a given robot
@@ -21,15 +25,18 @@ public class PingCommand extends CommandMessage
 	public PingCommand( Robot r )
 	{
 		super( COMMAND_MESSAGE_TYPE.CUSTOM_PING );
-		this.brightness = r.getLed().getFrontLEDBrightness();
+		this.robot = r;
 	}
 
 	@Override
-	public byte[] getPacketData()
+	protected int getPacketDataLength()
 	{
-		byte[] data = new byte[ 1 ];
-		data[0] = (byte) (int) ( 255.0D * this.brightness );
+		return 1;
+	}
 
-		return data;
+	@Override
+	protected void writePacketData( ByteArrayBuffer buffer )
+	{
+		buffer.append( (byte) (int) ( 255.0D * this.robot.getLed().getFrontLEDBrightness() ) );
 	}
 }
@@ -1,6 +1,7 @@
 package se.nicklasgavelin.sphero.command;
 
 import java.awt.Color;
+import se.nicklasgavelin.util.ByteArrayBuffer;
 import se.nicklasgavelin.util.Value;
 
 /**
@@ -47,7 +48,7 @@ public class RGBLEDCommand extends CommandMessage
 	 */
 	public int getRed()
 	{
-		return this.red;
+		return this.red & 0xFF;
 	}
 
 	/**
@@ -57,7 +58,7 @@ public class RGBLEDCommand extends CommandMessage
 	 */
 	public int getGreen()
 	{
-		return this.green;
+		return this.green & 0xFF;
 	}
 
 	/**
@@ -67,17 +68,20 @@ public class RGBLEDCommand extends CommandMessage
 	 */
 	public int getBlue()
 	{
-		return this.blue;
+		return this.blue & 0xFF;
 	}
 
 	@Override
-	protected byte[] getPacketData()
+	protected int getPacketDataLength()
 	{
-		byte[] data = new byte[ 3 ];
-		data[0] = this.red;
-		data[1] = this.green;
-		data[2] = this.blue;
+		return 3;
+	}
 
-		return data;
+	@Override
+	protected void writePacketData( ByteArrayBuffer buffer )
+	{
+		buffer.append( this.red );
+		buffer.append( this.green );
+		buffer.append( this.blue );
 	}
 }
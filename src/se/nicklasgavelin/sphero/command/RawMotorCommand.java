@@ -1,5 +1,7 @@
 package se.nicklasgavelin.sphero.command;
 
+import se.nicklasgavelin.util.ByteArrayBuffer;
+
 /**
  * Command to steer the direction and speed of the internal motors of the
  * Sphero.
@@ -123,15 +125,17 @@ public class RawMotorCommand extends CommandMessage
 	}
 
 	@Override
-	protected byte[] getPacketData()
+	protected int getPacketDataLength()
 	{
-		byte[] data = new byte[ 4 ];
-
-		data[0] = (byte) this.leftMode.getValue();
-		data[1] = (byte) this.leftSpeed;
-		data[2] = (byte) this.rightMode.getValue();
-		data[3] = (byte) this.rightSpeed;
+		return 4;
+	}
 
-		return data;
+	@Override
+	protected void writePacketData( ByteArrayBuffer buffer )
+	{
+		buffer.append( (byte) this.leftMode.getValue() );
+		buffer.append( (byte) this.leftSpeed );
+		buffer.append( (byte) this.rightMode.getValue() );
+		buffer.append( (byte) this.rightSpeed );
 	}
 }
@@ -1,5 +1,6 @@
 package se.nicklasgavelin.sphero.command;
 
+import se.nicklasgavelin.util.ByteArrayBuffer;
 import se.nicklasgavelin.util.Value;
 
 /**
@@ -9,6 +10,12 @@ import se.nicklasgavelin.util.Value;
  */
 public class RollCommand extends CommandMessage
 {
+	/**
+	 * Command that stops the robot with heading 0, the command is immutable
+	 * and may be sent any number of times
+	 */
+	public static final RollCommand STOP = new RollCommand( 0, 0, true );
+
 	private final float heading, velocity;
 	private final boolean stop;
 
@@ -59,15 +66,17 @@ public class RollCommand extends CommandMessage
 	}
 
 	@Override
-	protected byte[] getPacketData()
+	protected int getPacketDataLength()
 	{
-		byte[] data = new byte[ 4 ];
-
-		data[0] = (byte) (int) ( this.velocity * 255.0D );
-		data[1] = (byte) ( (int) this.heading >> 8 );
-		data[2] = (byte) (int) this.heading;
-		data[3] = (byte) ( this.stop ? 0 : 1 );
+		return 4;
+	}
 
-		return data;
+	@Override
+	protected void writePacketData( ByteArrayBuffer buffer )
+	{
+		buffer.append( (byte) (int) ( this.velocity * 255.0D ) );
+		buffer.append( (byte) ( (int) this.heading >> 8 ) );
+		buffer.append( (byte) (int) this.heading );
+		buffer.append( (byte) ( this.stop ? 0 : 1 ) );
 	}
 }
@@ -0,0 +1,36 @@
+package se.nicklasgavelin.sphero.exception;
+
+import se.nicklasgavelin.sphero.response.ResponseMessage.RESPONSE_CODE;
+
+/**
+ * Thrown (or used to complete a future exceptionally) when no usable
+ * response was received for a command
+ */
+public class RobotResponseException extends Exception
+{
+	private static final long serialVersionUID = 4719255103849106712L;
+
+	private final RESPONSE_CODE code;
+
+	public RobotResponseException( RESPONSE_CODE code )
+	{
+		super( code.toString() );
+		this.code = code;
+	}
+
+	public RobotResponseException( RESPONSE_CODE code, String s )
+	{
+		super( s );
+		this.code = code;
+	}
+
+	/**
+	 * Returns the response code that describes the failure
+	 *
+	 * @return The response code
+	 */
+	public RESPONSE_CODE getResponseCode()
+	{
+		return this.code;
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import se.nicklasgavelin.log.Logging;
+
+/**
+ * Records the raw byte stream of a robot connection to memory mapped,
+ * append-only segment files. Every chunk of bytes that is read from or
+ * written to the connection is stored as a record with a System.nanoTime
+ * timestamp and a direction flag.
+ *
+ * A session is stored in a directory as the files name-0000.seg,
+ * name-0001.seg and so on. A new segment is started when the current one
+ * is full. Every segment starts with a header (magic, version, segment
+ * index, wall clock time of creation and the address of the robot)
+ * followed by the records:
+ *
+ * [byte direction][long nanos][int length][length bytes]
+ *
+ * A direction of END (or the zero filled remainder of the mapped file)
+ * marks the end of the segment.
+ *
+ * Thread safe, the listener and the writer of a robot record concurrently.
+ * Recording errors are logged and stop the recording, they are never
+ * propagated to the connection that is being recorded.
+ */
+public class StreamRecorder
+{
+	/**
+	 * Segment file format
+	 */
+	public static final int MAGIC = 0x53504852, VERSION = 1;
+
+	/**
+	 * Record directions
+	 */
+	public static final byte END = 0, RECEIVED = 1, SENT = 2;
+
+	/**
+	 * Length of the header of each record (direction, timestamp and length)
+	 */
+	public static final int RECORD_HEADER_LENGTH = 1 + 8 + 4;
+
+	/**
+	 * Default size of each segment file
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * File suffix for segment files
+	 */
+	public static final String SEGMENT_SUFFIX = ".seg";
+
+	private final File directory;
+	private final String name, address;
+	private final int segmentSize;
+
+	private int segment = -1;
+	private RandomAccessFile file;
+	private MappedByteBuffer map;
+	private boolean closed = false;
+	private long records = 0, bytes = 0;
+
+	/**
+	 * Create a recorder with the default segment size
+	 *
+	 * @param directory The directory to store the segments in
+	 * @param name The name of the session
+	 * @param address The address of the recorded robot
+	 *
+	 * @throws IOException If the first segment could not be created
+	 */
+	public StreamRecorder( File directory, String name, String address ) throws IOException
+	{
+		this( directory, name, address, DEFAULT_SEGMENT_SIZE );
+	}
+
+	/**
+	 * Create a recorder
+	 *
+	 * @param directory The directory to store the segments in
+	 * @param name The name of the session
+	 * @param address The address of the recorded robot
+	 * @param segmentSize The size of each segment file
+	 *
+	 * @throws IOException If the first segment could not be created
+	 */
+	public StreamRecorder( File directory, String name, String address, int segmentSize ) throws IOException
+	{
+		if( segmentSize < 64 * 1024 )
+			throw new IllegalArgumentException( "Segment size must be at least 64 KiB" );
+
+		this.directory = directory;
+		this.name = name;
+		this.address = address;
+		this.segmentSize = segmentSize;
+
+		if( !directory.isDirectory() && !directory.mkdirs() )
+			throw new IOException( "Unable to create directory " + directory );
+
+		this.nextSegment();
+	}
+
+	/**
+	 * Returns the file of a given segment in a session
+	 *
+	 * @param directory The session directory
+	 * @param name The session name
+	 * @param segment The segment index
+	 *
+	 * @return The segment file
+	 */
+	public static File getSegmentFile( File directory, String name, int segment )
+	{
+		return new File( directory, name + "-" + String.format( "%04d", segment ) + SEGMENT_SUFFIX );
+	}
+
+	/**
+	 * Record bytes received from the robot
+	 *
+	 * @param b The buffer
+	 * @param offset The offset of the bytes
+	 * @param length The number of bytes
+	 */
+	public void received( byte[] b, int offset, int length )
+	{
+		this.record( RECEIVED, System.nanoTime(), b, offset, length );
+	}
+
+	/**
+	 * Record bytes sent to the robot
+	 *
+	 * @param b The buffer
+	 * @param offset The offset of the bytes
+	 * @param length The number of bytes
+	 */
+	public void sent( byte[] b, int offset, int length )
+	{
+		this.record( SENT, System.nanoTime(), b, offset, length );
+	}
+
+	/**
+	 * Append a record
+	 *
+	 * @param direction RECEIVED or SENT
+	 * @param nanos The timestamp (System.nanoTime)
+	 * @param b The buffer
+	 * @param offset The offset of the bytes
+	 * @param length The number of bytes
+	 */
+	public synchronized void record( byte direction, long nanos, byte[] b, int offset, int length )
+	{
+		if( this.closed || length <= 0 )
+			return;
+
+		try
+		{
+			// Records never span two segments
+			if( this.map.remaining() < RECORD_HEADER_LENGTH + length )
+			{
+				if( RECORD_HEADER_LENGTH + length > this.segmentSize / 2 )
+					throw new IOException( "Record of " + length + " bytes is too large" );
+				this.nextSegment();
+			}
+
+			this.map.put( direction ).putLong( nanos ).putInt( length ).put( b, offset, length );
+			this.records++;
+			this.bytes += length;
+		}
+		catch( IOException e )
+		{
+			Logging.error( "Stopped recording of " + this.name, e );
+			this.close();
+		}
+	}
+
+	/**
+	 * Returns the number of recorded records
+	 *
+	 * @return The number of records
+	 */
+	public synchronized long getRecordCount()
+	{
+		return this.records;
+	}
+
+	/**
+	 * Returns the number of recorded bytes (excluding headers)
+	 *
+	 * @return The number of bytes
+	 */
+	public synchronized long getByteCount()
+	{
+		return this.bytes;
+	}
+
+	/**
+	 * Flush the recorded data to disk
+	 */
+	public synchronized void flush()
+	{
+		if( !this.closed )
+			this.map.force();
+	}
+
+	/**
+	 * Finish the recording, nothing more will be recorded
+	 */
+	public synchronized void close()
+	{
+		if( this.closed )
+			return;
+
+		this.closed = true;
+		this.closeSegment();
+	}
+
+	/**
+	 * Close the current segment and map the next one
+	 *
+	 * @throws IOException If the segment could not be created
+	 */
+	private void nextSegment() throws IOException
+	{
+		this.closeSegment();
+		this.segment++;
+
+		this.file = new RandomAccessFile( getSegmentFile( this.directory, this.name, this.segment ), "rw" );
+		this.file.setLength( 0 );
+		this.map = this.file.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, this.segmentSize );
+
+		byte[] a = this.address.getBytes( "UTF-8" );
+		this.map.putInt( MAGIC ).putShort( (short) VERSION ).putInt( this.segment ).putLong( System.currentTimeMillis() );
+		this.map.putShort( (short) a.length ).put( a );
+	}
+
+	/**
+	 * Mark the end of the current segment and close the file
+	 */
+	private void closeSegment()
+	{
+		if( this.map == null )
+			return;
+
+		if( this.map.hasRemaining() )
+			this.map.put( END );
+		this.map.force();
+
+		try
+		{
+			this.file.close();
+		}
+		catch( IOException e )
+		{
+		}
+
+		this.map = null;
+		this.file = null;
+	}
+}
@@ -0,0 +1,436 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.record;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import javax.microedition.io.StreamConnection;
+import se.nicklasgavelin.bluetooth.StreamBluetoothDevice;
+import se.nicklasgavelin.sphero.response.parser.ResponseFrameDecoder;
+
+/**
+ * Reads a session recorded with StreamRecorder. The records can be iterated
+ * with a Cursor, or the received bytes can be played back through a stream
+ * connection.
+ *
+ * Use createDevice to get a device that a Robot can connect to. Only the
+ * recorded information responses (sensor data, collisions and other
+ * asynchronous packets) are played back to the robot, they are decoded the
+ * same way as data from a real robot. The regular responses are left out as
+ * they answer commands that were sent in the recorded session, the robot
+ * would drop them as unknown or match them to its own commands by their
+ * sequence numbers.
+ *
+ * Playback is either done in real time, where the received bytes are
+ * delivered with the same spacing as when they were recorded, or as fast
+ * as possible. Bytes written to a playback connection are discarded.
+ */
+public class StreamReplayer
+{
+	private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+	private final List<Integer> dataOffsets = new ArrayList<Integer>();
+	private String address;
+
+	/**
+	 * Open a recorded session
+	 *
+	 * @param directory The directory the session is stored in
+	 * @param name The name of the session
+	 *
+	 * @throws IOException If no segments could be found or a segment is invalid
+	 */
+	public StreamReplayer( File directory, String name ) throws IOException
+	{
+		for( int i = 0;; i++ )
+		{
+			File f = StreamRecorder.getSegmentFile( directory, name, i );
+			if( !f.isFile() )
+				break;
+
+			RandomAccessFile raf = new RandomAccessFile( f, "r" );
+			try
+			{
+				ByteBuffer map = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, raf.length() );
+				if( map.getInt() != StreamRecorder.MAGIC )
+					throw new IOException( f + " is not a recorded segment" );
+				if( map.getShort() != StreamRecorder.VERSION )
+					throw new IOException( f + " has an unsupported version" );
+
+				// Segment index and creation time
+				map.getInt();
+				map.getLong();
+
+				byte[] a = new byte[ map.getShort() ];
+				map.get( a );
+				this.address = new String( a, "UTF-8" );
+
+				this.dataOffsets.add( map.position() );
+				this.segments.add( map );
+			}
+			finally
+			{
+				raf.close();
+			}
+		}
+
+		if( this.segments.isEmpty() )
+			throw new IOException( "No recorded segments found for " + name + " in " + directory );
+	}
+
+	/**
+	 * Returns the address of the recorded robot
+	 *
+	 * @return The robot address
+	 */
+	public String getAddress()
+	{
+		return this.address;
+	}
+
+	/**
+	 * Returns a new cursor positioned before the first record
+	 *
+	 * @return A cursor
+	 */
+	public Cursor cursor()
+	{
+		return new Cursor();
+	}
+
+	/**
+	 * Open a connection that plays back all received bytes of the session,
+	 * including the regular responses to the recorded commands
+	 *
+	 * @param realtime True to keep the original timing, false to play back as
+	 *            fast as possible
+	 *
+	 * @return The stream connection
+	 */
+	public StreamConnection openConnection( boolean realtime )
+	{
+		return new ReplayConnection( realtime, false );
+	}
+
+	/**
+	 * Create a device with the recorded address that plays back the
+	 * information responses of the session each time it is connected to
+	 *
+	 * @param realtime True to keep the original timing, false to play back as
+	 *            fast as possible
+	 *
+	 * @return The device
+	 */
+	public StreamBluetoothDevice createDevice( final boolean realtime )
+	{
+		return new StreamBluetoothDevice( this.address, "Replay of " + this.address, new StreamBluetoothDevice.ConnectionFactory() {
+			@Override
+			public StreamConnection open() throws IOException
+			{
+				return new ReplayConnection( realtime, true );
+			}
+		} );
+	}
+
+	/**
+	 * Iterates over the records of a session
+	 */
+	public class Cursor
+	{
+		private int segment = 0;
+		private ByteBuffer current;
+		private byte direction;
+		private long timestamp;
+		private int length, dataPosition;
+
+		private Cursor()
+		{
+			this.current = segments.get( 0 ).duplicate();
+			this.current.position( dataOffsets.get( 0 ) );
+		}
+
+		/**
+		 * Move to the next record
+		 *
+		 * @return True if there is a record, false at the end of the session
+		 */
+		public boolean next()
+		{
+			while( true )
+			{
+				if( this.current.remaining() >= StreamRecorder.RECORD_HEADER_LENGTH )
+				{
+					byte d = this.current.get();
+					if( d != StreamRecorder.END )
+					{
+						this.direction = d;
+						this.timestamp = this.current.getLong();
+						this.length = this.current.getInt();
+						this.dataPosition = this.current.position();
+						this.current.position( this.dataPosition + this.length );
+						return true;
+					}
+				}
+
+				// End of segment
+				if( this.segment + 1 >= segments.size() )
+					return false;
+
+				this.segment++;
+				this.current = segments.get( this.segment ).duplicate();
+				this.current.position( dataOffsets.get( this.segment ) );
+			}
+		}
+
+		/**
+		 * Returns the direction of the record, StreamRecorder.RECEIVED or
+		 * StreamRecorder.SENT
+		 *
+		 * @return The direction
+		 */
+		public byte getDirection()
+		{
+			return this.direction;
+		}
+
+		/**
+		 * Returns the timestamp of the record (System.nanoTime when recorded)
+		 *
+		 * @return The timestamp
+		 */
+		public long getTimestamp()
+		{
+			return this.timestamp;
+		}
+
+		/**
+		 * Returns the number of bytes in the record
+		 *
+		 * @return The record length
+		 */
+		public int getLength()
+		{
+			return this.length;
+		}
+
+		/**
+		 * Copy bytes of the record
+		 *
+		 * @param from The offset in the record
+		 * @param dst The destination array
+		 * @param offset The offset in the destination array
+		 * @param length The number of bytes to copy
+		 */
+		public void read( int from, byte[] dst, int offset, int length )
+		{
+			if( from < 0 || length < 0 || from + length > this.length )
+				throw new IndexOutOfBoundsException();
+
+			ByteBuffer b = this.current.duplicate();
+			b.position( this.dataPosition + from );
+			b.get( dst, offset, length );
+		}
+	}
+
+	/**
+	 * Plays back the received records of a cursor as a stream
+	 */
+	private class ReplayInputStream extends InputStream
+	{
+		private final Cursor cursor = new Cursor();
+		private final boolean realtime;
+		private long firstRecorded, started;
+		private boolean first = true, closed = false;
+		private int position, remaining;
+
+		// Frames the received records to keep only the information
+		// responses, null to play back every received byte
+		private final ResponseFrameDecoder decoder;
+		private final ByteArrayOutputStream information;
+		private byte[] frames;
+
+		private ReplayInputStream( boolean realtime, boolean informationOnly )
+		{
+			this.realtime = realtime;
+			this.decoder = ( informationOnly ? new ResponseFrameDecoder( 0 ) : null );
+			this.information = ( informationOnly ? new ByteArrayOutputStream() : null );
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			byte[] b = new byte[ 1 ];
+			return( this.read( b, 0, 1 ) == -1 ? -1 : b[0] & 0xFF );
+		}
+
+		@Override
+		public int read( byte[] b, int offset, int length ) throws IOException
+		{
+			if( length == 0 )
+				return 0;
+
+			while( this.remaining == 0 )
+			{
+				if( this.closed || !this.cursor.next() )
+					return -1;
+
+				if( this.cursor.getDirection() != StreamRecorder.RECEIVED )
+					continue;
+
+				this.waitFor( this.cursor.getTimestamp() );
+				this.position = 0;
+				this.remaining = ( this.decoder == null ? this.cursor.getLength() : this.decodeInformation() );
+			}
+
+			int n = Math.min( length, this.remaining );
+			if( this.decoder == null )
+				this.cursor.read( this.position, b, offset, n );
+			else
+				System.arraycopy( this.frames, this.position, b, offset, n );
+			this.position += n;
+			this.remaining -= n;
+
+			return n;
+		}
+
+		@Override
+		public int available()
+		{
+			return this.remaining;
+		}
+
+		@Override
+		public void close()
+		{
+			this.closed = true;
+		}
+
+		/**
+		 * Pass the current record through the frame decoder and keep the
+		 * information responses that are completed by it. A frame that is
+		 * split over several records is played back with the record that
+		 * completes it.
+		 *
+		 * @return The number of bytes of information responses
+		 */
+		private int decodeInformation()
+		{
+			this.information.reset();
+
+			int length = this.cursor.getLength();
+			for( int from = 0; from < length; )
+			{
+				int n = Math.min( length - from, this.decoder.writableBytes() );
+				this.cursor.read( from, this.decoder.buffer(), this.decoder.writeIndex(), n );
+				this.decoder.commitWrite( n );
+				from += n;
+
+				while( this.decoder.nextFrame() )
+				{
+					byte[] buffer = this.decoder.buffer();
+					if( buffer[this.decoder.frameOffset() + 1] == ResponseFrameDecoder.SOP2_INFORMATION )
+						this.information.write( buffer, this.decoder.frameOffset(), this.decoder.frameLength() );
+				}
+			}
+
+			this.frames = this.information.toByteArray();
+			return this.frames.length;
+		}
+
+		/**
+		 * Wait until the given record is due when playing back in real time
+		 */
+		private void waitFor( long recorded ) throws IOException
+		{
+			if( this.first )
+			{
+				this.first = false;
+				this.firstRecorded = recorded;
+				this.started = System.nanoTime();
+				return;
+			}
+
+			if( !this.realtime )
+				return;
+
+			long delay = ( recorded - this.firstRecorded ) - ( System.nanoTime() - this.started );
+			if( delay > 0 )
+			{
+				try
+				{
+					Thread.sleep( delay / 1000000, (int) ( delay % 1000000 ) );
+				}
+				catch( InterruptedException e )
+				{
+					throw new IOException( "Interrupted while replaying" );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connection that plays back the received bytes, or only the information
+	 * responses among them, and discards anything that is written to it
+	 */
+	private class ReplayConnection implements StreamConnection
+	{
+		private final ReplayInputStream in;
+		private final OutputStream out = new OutputStream() {
+			@Override
+			public void write( int b )
+			{
+			}
+
+			@Override
+			public void write( byte[] b, int offset, int length )
+			{
+			}
+		};
+
+		private ReplayConnection( boolean realtime, boolean informationOnly )
+		{
+			this.in = new ReplayInputStream( realtime, informationOnly );
+		}
+
+		@Override
+		public InputStream openInputStream()
+		{
+			return this.in;
+		}
+
+		@Override
+		public DataInputStream openDataInputStream()
+		{
+			return new DataInputStream( this.in );
+		}
+
+		@Override
+		public OutputStream openOutputStream()
+		{
+			return this.out;
+		}
+
+		@Override
+		public DataOutputStream openDataOutputStream()
+		{
+			return new DataOutputStream( this.out );
+		}
+
+		@Override
+		public void close()
+		{
+			this.in.close();
+		}
+	}
+}
@@ -22,6 +22,15 @@ public class InformationResponseMessage extends ResponseMessage
 
 		private byte code;
 
+		/* Lookup table from the received code to the enum value */
+		private static final INFORMATION_RESPONSE_CODE[] byCode = new INFORMATION_RESPONSE_CODE[ 256 ];
+
+		static
+		{
+			for( INFORMATION_RESPONSE_CODE r : INFORMATION_RESPONSE_CODE.values() )
+				byCode[r.getCode() & 0xFF] = r;
+		}
+
 		private INFORMATION_RESPONSE_CODE( int code )
 		{
 			this.code = (byte) code;
@@ -34,11 +43,7 @@ public class InformationResponseMessage extends ResponseMessage
 
 		public static INFORMATION_RESPONSE_CODE valueOf( byte code )
 		{
-			INFORMATION_RESPONSE_CODE[] res = INFORMATION_RESPONSE_CODE.values();
-			for( INFORMATION_RESPONSE_CODE r : res )
-				if( r.getCode() == code )
-					return r;
-			return null;
+			return byCode[code & 0xFF];
 		}
 
 		public static INFORMATION_RESPONSE_CODE valueOf( int code )
@@ -58,7 +63,7 @@ public class InformationResponseMessage extends ResponseMessage
 	public InformationResponseMessage( ResponseHeader rh )
 	{
 		super( rh );
-		this.responseType = INFORMATION_RESPONSE_CODE.valueOf( rh.getRawPacket()[InformationResponseMessage.INFORMATION_RESPONSE_TYPE_INDEX] );
+		this.responseType = INFORMATION_RESPONSE_CODE.valueOf( rh.getByte( InformationResponseMessage.INFORMATION_RESPONSE_TYPE_INDEX ) );
 	}
 
 	/**
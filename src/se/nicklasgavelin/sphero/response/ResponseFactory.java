@@ -0,0 +1,24 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.response;
+
+/**
+ * Creates a response message from a received response header.
+ *
+ * Factories are registered in ResponseMessage for a command type or an
+ * information response code and are looked up for every received packet,
+ * see ResponseMessage.register.
+ */
+public interface ResponseFactory
+{
+	/**
+	 * Create the response message for the given response header
+	 *
+	 * @param rh The received response header
+	 *
+	 * @return The created response message
+	 */
+	public ResponseMessage create( ResponseMessage.ResponseHeader rh );
+}
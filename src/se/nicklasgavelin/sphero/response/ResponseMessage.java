@@ -9,8 +9,8 @@ import java.util.EnumMap;
 import java.util.Map;
 import se.nicklasgavelin.log.Logging;
 import se.nicklasgavelin.sphero.command.CommandMessage;
-import se.nicklasgavelin.util.Array;
-import se.nicklasgavelin.util.ByteArrayBuffer;
+import se.nicklasgavelin.sphero.response.information.*;
+import se.nicklasgavelin.sphero.response.regular.*;
 
 /**
  * 
@@ -27,18 +27,30 @@ public class ResponseMessage
 																	// 1 (Response code) +
 																	// 1 (Packet length)
 
+	/*
+	 * Information responses have no sequence number and no response code,
+	 * the payload length is 16 bits with the high byte at
+	 * INFORMATION_PAYLOAD_LENGTH_MSB_INDEX and the low byte at
+	 * INFORMATION_PAYLOAD_LENGTH_INDEX
+	 */
 	public static final int INFORMATION_RESPONSE_TYPE_INDEX = 2,
-			INFORMATION_RESPONSE_CODE_INDEX = 3,
+			INFORMATION_PAYLOAD_LENGTH_MSB_INDEX = 3,
 			INFORMATION_PAYLOAD_LENGTH_INDEX = PAYLOAD_LENGTH_INDEX,
 			INFORMATION_RESPONSE_HEADER_LENGTH = RESPONSE_HEADER_LENGTH; // 2 (header
 																			// type) + 1
 																			// (Response
-																			// type) + 1
-																			// (Response
-																			// code) + 1
+																			// type) + 2
 																			// (Packet
 																			// length);
 
+	/**
+	 * @deprecated Information responses have no response code, the byte at
+	 *             this index is the high byte of the payload length
+	 *             (INFORMATION_PAYLOAD_LENGTH_MSB_INDEX)
+	 */
+	@Deprecated
+	public static final int INFORMATION_RESPONSE_CODE_INDEX = INFORMATION_PAYLOAD_LENGTH_MSB_INDEX;
+
 	/* Internal storage */
 	private ResponseHeader drh;
 	private boolean corrupt = false;
@@ -59,15 +71,7 @@ public class ResponseMessage
 	 */
 	private void calculateCorrupt()
 	{
-		byte claimed = this.drh.getChecksum();
-		int checksum = 0;
-		byte[] data = this.drh.getRawPacket();
-
-		for( int i = 2; i < data.length - 1; i++ )
-			checksum += data[i];
-		checksum ^= 0xFFFFFFFF;
-
-		this.setCorrupt( ( (byte) checksum ) != claimed );
+		this.setCorrupt( !this.drh.isChecksumValid() );
 	}
 
 	/**
@@ -80,6 +84,17 @@ public class ResponseMessage
 		return this.drh;
 	}
 
+	/**
+	 * Copy the packet out of the buffer it was received in, so that the
+	 * message stays valid after the buffer has been reused. Must be done by
+	 * the receiving thread before the message is kept or handed to another
+	 * thread. Does nothing if the message already has a copy of its own.
+	 */
+	public void detach()
+	{
+		this.drh = this.drh.copy();
+	}
+
 	protected void setCorrupt( boolean _corrupt )
 	{
 		this.corrupt = _corrupt;
@@ -121,6 +136,266 @@ public class ResponseMessage
 		return "{ " + getClass().getCanonicalName() + " [ Code: " + this.getResponseCode() + ", Type: " + this.getResponseType() + " ] }";
 	}
 
+	/* *******************
+	 * RESPONSE DISPATCH
+	 * ******************
+	 */
+
+	/*
+	 * Response factories indexed by the ordinal of the command type and the
+	 * information response code. Filled in once at class loading, custom
+	 * factories may be added with the register methods
+	 */
+	private static final ResponseFactory[] regularFactories = new ResponseFactory[ CommandMessage.COMMAND_MESSAGE_TYPE.values().length ];
+	private static final ResponseFactory[] informationFactories = new ResponseFactory[ InformationResponseMessage.INFORMATION_RESPONSE_CODE.values().length ];
+
+	/*
+	 * Used to remember that no response class could be found for a command
+	 * type so that the lookup isn't repeated for every received packet
+	 */
+	private static final ResponseFactory UNRESOLVED = new ResponseFactory() {
+		@Override
+		public ResponseMessage create( ResponseHeader rh )
+		{
+			return null;
+		}
+	};
+
+	static
+	{
+		/* Regular responses */
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.PING, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new PingResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.VERSIONING, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new VersioningResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SET_BLUETOOTH_NAME, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SetRobotNameResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.GET_BLUETOOTH_INFO, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new GetBluetoothInfoResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SET_COLLISION_DET, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SetCollisionDetectionResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.READ_LOCATOR, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new ReadLocatorResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.GO_TO_SLEEP, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SleepResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.JUMP_TO_BOOTLOADER, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new JumpToBootloaderResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.LEVEL_1_DIAGNOSTICS, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new Level1DiagnosticsResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.JUMP_TO_MAIN, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new JumpToMainResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.CALIBRATE, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new CalibrateResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.STABILIZATION, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new StabilizationResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.ROTATION_RATE, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new RotationRateResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.RGB_LED_OUTPUT, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new RGBLEDResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.FRONT_LED_OUTPUT, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new FrontLEDResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.ROLL, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new RollResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.RAW_MOTOR, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new RawMotorResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.GET_CONFIGURATION_BLOCK, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new GetConfigurationBlockResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.RUN_MACRO, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new RunMacroResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.MACRO, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SaveTemporaryMacroResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SAVE_MACRO, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SaveMacroResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.ABORT_MACRO, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new AbortMacroResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SET_DATA_STREAMING, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SetDataStreamingResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SPIN_LEFT, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SpinLeftResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.SPIN_RIGHT, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new SpinRightResponse( rh );
+			}
+		} );
+		register( CommandMessage.COMMAND_MESSAGE_TYPE.CUSTOM_PING, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new PingResponse( rh );
+			}
+		} );
+
+		/* Information responses */
+		register( InformationResponseMessage.INFORMATION_RESPONSE_CODE.EMIT, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new EmitResponse( rh );
+			}
+		} );
+		register( InformationResponseMessage.INFORMATION_RESPONSE_CODE.DATA, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new DataResponse( rh );
+			}
+		} );
+		register( InformationResponseMessage.INFORMATION_RESPONSE_CODE.COLLISIONDETECTED, new ResponseFactory() {
+			@Override
+			public ResponseMessage create( ResponseHeader rh )
+			{
+				return new CollisiondetectedResponse( rh );
+			}
+		} );
+	}
+
+	/**
+	 * Register the factory that creates the response for a given command
+	 * type. Replaces any previously registered factory for the type.
+	 * 
+	 * @param type The command type
+	 * @param factory The factory that creates the response
+	 */
+	public static synchronized void register( CommandMessage.COMMAND_MESSAGE_TYPE type, ResponseFactory factory )
+	{
+		regularFactories[type.ordinal()] = factory;
+	}
+
+	/**
+	 * Register the factory that creates the information response for a
+	 * given information response code. Replaces any previously registered
+	 * factory for the code.
+	 * 
+	 * @param code The information response code
+	 * @param factory The factory that creates the information response
+	 */
+	public static synchronized void register( InformationResponseMessage.INFORMATION_RESPONSE_CODE code, ResponseFactory factory )
+	{
+		informationFactories[code.ordinal()] = factory;
+	}
+
 	/**
 	 * Get the device response from a given command and received response header
 	 * 
@@ -132,82 +407,102 @@ public class ResponseMessage
 	 */
 	public static ResponseMessage valueOf( CommandMessage dc, ResponseHeader rh )
 	{
-		// Fetch packet data
-		byte[] data = rh.getRawPacket();
-
 		// Switch between the different message types
 		switch ( rh.getResponseType() )
 		{
 		// Information message that we received without doing any command message
 			case INFORMATION:
-				try
-				{
-					Logging.debug( "Creating information packet from recevied data" );
-
-					// Continue with information
-					InformationResponseMessage.INFORMATION_RESPONSE_CODE ir = InformationResponseMessage.INFORMATION_RESPONSE_CODE.valueOf( data[ResponseMessage.RESPONSE_CODE_INDEX] );
-
-					// Create our class name for the message
-					String className = ir.name().toLowerCase();
-					className = className.substring( 0, 1 ).toUpperCase() + className.substring( 1 );
-
-					Logging.debug( "Parsed received data as a " + className + " information response" );
-
-					// Construct our new response message
-					String n = InformationResponseMessage.class.getCanonicalName().replace( "Information", "information." + className );
-					n = n.substring( 0, n.length() - "Message".length() );
-					@SuppressWarnings( "unchecked" )
-					Constructor<InformationResponseMessage> cons = (Constructor<InformationResponseMessage>) Class.forName( n ).getConstructor( ResponseHeader.class );
-
-					ResponseMessage dim = (ResponseMessage) cons.newInstance( rh );
-					Logging.debug( "Successfully created information response message " + dim );
+				InformationResponseMessage.INFORMATION_RESPONSE_CODE ir = InformationResponseMessage.INFORMATION_RESPONSE_CODE.valueOf( rh.getByte( ResponseMessage.INFORMATION_RESPONSE_TYPE_INDEX ) );
+				if( ir == null )
+					return null;
 
-					return dim;
-				}
-				catch( Exception ex )
+				ResponseFactory ifac = informationFactories[ir.ordinal()];
+				if( ifac == null )
 				{
-					ex.printStackTrace();
-					Logging.error( "Failed to create information response packet from received data ", ex );
+					Logging.error( "No information response registered for " + ir );
+					return null;
 				}
-				break;
+
+				return ifac.create( rh );
 
 			// Message received in return for a command message being sent
 			case REGULAR:
 				if( dc == null )
 					return null;
 
-				// Fetch our message name
-				String[] c = dc.getClass().getCanonicalName().split( "\\." );
-				String cls = c[c.length - 1];
+				ResponseFactory fac = regularFactories[dc.getCommand().ordinal()];
+				if( fac == null )
+					fac = resolve( dc );
 
-				// Fetch prefix name
-				String name = cls.split( "Command" )[0];
+				return fac.create( rh );
+		}
 
-				try
-				{
-					Logging.debug( "Creating response packet from received data" );
+		return null;
+	}
+
+	/**
+	 * Find the response class for a command that has no registered factory.
+	 * The response class is expected to be named as the command class with
+	 * "Command" replaced by "Response" and to be located in the
+	 * response.regular package. The result is registered for the command type
+	 * so the lookup is only performed once.
+	 * 
+	 * @param dc The command to find the response for
+	 * 
+	 * @return The factory for the command type
+	 */
+	private static synchronized ResponseFactory resolve( CommandMessage dc )
+	{
+		ResponseFactory fac = regularFactories[dc.getCommand().ordinal()];
+		if( fac != null )
+			return fac;
 
-					// Create the new instance
-					@SuppressWarnings( "unchecked" )
-					Constructor<ResponseMessage> cons = (Constructor<ResponseMessage>) Class.forName( ResponseMessage.class.getCanonicalName().replace( "ResponseMessage", "regular." + name + "Response" ) ).getConstructor( ResponseHeader.class );
+		// Fetch our message name
+		String[] c = dc.getClass().getCanonicalName().split( "\\." );
+		String name = c[c.length - 1].split( "Command" )[0];
 
-					// Return our created message
-					return (ResponseMessage) cons.newInstance( rh );
-				}
-				catch( Exception e )
+		try
+		{
+			@SuppressWarnings( "unchecked" )
+			final Constructor<ResponseMessage> cons = (Constructor<ResponseMessage>) Class.forName( ResponseMessage.class.getCanonicalName().replace( "ResponseMessage", "regular." + name + "Response" ) ).getConstructor( ResponseHeader.class );
+
+			fac = new ResponseFactory() {
+				@Override
+				public ResponseMessage create( ResponseHeader rh )
 				{
-					Logging.error( "Failed to create response packet from received data", e );
+					try
+					{
+						return cons.newInstance( rh );
+					}
+					catch( Exception e )
+					{
+						Logging.error( "Failed to create response packet from received data", e );
+						return null;
+					}
 				}
-				break;
+			};
+		}
+		catch( Exception e )
+		{
+			Logging.error( "No response registered for " + dc.getCommand() + " and no response class found for " + name, e );
+			fac = UNRESOLVED;
 		}
 
-		return null;
+		regularFactories[dc.getCommand().ordinal()] = fac;
+		return fac;
 	}
 
 	/* *******************
 	 * INNER CLASSES
 	 * ******************
 	 */
+	/**
+	 * The header of a received packet. The header is a view of the packet in
+	 * the array it was received in (array, offset and length), nothing is
+	 * copied when it's created and the accessors read the packet where it
+	 * is. A header created by the listening thread is only valid until the
+	 * receive buffer is reused, use copy() to keep it longer.
+	 */
 	public static class ResponseHeader
 	{
 		/* Code for the response */
@@ -216,8 +511,13 @@ public class ResponseMessage
 		/* Packet information */
 		private int seqNum, payloadLength;
 		private byte checksum;
-		private ByteArrayBuffer data;
-		private int payloadStart; //, payloadEnd;
+		private final byte[] data;
+		private final int offset, packetLength;
+		private final boolean owned;
+		private int payloadStart;
+
+		/* Checksum state, verified at most once */
+		private boolean checked, checksumValid;
 
 		/* Type of the response */
 		private RESPONSE_TYPE type;
@@ -233,83 +533,172 @@ public class ResponseMessage
 		}
 
 		/**
-		 * Create a packet response header
+		 * Create a packet response header, the header is a view of the
+		 * packet in the given array
 		 * 
 		 * @param _data The data for the packet
 		 * @param offset The offset to read the packet from
 		 */
 		public ResponseHeader( byte[] _data, int offset )
 		{
-			// Packet information
-			this.type = RESPONSE_TYPE.valueOf( _data[INDEX_START_1 + offset], _data[INDEX_START_2 + offset] );
-			int respCodeIndex = RESPONSE_CODE_INDEX, packetLengthIndex = PAYLOAD_LENGTH_INDEX, respHeaderLength = RESPONSE_HEADER_LENGTH;
+			this( _data, offset, null );
+		}
+
+		/**
+		 * Create a packet response header for a packet whose checksum has
+		 * already been verified, for example by the ResponseFrameDecoder, so
+		 * that it isn't summed again
+		 * 
+		 * @param _data The data for the packet
+		 * @param offset The offset to read the packet from
+		 * @param checksumValid True if the checksum matches the packet
+		 */
+		public ResponseHeader( byte[] _data, int offset, boolean checksumValid )
+		{
+			this( _data, offset, null );
+			this.checked = true;
+			this.checksumValid = checksumValid;
+		}
 
-			if( type == null )
+		/**
+		 * Create a header, a header created from an original (by copy())
+		 * owns its array and keeps the checksum state of the original
+		 */
+		private ResponseHeader( byte[] _data, int offset, ResponseHeader original )
+		{
+			this.data = _data;
+			this.offset = offset;
+			this.owned = ( original != null );
+			if( original != null )
 			{
-				byte[] b = new byte[ _data.length - offset ];
-				System.arraycopy( _data, offset, b, 0, b.length );
-				System.out.println( "ARRAY: " + Array.stringify( b ) );
+				this.checked = original.checked;
+				this.checksumValid = original.checksumValid;
 			}
 
+			// Packet information
+			this.type = RESPONSE_TYPE.valueOf( _data[INDEX_START_1 + offset], _data[INDEX_START_2 + offset] );
+			int respHeaderLength = RESPONSE_HEADER_LENGTH;
+
 			switch ( type )
 			{
 			/* Information response messages */
 				case INFORMATION:
-					respCodeIndex = INFORMATION_RESPONSE_CODE_INDEX;
-					packetLengthIndex = INFORMATION_PAYLOAD_LENGTH_INDEX;
 					respHeaderLength = INFORMATION_RESPONSE_HEADER_LENGTH;
 
 					// Information response messages have no sequence number
+					// and no response code, the payload length is 16 bits
 					this.seqNum = -1;
+					this.code = RESPONSE_CODE.CODE_OK;
+					this.payloadLength = ( ( _data[INFORMATION_PAYLOAD_LENGTH_MSB_INDEX + offset] & 0xFF ) << 8 ) | ( _data[INFORMATION_PAYLOAD_LENGTH_INDEX + offset] & 0xFF );
 					break;
 
 				/* Regular response messages */
 				case REGULAR:
 					this.seqNum = _data[SEQUENCE_NUMBER_INDEX + offset];
+					this.code = RESPONSE_CODE.valueOf( _data[RESPONSE_CODE_INDEX + offset], this.type );
+					this.payloadLength = _data[PAYLOAD_LENGTH_INDEX + offset] & 0xFF;
 					break;
 
 				/* Response type is unkown */
 				case UNKOWN:
 					this.payloadLength = 0;
-
-					//this.payloadEnd = 2;
 					this.payloadStart = 2;
+					this.packetLength = 2;
 
 					this.code = RESPONSE_CODE.CODE_ERROR_BAD_MESSAGE;
 					this.checksum = 0;
-
-					this.data = new ByteArrayBuffer( 2 );
-					data.append( _data[0] );
-					data.append( _data[1] );
 					return;
 			}
 
 			// Set internal stuff
-			this.code = RESPONSE_CODE.valueOf( _data[respCodeIndex + offset], this.type );
-			this.payloadLength = _data[packetLengthIndex + offset];
-			int packetLength = ( this.payloadLength + respHeaderLength );
-			this.checksum = _data[offset + ( packetLength - 1 )];
+			this.packetLength = ( this.payloadLength + respHeaderLength );
+			this.checksum = _data[offset + ( this.packetLength - 1 )];
 			this.payloadStart = respHeaderLength;
-			//this.payloadEnd = packetLength - 1;
+		}
 
-			// Data storage
-			this.data = new ByteArrayBuffer( packetLength );
-			this.data.append( _data, offset, packetLength );
+		/**
+		 * Returns a header for a copy of the packet that isn't affected by
+		 * changes to the array the packet was received in. Returns the header
+		 * itself if it already is a copy.
+		 * 
+		 * @return The header of the copy
+		 */
+		public ResponseHeader copy()
+		{
+			if( this.owned )
+				return this;
 
-			// System.err.println( "Data: " + this.data );
-			// System.err.println( "Data length: " + this.payloadLength +
-			// ", Packet length: " + packetLength + ", Code: " + this.code +
-			// ", Checksum: " + this.checksum );
+			byte[] d = new byte[ this.packetLength ];
+			System.arraycopy( this.data, this.offset, d, 0, this.packetLength );
+			return new ResponseHeader( d, 0, this );
 		}
 
 		/**
-		 * Returns the raw packet data
+		 * Returns the raw packet data, copied from the array it was received
+		 * in
 		 * 
 		 * @return The packet itself as raw byte array
 		 */
 		public byte[] getRawPacket()
 		{
-			return this.data.toByteArray();
+			byte[] d = new byte[ this.packetLength ];
+			System.arraycopy( this.data, this.offset, d, 0, this.packetLength );
+
+			return d;
+		}
+
+		/**
+		 * Returns a byte of the packet without copying the packet
+		 * 
+		 * @param index The index in the packet
+		 * 
+		 * @return The byte
+		 */
+		public byte getByte( int index )
+		{
+			return this.data[this.offset + index];
+		}
+
+		/**
+		 * Returns the array the packet is stored in, the packet starts at
+		 * getOffset(). The array must not be modified.
+		 * 
+		 * @return The array
+		 */
+		public byte[] getData()
+		{
+			return this.data;
+		}
+
+		/**
+		 * Returns the offset of the packet in the array
+		 * 
+		 * @return The offset
+		 */
+		public int getOffset()
+		{
+			return this.offset;
+		}
+
+		/**
+		 * Returns the length of the complete packet (header, payload and
+		 * checksum)
+		 * 
+		 * @return The packet length
+		 */
+		public int getPacketLength()
+		{
+			return this.packetLength;
+		}
+
+		/**
+		 * Returns the offset of the payload in the array
+		 * 
+		 * @return The offset of the payload
+		 */
+		public int getPayloadOffset()
+		{
+			return this.offset + this.payloadStart;
 		}
 
 		/**
@@ -333,14 +722,53 @@ public class ResponseMessage
 		}
 
 		/**
-		 * Returns the packet data
+		 * Returns true if the checksum matches the packet data. The checksum
+		 * is only summed the first time and only if it wasn't given when
+		 * the header was created.
+		 * 
+		 * @return True if the checksum is valid, false otherwise
+		 */
+		public boolean isChecksumValid()
+		{
+			if( !this.checked )
+			{
+				this.checksumValid = ( this.type != RESPONSE_TYPE.UNKOWN && isChecksumValid( this.data, this.offset, this.packetLength ) );
+				this.checked = true;
+			}
+
+			return this.checksumValid;
+		}
+
+		/**
+		 * Returns true if the checksum of a packet matches its content, the
+		 * checksum is the inverted sum of all bytes except the two start
+		 * bytes and the checksum itself
+		 * 
+		 * @param data The array the packet is stored in
+		 * @param offset The offset of the packet in the array
+		 * @param length The length of the packet, including the checksum
+		 * 
+		 * @return True if the checksum is valid, false otherwise
+		 */
+		public static boolean isChecksumValid( byte[] data, int offset, int length )
+		{
+			int checksum = 0;
+			int end = offset + length - 1;
+			for( int i = offset + 2; i < end; i++ )
+				checksum += data[i];
+
+			return (byte) ( checksum ^ 0xFFFFFFFF ) == data[end];
+		}
+
+		/**
+		 * Returns a copy of the packet data
 		 * 
 		 * @return The packet data
 		 */
 		public byte[] getPacketPayload()
 		{
 			byte[] d = new byte[ this.payloadLength ];
-			System.arraycopy( this.data.toByteArray(), this.payloadStart, d, 0, this.payloadLength );
+			System.arraycopy( this.data, this.getPayloadOffset(), d, 0, this.payloadLength );
 
 			return d;
 		}
@@ -393,7 +821,6 @@ public class ResponseMessage
 
 			/* Internal storage */
 			private byte first, second;
-			private boolean unknown = false;
 
 			/**
 			 * Create a response header with first header value i and second j
@@ -409,7 +836,6 @@ public class ResponseMessage
 
 			private RESPONSE_TYPE()
 			{
-				this.unknown = true;
 			}
 
 			/**
@@ -422,11 +848,6 @@ public class ResponseMessage
 				return new byte[] { this.first, this.second };
 			}
 
-			private boolean isUnkown()
-			{
-				return this.unknown;
-			}
-
 			/**
 			 * Returns a response header object that is represented by i and j.
 			 * Will return null if no header could be created from the two given
@@ -440,10 +861,14 @@ public class ResponseMessage
 			 */
 			public static RESPONSE_TYPE valueOf( byte i, byte j )
 			{
-				RESPONSE_TYPE[] res = RESPONSE_TYPE.values();
-				for( RESPONSE_TYPE r : res )
-					if( !r.isUnkown() && ( r.getHeaderType()[0] == i && r.getHeaderType()[1] == j ) )
-						return r;
+				// Compare the fields directly, called for every received packet
+				if( i == REGULAR.first )
+				{
+					if( j == REGULAR.second )
+						return REGULAR;
+					if( j == INFORMATION.second )
+						return INFORMATION;
+				}
 				return RESPONSE_TYPE.UNKOWN;
 			}
 
@@ -503,6 +928,19 @@ public class ResponseMessage
 
 		private Map<ResponseHeader.RESPONSE_TYPE, Byte> codes;
 
+		/* Lookup table from the response type and received code to the enum value */
+		private static final RESPONSE_CODE[][] byCode = new RESPONSE_CODE[ ResponseHeader.RESPONSE_TYPE.values().length ][ 256 ];
+
+		static
+		{
+			// Walk backwards so that the first code with a value wins, as
+			// the linear search did
+			RESPONSE_CODE[] codes = RESPONSE_CODE.values();
+			for( int i = codes.length - 1; i >= 0; i-- )
+				for( Map.Entry<ResponseHeader.RESPONSE_TYPE, Byte> e : codes[i].codes.entrySet() )
+					byCode[e.getKey().ordinal()][e.getValue() & 0xFF] = codes[i];
+		}
+
 		/**
 		 * Create a response code
 		 * 
@@ -571,15 +1009,10 @@ public class ResponseMessage
 		 */
 		public static RESPONSE_CODE valueOf( int code, ResponseHeader.RESPONSE_TYPE type )
 		{
-			RESPONSE_CODE[] cmds = RESPONSE_CODE.values();
-			for( RESPONSE_CODE rc : cmds )
-			{
-				Byte c = rc.getCode( type );
-				if( c != null && c.intValue() == code )
-					return rc;
-			}
+			if( code < Byte.MIN_VALUE || code > Byte.MAX_VALUE )
+				return null;
 
-			return null;
+			return byCode[type.ordinal()][code & 0xFF];
 		}
 
 		/**
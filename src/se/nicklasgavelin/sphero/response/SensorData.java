@@ -1,10 +1,255 @@
 package se.nicklasgavelin.sphero.response;
 
+import se.nicklasgavelin.sphero.command.SetDataStreamingCommand;
+
 /**
  * Created by cd on 28/12/2015.
  */
 public class SensorData {
 
+    /**
+     * The individual values that may be streamed from the Sphero.
+     * The order of the values is the order in which they appear in a
+     * data streaming frame, see DataStreamParser.
+     */
+    public static enum SENSOR_CHANNEL {
+        ACCELEROMETER_RAW_X(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.RAW),
+        ACCELEROMETER_RAW_Y(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.RAW),
+        ACCELEROMETER_RAW_Z(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.RAW),
+        GYRO_RAW_X(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.RAW),
+        GYRO_RAW_Y(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.RAW),
+        GYRO_RAW_Z(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.RAW),
+        MOTOR_EMF_RAW_RIGHT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.RAW),
+        MOTOR_EMF_RAW_LEFT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.RAW),
+        MOTOR_PWM_RAW_LEFT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.LEFT.RAW),
+        MOTOR_PWM_RAW_RIGHT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.RIGHT.RAW),
+        IMU_PITCH(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.PITCH.FILTERED),
+        IMU_ROLL(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.ROLL.FILTERED),
+        IMU_YAW(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.YAW.FILTERED),
+        ACCELEROMETER_FILTERED_X(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.FILTERED),
+        ACCELEROMETER_FILTERED_Y(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.FILTERED),
+        ACCELEROMETER_FILTERED_Z(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.FILTERED),
+        GYRO_FILTERED_X(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.FILTERED),
+        GYRO_FILTERED_Y(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.FILTERED),
+        GYRO_FILTERED_Z(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.FILTERED),
+        MOTOR_EMF_FILTERED_RIGHT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.FILTERED),
+        MOTOR_EMF_FILTERED_LEFT(1, SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.FILTERED),
+
+        QUATERNION_Q0(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q0),
+        QUATERNION_Q1(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q1),
+        QUATERNION_Q2(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q2),
+        QUATERNION_Q3(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q3),
+        ODOMETER_X(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.X),
+        ODOMETER_Y(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.Y),
+        ACCEL_ONE(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.ACCEL_ONE),
+        VELOCITY_X(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.X),
+        VELOCITY_Y(2, SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.Y);
+
+        private final int mask;
+        private final int flag;
+
+        private SENSOR_CHANNEL(int mask, int flag) {
+            this.mask = mask;
+            this.flag = flag;
+        }
+
+        /**
+         * the mask the channel belongs to, 1 for the first mask
+         * and 2 for the second mask
+         */
+        public int getMask() {
+            return mask;
+        }
+
+        /**
+         * the flag that enables the channel in its mask
+         */
+        public int getFlag() {
+            return flag;
+        }
+
+        /**
+         * check if the channel is enabled by the given masks
+         */
+        public boolean isEnabled(int mask1, int mask2) {
+            return ((mask == 1 ? mask1 : mask2) & flag) != 0;
+        }
+    }
+
+    /**
+     * set the value of a single channel
+     *
+     * @param channel the channel to set
+     * @param value   the new value
+     */
+    public void setValue(SENSOR_CHANNEL channel, int value) {
+        switch (channel) {
+            case ACCELEROMETER_RAW_X:
+                accelerometerRaw.a = value;
+                break;
+            case ACCELEROMETER_RAW_Y:
+                accelerometerRaw.b = value;
+                break;
+            case ACCELEROMETER_RAW_Z:
+                accelerometerRaw.c = value;
+                break;
+            case GYRO_RAW_X:
+                gyroRaw.a = value;
+                break;
+            case GYRO_RAW_Y:
+                gyroRaw.b = value;
+                break;
+            case GYRO_RAW_Z:
+                gyroRaw.c = value;
+                break;
+            case MOTOR_EMF_RAW_RIGHT:
+                motorEmfRaw.a = value;
+                break;
+            case MOTOR_EMF_RAW_LEFT:
+                motorEmfRaw.b = value;
+                break;
+            case MOTOR_PWM_RAW_LEFT:
+                motorPwmRaw.a = value;
+                break;
+            case MOTOR_PWM_RAW_RIGHT:
+                motorPwmRaw.b = value;
+                break;
+            case IMU_PITCH:
+                imuFiltered.a = value;
+                break;
+            case IMU_ROLL:
+                imuFiltered.b = value;
+                break;
+            case IMU_YAW:
+                imuFiltered.c = value;
+                break;
+            case ACCELEROMETER_FILTERED_X:
+                accelerometerFiltered.a = value;
+                break;
+            case ACCELEROMETER_FILTERED_Y:
+                accelerometerFiltered.b = value;
+                break;
+            case ACCELEROMETER_FILTERED_Z:
+                accelerometerFiltered.c = value;
+                break;
+            case GYRO_FILTERED_X:
+                gyroFiltered.a = value;
+                break;
+            case GYRO_FILTERED_Y:
+                gyroFiltered.b = value;
+                break;
+            case GYRO_FILTERED_Z:
+                gyroFiltered.c = value;
+                break;
+            case MOTOR_EMF_FILTERED_RIGHT:
+                emfFiltered.a = value;
+                break;
+            case MOTOR_EMF_FILTERED_LEFT:
+                emfFiltered.b = value;
+                break;
+            case QUATERNION_Q0:
+                quaternion.q0 = value;
+                break;
+            case QUATERNION_Q1:
+                quaternion.q1 = value;
+                break;
+            case QUATERNION_Q2:
+                quaternion.q2 = value;
+                break;
+            case QUATERNION_Q3:
+                quaternion.q3 = value;
+                break;
+            case ODOMETER_X:
+                odometer.a = value;
+                break;
+            case ODOMETER_Y:
+                odometer.b = value;
+                break;
+            case ACCEL_ONE:
+                accelOne = value;
+                break;
+            case VELOCITY_X:
+                velocity.a = value;
+                break;
+            case VELOCITY_Y:
+                velocity.b = value;
+                break;
+        }
+    }
+
+    /**
+     * returns the value of a single channel
+     *
+     * @param channel the channel to return
+     * @return the channel value
+     */
+    public int getValue(SENSOR_CHANNEL channel) {
+        switch (channel) {
+            case ACCELEROMETER_RAW_X:
+                return accelerometerRaw.a;
+            case ACCELEROMETER_RAW_Y:
+                return accelerometerRaw.b;
+            case ACCELEROMETER_RAW_Z:
+                return accelerometerRaw.c;
+            case GYRO_RAW_X:
+                return gyroRaw.a;
+            case GYRO_RAW_Y:
+                return gyroRaw.b;
+            case GYRO_RAW_Z:
+                return gyroRaw.c;
+            case MOTOR_EMF_RAW_RIGHT:
+                return motorEmfRaw.a;
+            case MOTOR_EMF_RAW_LEFT:
+                return motorEmfRaw.b;
+            case MOTOR_PWM_RAW_LEFT:
+                return motorPwmRaw.a;
+            case MOTOR_PWM_RAW_RIGHT:
+                return motorPwmRaw.b;
+            case IMU_PITCH:
+                return imuFiltered.a;
+            case IMU_ROLL:
+                return imuFiltered.b;
+            case IMU_YAW:
+                return imuFiltered.c;
+            case ACCELEROMETER_FILTERED_X:
+                return accelerometerFiltered.a;
+            case ACCELEROMETER_FILTERED_Y:
+                return accelerometerFiltered.b;
+            case ACCELEROMETER_FILTERED_Z:
+                return accelerometerFiltered.c;
+            case GYRO_FILTERED_X:
+                return gyroFiltered.a;
+            case GYRO_FILTERED_Y:
+                return gyroFiltered.b;
+            case GYRO_FILTERED_Z:
+                return gyroFiltered.c;
+            case MOTOR_EMF_FILTERED_RIGHT:
+                return emfFiltered.a;
+            case MOTOR_EMF_FILTERED_LEFT:
+                return emfFiltered.b;
+            case QUATERNION_Q0:
+                return quaternion.q0;
+            case QUATERNION_Q1:
+                return quaternion.q1;
+            case QUATERNION_Q2:
+                return quaternion.q2;
+            case QUATERNION_Q3:
+                return quaternion.q3;
+            case ODOMETER_X:
+                return odometer.a;
+            case ODOMETER_Y:
+                return odometer.b;
+            case ACCEL_ONE:
+                return accelOne;
+            case VELOCITY_X:
+                return velocity.a;
+            case VELOCITY_Y:
+                return velocity.b;
+            default:
+                return 0;
+        }
+    }
+
     /**
      * the mask used for the first set of sensor readings
      */
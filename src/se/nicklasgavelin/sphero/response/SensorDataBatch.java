@@ -0,0 +1,163 @@
+package se.nicklasgavelin.sphero.response;
+
+/**
+ * A columnar batch of decoded sensor frames. Every channel is stored
+ * in its own primitive array where index i holds the value of frame i,
+ * so a packet with several frames can be decoded without creating
+ * a SensorData object for each frame.
+ * <p/>
+ * A batch may be reused, call clear() before decoding the next packet
+ * or keep appending to collect several packets in the same batch.
+ * Not thread safe.
+ */
+public class SensorDataBatch {
+
+    private static final SensorData.SENSOR_CHANNEL[] CHANNELS = SensorData.SENSOR_CHANNEL.values();
+
+    // one column per channel, indexed by the channel ordinal
+    private final int[][] columns = new int[CHANNELS.length][];
+
+    private int size;
+
+    private int capacity;
+
+    private int mask1;
+
+    private int mask2;
+
+    /**
+     * create a batch that can hold the given number of frames
+     * before it has to grow
+     *
+     * @param capacity the initial number of frames
+     */
+    public SensorDataBatch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new int[this.capacity];
+        }
+    }
+
+    /**
+     * the number of frames in the batch
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * the number of frames the batch can hold without growing
+     *
+     * @return
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * remove all frames from the batch, the columns are kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int getMask1() {
+        return mask1;
+    }
+
+    public int getMask2() {
+        return mask2;
+    }
+
+    /**
+     * set the masks that the frames in the batch were decoded with
+     */
+    public void setMasks(int mask1, int mask2) {
+        this.mask1 = mask1;
+        this.mask2 = mask2;
+    }
+
+    /**
+     * make sure that the batch can hold the given number of frames
+     *
+     * @param frames
+     */
+    public void ensureCapacity(int frames) {
+        if (frames <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(frames, capacity * 2);
+        for (int i = 0; i < columns.length; i++) {
+            int[] column = new int[newCapacity];
+            System.arraycopy(columns[i], 0, column, 0, size);
+            columns[i] = column;
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * returns the backing column of a channel. only the first
+     * size() values are valid. the array is replaced if the
+     * batch has to grow.
+     *
+     * @param channel
+     * @return
+     */
+    public int[] getColumn(SensorData.SENSOR_CHANNEL channel) {
+        return columns[channel.ordinal()];
+    }
+
+    /**
+     * returns the value of a channel in a given frame
+     *
+     * @param channel
+     * @param frame
+     * @return
+     */
+    public int get(SensorData.SENSOR_CHANNEL channel, int frame) {
+        if (frame < 0 || frame >= size) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + size);
+        }
+        return columns[channel.ordinal()][frame];
+    }
+
+    /**
+     * copy a single frame into a sensor data object
+     *
+     * @param frame the frame to copy
+     * @param into  the sensor data to update
+     * @return the updated sensor data
+     */
+    public SensorData getSensorData(int frame, SensorData into) {
+        if (frame < 0 || frame >= size) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + size);
+        }
+
+        into.setMask1(mask1);
+        into.setMask2(mask2);
+        for (int i = 0; i < CHANNELS.length; i++) {
+            if (CHANNELS[i].isEnabled(mask1, mask2)) {
+                into.setValue(CHANNELS[i], columns[i][frame]);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * reserve room for a number of new frames at the end of the batch.
+     * the values of the new frames should be written to the columns
+     * starting at the returned index.
+     *
+     * @param frames the number of frames to add
+     * @return the index of the first new frame
+     */
+    public int appendFrames(int frames) {
+        ensureCapacity(size + frames);
+        int first = size;
+        size += frames;
+        return first;
+    }
+}
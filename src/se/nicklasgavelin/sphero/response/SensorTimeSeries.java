@@ -0,0 +1,374 @@
+package se.nicklasgavelin.sphero.response;
+
+import java.util.Arrays;
+
+/**
+ * A bounded history of streamed sensor samples. Every channel is kept in
+ * its own primitive ring array next to a column of timestamps
+ * (System.nanoTime), appending a sample is O(1) and the oldest samples
+ * are overwritten once the capacity is reached.
+ * <p/>
+ * Queries return a Window that reads straight from the ring arrays,
+ * nothing is copied until the caller asks for it with Window.copy.
+ * A window only stays readable as long as its samples have not been
+ * overwritten, see Window.isValid().
+ * <p/>
+ * Rings are only allocated for the channels that are recorded, see
+ * enable. Channels that are not recorded, or not part of the streamed
+ * masks of a sample, read as 0.
+ * Thread safe, samples are appended by the robot listener thread
+ * while the history is queried by the application.
+ */
+public class SensorTimeSeries {
+
+    private static final SensorData.SENSOR_CHANNEL[] CHANNELS = SensorData.SENSOR_CHANNEL.values();
+
+    private final int capacity;
+
+    private final int indexMask;
+
+    private final long[] timestamps;
+
+    // one ring per channel, indexed by the channel ordinal, null for
+    // channels that are not recorded
+    private final int[][] columns;
+
+    // the total number of samples appended, the next sample
+    // is written to head & indexMask
+    private long head;
+
+    // the first sample that is kept after a clear
+    private long tail;
+
+    /**
+     * create a history that keeps at least the given number of samples
+     * of all channels, the capacity is rounded up to the next power of two
+     *
+     * @param capacity the number of samples to keep
+     */
+    public SensorTimeSeries(int capacity) {
+        this(capacity, -1, -1);
+    }
+
+    /**
+     * create a history that keeps at least the given number of samples
+     * of the channels in the given masks, the capacity is rounded up to
+     * the next power of two
+     *
+     * @param capacity the number of samples to keep
+     * @param mask1    the first mask of the channels to record
+     * @param mask2    the second mask of the channels to record
+     */
+    public SensorTimeSeries(int capacity, int mask1, int mask2) {
+        int c = 1;
+        while (c < capacity && c < (1 << 30)) {
+            c <<= 1;
+        }
+
+        this.capacity = c;
+        this.indexMask = c - 1;
+        this.timestamps = new long[c];
+        this.columns = new int[CHANNELS.length][];
+        enable(mask1, mask2);
+    }
+
+    /**
+     * start recording the channels in the given masks, channels that are
+     * already recorded are kept. a channel that is added reads as 0 for
+     * the samples that were appended before.
+     *
+     * @param mask1 the first mask of the channels to record
+     * @param mask2 the second mask of the channels to record
+     */
+    public synchronized void enable(int mask1, int mask2) {
+        for (int i = 0; i < CHANNELS.length; i++) {
+            if (columns[i] == null && CHANNELS[i].isEnabled(mask1, mask2)) {
+                columns[i] = new int[capacity];
+            }
+        }
+    }
+
+    /**
+     * true if a ring is allocated for the channel
+     *
+     * @param channel the channel
+     * @return
+     */
+    public synchronized boolean isRecorded(SensorData.SENSOR_CHANNEL channel) {
+        return columns[channel.ordinal()] != null;
+    }
+
+    /**
+     * the maximum number of samples kept
+     *
+     * @return
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * the number of samples currently kept
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return (int) (head - oldest());
+    }
+
+    /**
+     * the total number of samples appended since the history was
+     * created
+     *
+     * @return
+     */
+    public synchronized long getAppendedCount() {
+        return head;
+    }
+
+    /**
+     * remove all samples
+     */
+    public synchronized void clear() {
+        tail = head;
+    }
+
+    /**
+     * the sequence number of the oldest sample that is kept
+     */
+    private long oldest() {
+        return Math.max(tail, head - capacity);
+    }
+
+    /**
+     * append a single sample
+     *
+     * @param nanos the time of the sample (System.nanoTime)
+     * @param data  the sample
+     */
+    public synchronized void append(long nanos, SensorData data) {
+        int index = next(nanos);
+        int mask1 = data.getMask1(), mask2 = data.getMask2();
+        for (int i = 0; i < CHANNELS.length; i++) {
+            if (columns[i] != null) {
+                columns[i][index] = CHANNELS[i].isEnabled(mask1, mask2) ? data.getValue(CHANNELS[i]) : 0;
+            }
+        }
+    }
+
+    /**
+     * append frames of a batch as samples spaced evenly in time
+     *
+     * @param batch       the batch to read from
+     * @param first       the first frame to append
+     * @param count       the number of frames to append
+     * @param firstNanos  the time of the first frame (System.nanoTime)
+     * @param periodNanos the time between two frames
+     */
+    public synchronized void append(SensorDataBatch batch, int first, int count, long firstNanos, long periodNanos) {
+        int mask1 = batch.getMask1(), mask2 = batch.getMask2();
+        for (int f = 0; f < count; f++) {
+            int index = next(firstNanos + f * periodNanos);
+            for (int i = 0; i < CHANNELS.length; i++) {
+                if (columns[i] != null) {
+                    columns[i][index] = CHANNELS[i].isEnabled(mask1, mask2) ? batch.getColumn(CHANNELS[i])[first + f] : 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * reserve the next slot and set its timestamp. timestamps never
+     * go backwards so that the history can be searched by time.
+     */
+    private int next(long nanos) {
+        int index = (int) (head & indexMask);
+        if (head > tail) {
+            long last = timestamps[(int) ((head - 1) & indexMask)];
+            if (nanos - last < 0) {
+                nanos = last;
+            }
+        }
+        timestamps[index] = nanos;
+        head++;
+        return index;
+    }
+
+    /**
+     * returns the samples with a timestamp in [fromNanos, toNanos)
+     *
+     * @param fromNanos the start of the range (inclusive)
+     * @param toNanos   the end of the range (exclusive)
+     * @return a window over the samples
+     */
+    public synchronized Window window(long fromNanos, long toNanos) {
+        long start = lowerBound(fromNanos);
+        long end = lowerBound(toNanos);
+        return new Window(start, (int) Math.max(0, end - start));
+    }
+
+    /**
+     * returns the latest samples
+     *
+     * @param samples the maximum number of samples
+     * @return a window over the samples
+     */
+    public synchronized Window latest(int samples) {
+        int n = Math.max(0, Math.min(samples, size()));
+        return new Window(head - n, n);
+    }
+
+    /**
+     * the sequence number of the first kept sample with a
+     * timestamp that is not before nanos
+     */
+    private long lowerBound(long nanos) {
+        long lo = oldest(), hi = head;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (timestamps[(int) (mid & indexMask)] - nanos < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * A range of samples in the history. Index 0 is the oldest
+     * sample of the window.
+     */
+    public class Window {
+        private final long first;
+        private final int size;
+
+        private Window(long first, int size) {
+            this.first = first;
+            this.size = size;
+        }
+
+        /**
+         * the number of samples in the window
+         *
+         * @return
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * true as long as none of the samples have been overwritten
+         *
+         * @return
+         */
+        public boolean isValid() {
+            synchronized (SensorTimeSeries.this) {
+                return first >= oldest();
+            }
+        }
+
+        /**
+         * returns the timestamp of a sample
+         *
+         * @param i
+         * @return
+         */
+        public long getTimestamp(int i) {
+            synchronized (SensorTimeSeries.this) {
+                return timestamps[index(i)];
+            }
+        }
+
+        /**
+         * returns the value of a channel in a sample
+         *
+         * @param channel
+         * @param i
+         * @return
+         */
+        public int get(SensorData.SENSOR_CHANNEL channel, int i) {
+            synchronized (SensorTimeSeries.this) {
+                int index = index(i);
+                int[] column = columns[channel.ordinal()];
+                return column != null ? column[index] : 0;
+            }
+        }
+
+        /**
+         * copy the values of a channel into an array
+         *
+         * @param channel    the channel to copy
+         * @param dest       the destination array, must hold size() values from destOffset
+         * @param destOffset the offset in the destination array
+         */
+        public void copy(SensorData.SENSOR_CHANNEL channel, int[] dest, int destOffset) {
+            synchronized (SensorTimeSeries.this) {
+                if (size == 0) {
+                    return;
+                }
+                index(0);
+                int[] column = columns[channel.ordinal()];
+                if (column == null) {
+                    Arrays.fill(dest, destOffset, destOffset + size, 0);
+                    return;
+                }
+                copyRing(column, dest, destOffset);
+            }
+        }
+
+        /**
+         * copy the timestamps into an array
+         *
+         * @param dest       the destination array, must hold size() values from destOffset
+         * @param destOffset the offset in the destination array
+         */
+        public void copyTimestamps(long[] dest, int destOffset) {
+            synchronized (SensorTimeSeries.this) {
+                if (size == 0) {
+                    return;
+                }
+                index(0);
+                int start = (int) (first & indexMask);
+                int n = Math.min(size, capacity - start);
+                System.arraycopy(timestamps, start, dest, destOffset, n);
+                System.arraycopy(timestamps, 0, dest, destOffset + n, size - n);
+            }
+        }
+
+        /**
+         * copy a single sample into a sensor data object, all
+         * channels are set
+         *
+         * @param i    the sample
+         * @param into the sensor data to update
+         * @return the updated sensor data
+         */
+        public SensorData getSensorData(int i, SensorData into) {
+            synchronized (SensorTimeSeries.this) {
+                int index = index(i);
+                for (int c = 0; c < CHANNELS.length; c++) {
+                    into.setValue(CHANNELS[c], columns[c] != null ? columns[c][index] : 0);
+                }
+                return into;
+            }
+        }
+
+        private void copyRing(int[] ring, int[] dest, int destOffset) {
+            int start = (int) (first & indexMask);
+            int n = Math.min(size, capacity - start);
+            System.arraycopy(ring, start, dest, destOffset, n);
+            System.arraycopy(ring, 0, dest, destOffset + n, size - n);
+        }
+
+        private int index(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("Sample " + i + " of " + size);
+            }
+            if (first < oldest()) {
+                throw new IllegalStateException("The window has been overwritten");
+            }
+            return (int) ((first + i) & indexMask);
+        }
+    }
+}
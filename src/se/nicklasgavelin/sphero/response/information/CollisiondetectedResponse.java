@@ -1,6 +1,5 @@
 package se.nicklasgavelin.sphero.response.information;
 
-import oracle.jrockit.jfr.events.Bits;
 import se.nicklasgavelin.sphero.response.InformationResponseMessage;
 
 /**
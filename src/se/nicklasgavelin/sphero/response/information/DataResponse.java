@@ -6,12 +6,17 @@
 package se.nicklasgavelin.sphero.response.information;
 
 import se.nicklasgavelin.sphero.response.InformationResponseMessage;
+import se.nicklasgavelin.sphero.response.SensorData;
+import se.nicklasgavelin.sphero.response.SensorDataBatch;
+import se.nicklasgavelin.sphero.response.parser.DataStreamParser;
 
 /**
  * @author Nicklas Gavelin, nicklas.gavelin@gmail.com, Luleå University of Technology
  */
 public class DataResponse extends InformationResponseMessage
 {
+	private DataStreamParser parser;
+
 	/**
 	 * Response message for sensor data
 	 * 
@@ -32,6 +37,84 @@ public class DataResponse extends InformationResponseMessage
 		return super.getMessageHeader().getPacketPayload();
 	}
 
+	/**
+	 * Decode all frames of the sensor data and append them to a batch
+	 * 
+	 * @param parser The parser for the masks that are currently streamed
+	 * @param into The batch to append the frames to
+	 * 
+	 * @return The number of frames appended
+	 */
+	public int getSensorData( DataStreamParser parser, SensorDataBatch into )
+	{
+		// Decode the payload where it is instead of copying it
+		ResponseHeader rh = super.getMessageHeader();
+		return parser.parseBatch( rh.getData(), rh.getPayloadOffset(), rh.getPayloadLength(), into );
+	}
+
+	/**
+	 * Set the parser for the masks that were streamed when the message was
+	 * received, done by the robot before the listeners are notified
+	 * 
+	 * @param parser The parser or null if the masks aren't known
+	 */
+	public void setParser( DataStreamParser parser )
+	{
+		this.parser = parser;
+	}
+
+	/**
+	 * Returns the parser for the masks that were streamed when the message
+	 * was received
+	 * 
+	 * @return The parser or null if the masks aren't known (no
+	 *         SetDataStreamingCommand has been acknowledged)
+	 */
+	public DataStreamParser getParser()
+	{
+		return this.parser;
+	}
+
+	/**
+	 * Decode all frames of the sensor data with the streamed masks and
+	 * append them to a batch
+	 * 
+	 * @param into The batch to append the frames to
+	 * 
+	 * @return The number of frames appended, 0 if the masks aren't known
+	 */
+	public int getSensorData( SensorDataBatch into )
+	{
+		if( this.parser == null )
+			return 0;
+		return this.getSensorData( this.parser, into );
+	}
+
+	/**
+	 * Decode all frames of the sensor data with the streamed masks
+	 * 
+	 * @return The decoded frames or null if the masks aren't known
+	 */
+	public SensorDataBatch getSensorDataBatch()
+	{
+		if( this.parser == null )
+			return null;
+		return this.parser.parseBatch( this.getSensorData() );
+	}
+
+	/**
+	 * Decode the most recent (last) frame of the sensor data with the
+	 * streamed masks
+	 * 
+	 * @return The decoded frame or null if the masks aren't known
+	 */
+	public SensorData getLatestSensorData()
+	{
+		if( this.parser == null )
+			return null;
+		return this.parser.parse( this.getSensorData() );
+	}
+
 	/**
 	 * Returns the length of the sensor data
 	 * 
@@ -39,6 +122,6 @@ public class DataResponse extends InformationResponseMessage
 	 */
 	public int getSensorDataLength()
 	{
-		return super.getPacketPayload().length;
+		return super.getMessageHeader().getPayloadLength();
 	}
 }
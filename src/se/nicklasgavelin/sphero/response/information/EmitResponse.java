@@ -27,7 +27,7 @@ public class EmitResponse extends InformationResponseMessage
 	public EmitResponse( ResponseHeader rh )
 	{
 		super( rh );
-		this.identifier = rh.getRawPacket()[EMIT_IDENTIFIER_INDEX];
+		this.identifier = rh.getByte( EMIT_IDENTIFIER_INDEX );
 	}
 
 	/**
@@ -1,10 +1,7 @@
 package se.nicklasgavelin.sphero.response.parser;
 
-import se.nicklasgavelin.sphero.command.SetDataStreamingCommand;
 import se.nicklasgavelin.sphero.response.SensorData;
-
-import java.util.HashMap;
-import java.util.Map;
+import se.nicklasgavelin.sphero.response.SensorDataBatch;
 
 /**
  * A helper class that is used to process the response received
@@ -14,16 +11,11 @@ import java.util.Map;
  */
 public class DataStreamParser {
 
-    /**
-     * apply the value to the sensor data
-     */
-    protected interface Processor {
-        boolean apply(SensorData result, int value);
-    }
+    private final int mask1;
 
-    private int mask1;
+    private final int mask2;
 
-    private int mask2;
+    private final int packetFrames;
 
     // parsing is ordered assuming specific incremental order to data index
     // this example is taken from
@@ -34,275 +26,227 @@ public class DataStreamParser {
     // where each successive iteration decreases the size of the byte array by 2.
     // instead of incrementing a data index.
     // note this is also based on the order of the mask as it appears in the table
-    // in the sphero API documentation
-    private int[] flags = new int[]{
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.LEFT.RAW,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.RIGHT.RAW,
+    // in the sphero API documentation.
+    // the order is kept by SensorData.SENSOR_CHANNEL, the masks are compiled
+    // once into the list of channels present in a frame so that a frame is
+    // decoded with a single pass over the data.
+    private final SensorData.SENSOR_CHANNEL[] plan;
+
 
+    public DataStreamParser(int mask1, int mask2) {
+        this(mask1, mask2, 0);
+    }
 
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.PITCH.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.ROLL.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.YAW.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.FILTERED,
-            SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.FILTERED
+    /**
+     * create a parser for packets with a known number of frames
+     *
+     * @param mask1        the first sensor mask
+     * @param mask2        the second sensor mask
+     * @param packetFrames the number of frames per packet as set with
+     *                     SetDataStreamingCommand, 0 if unknown
+     */
+    public DataStreamParser(int mask1, int mask2, int packetFrames) {
+        this.mask1 = mask1;
+        this.mask2 = mask2;
+        this.packetFrames = packetFrames;
+        this.plan = compile(mask1, mask2);
+    }
 
-    };
+    /**
+     * compile the masks into the ordered list of channels that appear
+     * in a single frame
+     *
+     * @param mask1
+     * @param mask2
+     * @return
+     */
+    private static SensorData.SENSOR_CHANNEL[] compile(int mask1, int mask2) {
+        SensorData.SENSOR_CHANNEL[] channels = SensorData.SENSOR_CHANNEL.values();
+        int count = 0;
+        for (SensorData.SENSOR_CHANNEL channel : channels) {
+            if (channel.isEnabled(mask1, mask2)) {
+                count++;
+            }
+        }
 
-    private int[] mask2flags = new int[]{
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q0,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q1,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q2,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q3,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.X,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.Y,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.ACCEL_ONE,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.X,
-            SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.Y
+        SensorData.SENSOR_CHANNEL[] result = new SensorData.SENSOR_CHANNEL[count];
+        int i = 0;
+        for (SensorData.SENSOR_CHANNEL channel : channels) {
+            if (channel.isEnabled(mask1, mask2)) {
+                result[i++] = channel;
+            }
+        }
+        return result;
+    }
 
-    };
+    public int getMask1() {
+        return mask1;
+    }
 
+    public int getMask2() {
+        return mask2;
+    }
 
-    public DataStreamParser(int mask1, int mask2) {
-        this.mask1 = mask1;
-        this.mask2 = mask2;
+    public int getPacketFrames() {
+        return packetFrames;
     }
 
     /**
-     * determine if a flag exists in the mask
+     * the channels of a frame in the order they are received
      *
-     * @param mask
-     * @param flag
      * @return
      */
-    private boolean exists(int mask, int flag) {
-        return (mask & flag) != 0;
+    public SensorData.SENSOR_CHANNEL[] getChannels() {
+        return plan.clone();
     }
 
     /**
-     * extract a short from the position supplied in the data byte array
+     * the number of bytes in a single frame
      *
-     * @param index
-     * @param data
      * @return
      */
-    private int extract(int index, byte[] data) {
-        short value = data[index];
-        value = (short) (value << 8);
-        value += data[index + 1];
-        return value;
+    public int getFrameLength() {
+        return plan.length * 2;
     }
 
     /**
-     * check that the flag exists,
-     * extract the value if it does from the data at the supplied index
-     * assign it to the result using the supplied process function
+     * extract a signed big endian short from the position
+     * supplied in the data byte array
      *
-     * @param i
-     * @param mask
-     * @param flag
      * @param index
      * @param data
-     * @param result
-     * @param procFn
      * @return
      */
-    private boolean processData(int mask, int flag, int index, byte[] data, SensorData result, Processor procFn) {
-        if (exists(mask, flag)) {
-            if (index < data.length - 1) {
-                int value = extract(index, data);
-                return procFn.apply(result, value);
-            }
-        }
-        return false;
+    private static int extract(int index, byte[] data) {
+        return (short) ((data[index] << 8) | (data[index + 1] & 0xFF));
     }
 
     /**
-     * parse the sensor packet as received from the
-     * data streaming response.
+     * decode a single frame starting at offset into the supplied sensor data.
+     * nothing is allocated, the same sensor data may be reused for
+     * every frame.
      *
-     * @param packet
-     * @return
+     * @param packet the data received from the data streaming response
+     * @param offset the offset of the frame in the packet
+     * @param length the number of bytes available from offset
+     * @param into   the sensor data to update
+     * @return true if a complete frame was decoded, false if there was not enough data
      */
-    public SensorData parse(byte[] packet) {
-        SensorData result = new SensorData();
-        result.setMask1(mask1);
-        result.setMask2(mask2);
-        int dataIndex = 0;
-        // parsing is ordered assuming specific incremental order to data index
-        // this example is taken from
-        // https://github.com/SoatExperts/sphero-sdk/tree/master/SDK/Sphero
-        // in the class "SensorData"
-        // additionally the order of evaluation is also defined in:
-        // http://www.mathworks.com/matlabcentral/fileexchange/52746-sphero-api-matlab-sdk/content/Sphero_API_Matlab_SDK/Sphero/SpheroInterface/SpeheroCore/SpheroCore.m
-        // where each successive iteration decreases the size of the byte array by 2
-        // we expect the dataIndex to always increment and eventually consume
-        // the available data.
-        while (dataIndex < packet.length - 1) {
-            boolean parseFlag = false;
-            for (final int flag : flags) {
-                parseFlag = processData(mask1, flag, dataIndex, packet, result,
-                        new Processor() {
-                            @Override
-                            public boolean apply(SensorData result, int value) {
-                                switch (flag) {
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.RAW:
-                                        result.getAccelerometerRaw().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.RAW:
-                                        result.getAccelerometerRaw().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.RAW:
-                                        result.getAccelerometerRaw().setC(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.RAW:
-                                        result.getGyroRaw().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.RAW:
-                                        result.getGyroRaw().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.RAW:
-                                        result.getGyroRaw().setC(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.RAW:
-                                        result.getMotorEmfRaw().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.RAW:
-                                        result.getMotorEmfRaw().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.LEFT.RAW:
-                                        result.getMotorPwmRaw().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.PULSE_WIDTH_MODULATION.RIGHT.RAW:
-                                        result.getMotorPwmRaw().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.PITCH.FILTERED:
-                                        result.getImuFiltered().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.ROLL.FILTERED:
-                                        result.getImuFiltered().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.IMU.YAW.FILTERED:
-                                        result.getImuFiltered().setC(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.X.FILTERED:
-                                        result.getAccelerometerFiltered().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Y.FILTERED:
-                                        result.getAccelerometerFiltered().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.ACCELEROMETER.Z.FILTERED:
-                                        result.getAccelerometerFiltered().setC(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.X.FILTERED:
-                                        result.getGyroFiltered().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Y.FILTERED:
-                                        result.getGyroFiltered().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.GYRO.Z.FILTERED:
-                                        result.getGyroFiltered().setC(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.RIGHT.FILTERED:
-                                        result.getEmfFiltered().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASKS.MOTOR_BACK_EMF.LEFT.FILTERED:
-                                        result.getEmfFiltered().setB(value);
-                                        return true;
-                                    default:
-                                        return false;
-                                }
-                            }
-                        });
-                if (parseFlag) {
-                    dataIndex += 2;
-                }
-            }
-            for (final int flag : mask2flags) {
-                parseFlag = processData(mask2, flag, dataIndex, packet, result,
-                        new Processor() {
-
-                            @Override
-                            public boolean apply(SensorData result, int value) {
-                                switch (flag) {
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q0:
-                                        result.getQuaternion().setQ0(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q1:
-                                        result.getQuaternion().setQ1(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q2:
-                                        result.getQuaternion().setQ2(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.QUATERNION.Q3:
-                                        result.getQuaternion().setQ3(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.X:
-                                        result.getOdometer().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.ODOMETER.Y:
-                                        result.getOdometer().setB(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.ACCEL_ONE:
-                                        result.setAccelOne(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.X:
-                                        result.getVelocity().setA(value);
-                                        return true;
-                                    case SetDataStreamingCommand.DATA_STREAMING_MASK2.VELOCITY.Y:
-                                        result.getVelocity().setB(value);
-                                        return true;
-                                    default:
-                                        return false;
-                                }
-                            }
-                        });
+    public boolean parse(byte[] packet, int offset, int length, SensorData into) {
+        if (plan.length == 0 || length < plan.length * 2) {
+            return false;
+        }
 
-                if (parseFlag) {
-                    dataIndex += 2;
-                }
-            }
+        into.setMask1(mask1);
+        into.setMask2(mask2);
+        int dataIndex = offset;
+        for (int i = 0; i < plan.length; i++, dataIndex += 2) {
+            into.setValue(plan[i], extract(dataIndex, packet));
         }
-        return result;
+        return true;
     }
 
+    /**
+     * returns the largest number of frames per packet that fits in a data
+     * packet. the payload length of an information response is 16 bits and
+     * includes the checksum, so a packet holds at most 65534 bytes of frames.
+     * the frame count of SetDataStreamingCommand is 16 bits as well.
+     *
+     * @param mask1 the first sensor mask
+     * @param mask2 the second sensor mask
+     * @return the maximum number of frames per packet
+     */
+    public static int getMaxPacketFrames(int mask1, int mask2) {
+        int frameLength = compile(mask1, mask2).length * 2;
+        if (frameLength == 0) {
+            return 0xFFFF;
+        }
+        return Math.min(0xFFFF, (0xFFFF - 1) / frameLength);
+    }
 
-    private class Tuple<A, B> {
-        private A one;
-        private B two;
-
-        public Tuple(A a, B b) {
-            one = a;
-            two = b;
+    /**
+     * returns the number of complete frames in the given number of bytes.
+     * the trailing checksum byte of a payload is never part of a frame.
+     * if the number of frames per packet is known no more frames than that
+     * are returned.
+     *
+     * @param length
+     * @return
+     */
+    public int getFrameCount(int length) {
+        if (plan.length == 0) {
+            return 0;
         }
 
-        public A getOne() {
-            return one;
+        int frames = length / (plan.length * 2);
+        if (packetFrames > 0 && frames > packetFrames) {
+            frames = packetFrames;
         }
+        return frames;
+    }
 
-        public void setOne(A one) {
-            this.one = one;
+    /**
+     * decode all frames of a packet and append them to the batch,
+     * one value per frame in each channel column.
+     *
+     * @param packet the data received from the data streaming response
+     * @param offset the offset of the first frame in the packet
+     * @param length the number of bytes available from offset
+     * @param into   the batch to append the frames to
+     * @return the number of frames appended
+     */
+    public int parseBatch(byte[] packet, int offset, int length, SensorDataBatch into) {
+        int frames = getFrameCount(length);
+        if (frames == 0) {
+            return 0;
         }
 
-        public B getTwo() {
-            return two;
+        into.setMasks(mask1, mask2);
+        int first = into.appendFrames(frames);
+        int frameLength = plan.length * 2;
+
+        // column by column, each channel is at the same position in every frame
+        for (int i = 0; i < plan.length; i++) {
+            int[] column = into.getColumn(plan[i]);
+            int dataIndex = offset + i * 2;
+            for (int f = 0; f < frames; f++, dataIndex += frameLength) {
+                column[first + f] = extract(dataIndex, packet);
+            }
         }
+        return frames;
+    }
+
+    /**
+     * decode all frames of a packet into a new batch
+     *
+     * @param packet
+     * @return
+     */
+    public SensorDataBatch parseBatch(byte[] packet) {
+        SensorDataBatch batch = new SensorDataBatch(Math.max(1, getFrameCount(packet.length)));
+        parseBatch(packet, 0, packet.length, batch);
+        return batch;
+    }
+
+    /**
+     * parse the sensor packet as received from the
+     * data streaming response. if the packet contains
+     * several frames the values of the most recent (last)
+     * frame are returned.
+     *
+     * @param packet
+     * @return
+     */
+    public SensorData parse(byte[] packet) {
+        SensorData result = new SensorData();
+        result.setMask1(mask1);
+        result.setMask2(mask2);
 
-        public void setTwo(B two) {
-            this.two = two;
+        int frames = getFrameCount(packet.length);
+        if (frames > 0) {
+            int frameLength = plan.length * 2;
+            parse(packet, (frames - 1) * frameLength, frameLength, result);
         }
+        return result;
     }
 }
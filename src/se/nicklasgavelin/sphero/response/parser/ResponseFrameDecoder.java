@@ -0,0 +1,304 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.response.parser;
+
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+
+/**
+ * Reassembles response frames from the raw byte stream received from the
+ * Sphero device.
+ *
+ * Data is read straight into the internal buffer (see buffer(), writeIndex()
+ * and commitWrite()) and complete frames are handed out as an offset and a
+ * length into that very same buffer, so no bytes are boxed or copied per
+ * frame. Frames are delimited by the SOP1/SOP2 start bytes, any garbage in
+ * front of a start sequence is skipped.
+ *
+ * Regular responses (SOP2 0xFF) carry a single byte of payload length,
+ * information responses (SOP2 0xFE) a 16 bit length in bytes 3 and 4, so an
+ * information response may be up to 64 KB long.
+ *
+ * The buffer is a linear array with a read and a write cursor. When the
+ * space after the write cursor runs low the unread bytes (at most one
+ * partial frame) are moved back to the start of the array, so every frame
+ * is contiguous and can be given directly to ResponseMessage.ResponseHeader.
+ * The array is replaced by a larger one when a frame is announced that
+ * doesn't fit in it.
+ *
+ * A frame is only valid until the next call to writableBytes(), append() or
+ * nextFrame() as the buffer may be compacted or replaced by these calls, the
+ * array must be fetched again with buffer() after these calls.
+ *
+ * Not thread safe, one decoder should be used by a single reading thread.
+ */
+public class ResponseFrameDecoder
+{
+	/**
+	 * Start of packet bytes
+	 */
+	public static final byte SOP1 = (byte) 0xFF, SOP2_REGULAR = (byte) 0xFF,
+			SOP2_INFORMATION = (byte) 0xFE;
+
+	/**
+	 * The largest regular response (header + 255 bytes of payload, including
+	 * the checksum)
+	 */
+	public static final int MAX_REGULAR_FRAME_LENGTH = ResponseMessage.RESPONSE_HEADER_LENGTH + 0xFF;
+
+	/**
+	 * The largest frame that may be received, an information response with
+	 * a 16 bit payload length (header + 65535 bytes of payload, including the
+	 * checksum)
+	 */
+	public static final int MAX_FRAME_LENGTH = ResponseMessage.RESPONSE_HEADER_LENGTH + 0xFFFF;
+
+	// Internal storage
+	private byte[] buffer;
+	private int readIndex, writeIndex;
+	private int frameOffset, frameLength;
+	private long discardedBytes;
+
+	/**
+	 * Create a frame decoder with a given capacity. The capacity will be
+	 * raised to be able to contain at least two complete regular responses,
+	 * it grows when a longer information response is received.
+	 *
+	 * @param capacity The initial capacity of the receive buffer
+	 */
+	public ResponseFrameDecoder( int capacity )
+	{
+		this.buffer = new byte[ Math.max( capacity, 2 * MAX_REGULAR_FRAME_LENGTH ) ];
+	}
+
+	/**
+	 * Returns the backing array, incoming data should be written to it
+	 * starting at writeIndex()
+	 *
+	 * @return The backing array
+	 */
+	public byte[] buffer()
+	{
+		return this.buffer;
+	}
+
+	/**
+	 * Returns the index that the next received byte should be written to
+	 *
+	 * @return The write index
+	 */
+	public int writeIndex()
+	{
+		return this.writeIndex;
+	}
+
+	/**
+	 * Returns the number of bytes that can be written to the buffer
+	 * starting at writeIndex(). Will compact the buffer if the tail is
+	 * running out of space, which invalidates the last returned frame.
+	 *
+	 * @return The number of bytes that may be written
+	 */
+	public int writableBytes()
+	{
+		if( this.buffer.length - this.writeIndex < MAX_REGULAR_FRAME_LENGTH && this.readIndex > 0 )
+			this.compact();
+
+		return this.buffer.length - this.writeIndex;
+	}
+
+	/**
+	 * Commit a number of bytes that have been written directly to the
+	 * buffer starting at writeIndex()
+	 *
+	 * @param length The number of bytes written
+	 */
+	public void commitWrite( int length )
+	{
+		if( length < 0 || this.writeIndex + length > this.buffer.length )
+			throw new IndexOutOfBoundsException( "Invalid write length " + length );
+
+		this.writeIndex += length;
+	}
+
+	/**
+	 * Copy bytes into the buffer. Will accept as many bytes as there is room
+	 * for, frames must be drained with nextFrame() before the rest can be
+	 * appended.
+	 *
+	 * @param src The source array
+	 * @param offset The offset in the source array
+	 * @param length The number of bytes to append
+	 *
+	 * @return The number of bytes that were appended
+	 */
+	public int append( byte[] src, int offset, int length )
+	{
+		int n = Math.min( length, this.writableBytes() );
+		System.arraycopy( src, offset, this.buffer, this.writeIndex, n );
+		this.writeIndex += n;
+
+		return n;
+	}
+
+	/**
+	 * Move on to the next complete frame in the buffer. Returns false if no
+	 * complete frame is available, more data has to be written in that case.
+	 *
+	 * @return True if a frame is available at frameOffset(), false otherwise
+	 */
+	public boolean nextFrame()
+	{
+		while( this.writeIndex - this.readIndex >= 2 )
+		{
+			byte sop1 = this.buffer[this.readIndex], sop2 = this.buffer[this.readIndex + 1];
+
+			// Resynchronize on the start of packet bytes
+			if( sop1 != SOP1 || ( sop2 != SOP2_REGULAR && sop2 != SOP2_INFORMATION ) )
+			{
+				this.readIndex++;
+				this.discardedBytes++;
+				continue;
+			}
+
+			// Need the complete header to know the frame length
+			if( this.writeIndex - this.readIndex < ResponseMessage.RESPONSE_HEADER_LENGTH )
+				break;
+
+			int length = ResponseMessage.RESPONSE_HEADER_LENGTH + payloadLength( this.buffer, this.readIndex );
+			if( this.writeIndex - this.readIndex < length )
+			{
+				// Make sure that the rest of the frame can be received
+				this.reserve( length );
+				break;
+			}
+
+			this.frameOffset = this.readIndex;
+			this.frameLength = length;
+			this.readIndex += length;
+
+			return true;
+		}
+
+		// Rewind the cursors when everything has been consumed
+		if( this.readIndex == this.writeIndex )
+			this.readIndex = this.writeIndex = 0;
+
+		return false;
+	}
+
+	/**
+	 * Returns the offset of the current frame in the buffer
+	 *
+	 * @return The frame offset
+	 */
+	public int frameOffset()
+	{
+		return this.frameOffset;
+	}
+
+	/**
+	 * Returns the length of the current frame (header, payload and checksum)
+	 *
+	 * @return The frame length
+	 */
+	public int frameLength()
+	{
+		return this.frameLength;
+	}
+
+	/**
+	 * Returns true if the checksum of the current frame matches its content
+	 *
+	 * @return True if the checksum is valid, false otherwise
+	 */
+	public boolean isChecksumValid()
+	{
+		return ResponseMessage.ResponseHeader.isChecksumValid( this.buffer, this.frameOffset, this.frameLength );
+	}
+
+	/**
+	 * Returns the number of bytes that have been received but not yet
+	 * returned as a frame
+	 *
+	 * @return The number of unread bytes
+	 */
+	public int readableBytes()
+	{
+		return this.writeIndex - this.readIndex;
+	}
+
+	/**
+	 * Returns the number of bytes that have been skipped while searching for
+	 * the start of a frame
+	 *
+	 * @return The number of discarded bytes
+	 */
+	public long getDiscardedBytes()
+	{
+		return this.discardedBytes;
+	}
+
+	/**
+	 * Clear all buffered data
+	 */
+	public void clear()
+	{
+		this.readIndex = this.writeIndex = 0;
+		this.frameOffset = this.frameLength = 0;
+	}
+
+	/**
+	 * Returns the payload length (including the checksum) of the frame that
+	 * starts at the given offset. Information responses have a 16 bit
+	 * length, regular responses a single byte.
+	 *
+	 * @param data The array the frame is stored in
+	 * @param offset The offset of the frame
+	 *
+	 * @return The payload length
+	 */
+	public static int payloadLength( byte[] data, int offset )
+	{
+		if( data[offset + 1] == SOP2_INFORMATION )
+			return ( ( data[offset + ResponseMessage.INFORMATION_PAYLOAD_LENGTH_MSB_INDEX] & 0xFF ) << 8 ) | ( data[offset + ResponseMessage.INFORMATION_PAYLOAD_LENGTH_INDEX] & 0xFF );
+
+		return data[offset + ResponseMessage.PAYLOAD_LENGTH_INDEX] & 0xFF;
+	}
+
+	/**
+	 * Make room for a frame of the given length starting at the read index,
+	 * by compacting the buffer or replacing it with a larger one
+	 *
+	 * @param length The length of the frame
+	 */
+	private void reserve( int length )
+	{
+		if( this.buffer.length - this.readIndex >= length )
+			return;
+
+		if( this.buffer.length < length )
+		{
+			byte[] larger = new byte[ Math.min( Math.max( 2 * this.buffer.length, length ), 2 * MAX_FRAME_LENGTH ) ];
+			int remaining = this.writeIndex - this.readIndex;
+			System.arraycopy( this.buffer, this.readIndex, larger, 0, remaining );
+			this.buffer = larger;
+			this.readIndex = 0;
+			this.writeIndex = remaining;
+		}
+		else
+			this.compact();
+	}
+
+	/**
+	 * Move the unread bytes to the start of the buffer
+	 */
+	private void compact()
+	{
+		int remaining = this.writeIndex - this.readIndex;
+		System.arraycopy( this.buffer, this.readIndex, this.buffer, 0, remaining );
+		this.readIndex = 0;
+		this.writeIndex = remaining;
+	}
+}
@@ -0,0 +1,631 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.simulator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.microedition.io.StreamConnection;
+import se.nicklasgavelin.sphero.Robot;
+import se.nicklasgavelin.sphero.command.CommandMessage.COMMAND_MESSAGE_TYPE;
+import se.nicklasgavelin.sphero.response.InformationResponseMessage.INFORMATION_RESPONSE_CODE;
+import se.nicklasgavelin.sphero.response.ResponseMessage;
+import se.nicklasgavelin.sphero.response.parser.DataStreamParser;
+import se.nicklasgavelin.sphero.response.parser.ResponseFrameDecoder;
+
+/**
+ * A single connection to a simulated robot. Commands written to the
+ * connection are parsed and answered, the answers and the periodic
+ * information packets are read from the input stream once their simulated
+ * latency has passed.
+ */
+class SimulatedConnection implements StreamConnection
+{
+	// Command packet layout, see CommandMessage
+	private static final int COMMAND_HEADER_LENGTH = 6, DEVICE_ID_INDEX = 2,
+			COMMAND_ID_INDEX = 3, SEQUENCE_INDEX = 4, DATA_LENGTH_INDEX = 5;
+
+	// Response codes
+	private static final byte CODE_OK = 0, CODE_ERROR_CHECKSUM = 2,
+			CODE_ERROR_BAD_COMMAND = 4;
+
+	// Command types by device and command id
+	private static final COMMAND_MESSAGE_TYPE[] commandTypes = new COMMAND_MESSAGE_TYPE[ 256 * 256 ];
+	static
+	{
+		// Aliases (SPIN_LEFT, CUSTOM_PING...) share the id of the command
+		// they are defined after, keep the first one
+		for( COMMAND_MESSAGE_TYPE t : COMMAND_MESSAGE_TYPE.values() )
+		{
+			int id = ( ( t.getDeviceId() & 0xFF ) << 8 ) | ( t.getCommandId() & 0xFF );
+			if( commandTypes[id] == null )
+				commandTypes[id] = t;
+		}
+	}
+
+	private final SimulatedRobot robot;
+	private final Random random;
+
+	// Packets waiting to be read by the host, in delivery order. Guarded by a
+	// lock so that a virtual listening thread waiting for a packet doesn't
+	// pin its carrier thread
+	private final ReentrantLock pendingLock = new ReentrantLock();
+	private final Condition pendingChanged = this.pendingLock.newCondition();
+	private final LinkedList<Packet> pending = new LinkedList<Packet>();
+	private long lastDue = 0;
+	private boolean closed = false;
+
+	// Received command bytes that are not yet a complete packet
+	private final byte[] received = new byte[ 2 * ResponseFrameDecoder.MAX_REGULAR_FRAME_LENGTH ];
+	private int receivedLength = 0;
+
+	// Periodic information packets
+	private final LinkedList<ScheduledFuture<?>> tasks = new LinkedList<ScheduledFuture<?>>();
+	private ScheduledFuture<?> dataTask;
+	private long sample = 0;
+
+	private final InputStream in = new InputStream() {
+		@Override
+		public int read() throws IOException
+		{
+			byte[] b = new byte[ 1 ];
+			return( this.read( b, 0, 1 ) == -1 ? -1 : b[0] & 0xFF );
+		}
+
+		@Override
+		public int read( byte[] b, int offset, int length ) throws IOException
+		{
+			return SimulatedConnection.this.read( b, offset, length );
+		}
+
+		@Override
+		public int available()
+		{
+			return SimulatedConnection.this.available();
+		}
+
+		@Override
+		public void close()
+		{
+			SimulatedConnection.this.close();
+		}
+	};
+
+	private final OutputStream out = new OutputStream() {
+		@Override
+		public void write( int b ) throws IOException
+		{
+			this.write( new byte[] { (byte) b }, 0, 1 );
+		}
+
+		@Override
+		public void write( byte[] b, int offset, int length ) throws IOException
+		{
+			SimulatedConnection.this.write( b, offset, length );
+		}
+	};
+
+	/**
+	 * A packet on its way to the host
+	 */
+	private static class Packet
+	{
+		private final byte[] data;
+		private final long due;
+		private int position = 0;
+
+		private Packet( byte[] data, long due )
+		{
+			this.data = data;
+			this.due = due;
+		}
+	}
+
+	/**
+	 * Open a connection to a simulated robot
+	 *
+	 * @param robot The simulated robot
+	 */
+	SimulatedConnection( SimulatedRobot robot )
+	{
+		this.robot = robot;
+		this.random = new Random( robot.getSeed() );
+
+		this.schedule( robot.getEmitRate(), new Runnable() {
+			@Override
+			public void run()
+			{
+				inform( INFORMATION_RESPONSE_CODE.EMIT, new byte[ 0 ] );
+			}
+		} );
+
+		this.schedule( robot.getCollisionRate(), new Runnable() {
+			@Override
+			public void run()
+			{
+				collision();
+			}
+		} );
+
+		int[] streaming = robot.getDataStreaming();
+		this.startDataStreaming( streaming[0], streaming[1], streaming[2], streaming[3], 0 );
+	}
+
+	/*
+	 * *****************************************************
+	 * HOST SIDE
+	 * ****************************************************
+	 */
+
+	/**
+	 * Read the packets that are due
+	 */
+	private int read( byte[] b, int offset, int length ) throws IOException
+	{
+		if( length == 0 )
+			return 0;
+
+		this.pendingLock.lock();
+		try
+		{
+			Packet p;
+			while( true )
+			{
+				if( this.closed )
+					return -1;
+
+				p = this.pending.peek();
+				if( p == null )
+				{
+					this.await( 0 );
+					continue;
+				}
+
+				long wait = p.due - System.nanoTime();
+				if( wait <= 0 )
+					break;
+				this.await( wait );
+			}
+
+			int n = Math.min( length, p.data.length - p.position );
+			int fragment = this.robot.getMaxFragmentSize();
+			if( fragment > 0 )
+				n = Math.min( n, 1 + this.random.nextInt( fragment ) );
+
+			System.arraycopy( p.data, p.position, b, offset, n );
+			p.position += n;
+			if( p.position == p.data.length )
+				this.pending.remove();
+
+			return n;
+		}
+		finally
+		{
+			this.pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Wait for more packets, must hold the pending lock
+	 */
+	private void await( long nanos ) throws IOException
+	{
+		try
+		{
+			if( nanos <= 0 )
+				this.pendingChanged.await();
+			else
+				this.pendingChanged.awaitNanos( nanos );
+		}
+		catch( InterruptedException e )
+		{
+			throw new IOException( "Interrupted" );
+		}
+	}
+
+	/**
+	 * Returns the number of bytes that are due
+	 */
+	private int available()
+	{
+		this.pendingLock.lock();
+		try
+		{
+			Packet p = this.pending.peek();
+			if( p == null || p.due - System.nanoTime() > 0 )
+				return 0;
+			return p.data.length - p.position;
+		}
+		finally
+		{
+			this.pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Collect written bytes and handle every complete command packet
+	 */
+	private void write( byte[] b, int offset, int length ) throws IOException
+	{
+		if( this.closed )
+			throw new IOException( "Connection closed" );
+
+		synchronized( this.received )
+		{
+			while( length > 0 )
+			{
+				int n = Math.min( length, this.received.length - this.receivedLength );
+				System.arraycopy( b, offset, this.received, this.receivedLength, n );
+				this.receivedLength += n;
+				offset += n;
+				length -= n;
+
+				this.handleReceived();
+			}
+		}
+	}
+
+	/**
+	 * Handle the complete packets in the receive buffer
+	 */
+	private void handleReceived()
+	{
+		int start = 0;
+		while( this.receivedLength - start >= COMMAND_HEADER_LENGTH )
+		{
+			// Resynchronize on the start of packet
+			if( this.received[start] != ResponseFrameDecoder.SOP1 || ( this.received[start + 1] != (byte) 0xFF && this.received[start + 1] != (byte) 0xFE ) )
+			{
+				start++;
+				continue;
+			}
+
+			int packetLength = COMMAND_HEADER_LENGTH + ( this.received[start + DATA_LENGTH_INDEX] & 0xFF );
+			if( this.receivedLength - start < packetLength )
+				break;
+
+			this.handleCommand( this.received, start, packetLength );
+			start += packetLength;
+		}
+
+		// Keep the unhandled bytes
+		System.arraycopy( this.received, start, this.received, 0, this.receivedLength - start );
+		this.receivedLength -= start;
+	}
+
+	/*
+	 * *****************************************************
+	 * DEVICE SIDE
+	 * ****************************************************
+	 */
+
+	/**
+	 * Answer a single command packet
+	 */
+	private void handleCommand( byte[] b, int offset, int length )
+	{
+		this.robot.commandsReceived.incrementAndGet();
+
+		boolean answer = b[offset + 1] == (byte) 0xFF;
+		byte seq = b[offset + SEQUENCE_INDEX];
+		int dataOffset = offset + COMMAND_HEADER_LENGTH, dataLength = length - COMMAND_HEADER_LENGTH - 1;
+
+		// Checksum covers everything after the start bytes
+		byte checksum = 0;
+		for( int i = offset + DEVICE_ID_INDEX; i < offset + length - 1; i++ )
+			checksum += b[i];
+		if( (byte) ~checksum != b[offset + length - 1] )
+		{
+			if( answer )
+				this.respond( CODE_ERROR_CHECKSUM, seq, new byte[ 0 ] );
+			return;
+		}
+
+		COMMAND_MESSAGE_TYPE type = commandTypes[( ( b[offset + DEVICE_ID_INDEX] & 0xFF ) << 8 ) | ( b[offset + COMMAND_ID_INDEX] & 0xFF )];
+		if( type == null )
+		{
+			if( answer )
+				this.respond( CODE_ERROR_BAD_COMMAND, seq, new byte[ 0 ] );
+			return;
+		}
+
+		byte[] payload = new byte[ 0 ];
+		switch ( type )
+		{
+			case VERSIONING:
+				payload = new byte[] { 0x01, 0x01, 0x10, 0x01, 0x20, 0x33, 0x11, 0x10 };
+				break;
+
+			case GET_BLUETOOTH_INFO:
+				// The response classes count the checksum as part of the
+				// payload, 16 bytes of name and 15 bytes of address
+				payload = new byte[ 31 ];
+				copyString( this.robot.getName(), payload, 0, 16 );
+				copyString( this.robot.getAddress(), payload, 16, 15 );
+				break;
+
+			case ABORT_MACRO:
+				payload = new byte[] { 0 };
+				break;
+
+			case READ_LOCATOR:
+				payload = new byte[ 10 ];
+				break;
+
+			case SET_DATA_STREAMING:
+				if( dataLength >= 9 )
+				{
+					int divisor = ( ( b[dataOffset] & 0xFF ) << 8 ) | ( b[dataOffset + 1] & 0xFF );
+					int frames = ( ( b[dataOffset + 2] & 0xFF ) << 8 ) | ( b[dataOffset + 3] & 0xFF );
+					int mask = readInt( b, dataOffset + 4 );
+					int count = b[dataOffset + 8] & 0xFF;
+					int mask2 = ( dataLength >= 13 ? readInt( b, dataOffset + 9 ) : 0 );
+					this.startDataStreaming( divisor, frames, mask, mask2, count );
+				}
+				break;
+
+			case GO_TO_SLEEP:
+			case JUMP_TO_BOOTLOADER:
+				if( answer )
+					this.respond( CODE_OK, seq, payload );
+				this.stopAll();
+				return;
+
+			default:
+				break;
+		}
+
+		if( answer )
+			this.respond( CODE_OK, seq, payload );
+	}
+
+	/**
+	 * Send a collision packet with random values
+	 */
+	private void collision()
+	{
+		byte[] payload = new byte[ 16 ];
+		this.random.nextBytes( payload );
+		this.inform( INFORMATION_RESPONSE_CODE.COLLISIONDETECTED, payload );
+	}
+
+	/**
+	 * Start (or stop) sending data packets
+	 */
+	private void startDataStreaming( int divisor, int frames, int mask, int mask2, final int count )
+	{
+		synchronized( this.tasks )
+		{
+			if( this.dataTask != null )
+				this.dataTask.cancel( false );
+			this.dataTask = null;
+
+			if( divisor <= 0 || ( mask == 0 && mask2 == 0 ) || this.closed )
+				return;
+
+			final DataStreamParser parser = new DataStreamParser( mask, mask2 );
+			final int frameLength = parser.getFrameLength();
+
+			// Send the requested number of frames, data packets have a 16 bit
+			// length so only the wire format limits the frames of a packet
+			final int packetFrames = Math.max( 1, Math.min( frames, DataStreamParser.getMaxPacketFrames( mask, mask2 ) ) );
+			long period = (long) divisor * packetFrames * 1000000000L / Robot.DATA_STREAMING_RATE;
+
+			this.dataTask = SimulatedRobot.getScheduler().scheduleAtFixedRate( new Runnable() {
+				private int sent = 0;
+
+				@Override
+				public void run()
+				{
+					if( count > 0 && this.sent++ >= count )
+						return;
+
+					byte[] payload = new byte[ packetFrames * frameLength ];
+					for( int i = 0; i < payload.length; i += 2 )
+					{
+						// Every channel is a sine wave with its own frequency
+						int channel = ( i % frameLength ) / 2;
+						short v = (short) ( 1000 * Math.sin( ( sample + i / frameLength ) * ( channel + 1 ) * 2 * Math.PI / Robot.DATA_STREAMING_RATE ) );
+						payload[i] = (byte) ( v >> 8 );
+						payload[i + 1] = (byte) v;
+					}
+					sample += packetFrames;
+
+					inform( INFORMATION_RESPONSE_CODE.DATA, payload );
+				}
+			}, period, period, TimeUnit.NANOSECONDS );
+		}
+	}
+
+	/**
+	 * Schedule a periodic task
+	 */
+	private void schedule( float perSecond, Runnable task )
+	{
+		if( perSecond <= 0 )
+			return;
+
+		long period = Math.max( 1, (long) ( 1000000000L / perSecond ) );
+		synchronized( this.tasks )
+		{
+			this.tasks.add( SimulatedRobot.getScheduler().scheduleAtFixedRate( task, period, period, TimeUnit.NANOSECONDS ) );
+		}
+	}
+
+	/**
+	 * Send a regular response
+	 */
+	private void respond( byte code, byte seq, byte[] payload )
+	{
+		byte[] p = new byte[ ResponseMessage.RESPONSE_HEADER_LENGTH + payload.length + 1 ];
+		p[0] = ResponseFrameDecoder.SOP1;
+		p[1] = ResponseFrameDecoder.SOP2_REGULAR;
+		p[ResponseMessage.RESPONSE_CODE_INDEX] = code;
+		p[ResponseMessage.SEQUENCE_NUMBER_INDEX] = seq;
+		this.send( p, payload );
+	}
+
+	/**
+	 * Send an information packet
+	 */
+	private void inform( INFORMATION_RESPONSE_CODE type, byte[] payload )
+	{
+		byte[] p = new byte[ ResponseMessage.INFORMATION_RESPONSE_HEADER_LENGTH + payload.length + 1 ];
+		p[0] = ResponseFrameDecoder.SOP1;
+		p[1] = ResponseFrameDecoder.SOP2_INFORMATION;
+		p[ResponseMessage.INFORMATION_RESPONSE_TYPE_INDEX] = type.getCode();
+
+		// The length is 16 bits, send() fills in the low byte
+		p[ResponseMessage.INFORMATION_PAYLOAD_LENGTH_MSB_INDEX] = (byte) ( ( payload.length + 1 ) >> 8 );
+		this.send( p, payload );
+	}
+
+	/**
+	 * Fill in the payload, length and checksum and queue the packet for the
+	 * host. Applies the injected faults.
+	 */
+	private void send( byte[] p, byte[] payload )
+	{
+		System.arraycopy( payload, 0, p, ResponseMessage.RESPONSE_HEADER_LENGTH, payload.length );
+		p[ResponseMessage.PAYLOAD_LENGTH_INDEX] = (byte) ( payload.length + 1 );
+
+		byte checksum = 0;
+		for( int i = 2; i < p.length - 1; i++ )
+			checksum += p[i];
+		p[p.length - 1] = (byte) ~checksum;
+
+		this.robot.packetsSent.incrementAndGet();
+
+		this.pendingLock.lock();
+		try
+		{
+			if( this.closed )
+				return;
+
+			long now = System.nanoTime();
+			int jitter = this.robot.getLatencyJitter();
+			long due = now + ( this.robot.getLatency() + ( jitter > 0 ? this.random.nextInt( jitter + 1 ) : 0 ) ) * 1000000L;
+
+			// Never deliver packets out of order
+			if( due - this.lastDue < 0 )
+				due = this.lastDue;
+			this.lastDue = due;
+
+			if( this.random.nextDouble() < this.robot.getGarbageRate() )
+			{
+				byte[] garbage = new byte[ 1 + this.random.nextInt( 8 ) ];
+				this.random.nextBytes( garbage );
+				this.pending.add( new Packet( garbage, due ) );
+			}
+
+			if( this.random.nextDouble() < this.robot.getCorruptionRate() )
+			{
+				// Leave the start bytes and length alone so that the packet
+				// is still framed, it will fail the checksum instead
+				int i = ResponseMessage.RESPONSE_HEADER_LENGTH + this.random.nextInt( p.length - ResponseMessage.RESPONSE_HEADER_LENGTH );
+				p[i] ^= (byte) ( 1 + this.random.nextInt( 0xFF ) );
+				this.robot.packetsCorrupted.incrementAndGet();
+			}
+
+			this.pending.add( new Packet( p, due ) );
+			this.pendingChanged.signalAll();
+		}
+		finally
+		{
+			this.pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Stop all periodic packets
+	 */
+	private void stopAll()
+	{
+		synchronized( this.tasks )
+		{
+			for( ScheduledFuture<?> f : this.tasks )
+				f.cancel( false );
+			this.tasks.clear();
+
+			if( this.dataTask != null )
+				this.dataTask.cancel( false );
+			this.dataTask = null;
+		}
+	}
+
+	private static int readInt( byte[] b, int offset )
+	{
+		return ( ( b[offset] & 0xFF ) << 24 ) | ( ( b[offset + 1] & 0xFF ) << 16 ) | ( ( b[offset + 2] & 0xFF ) << 8 ) | ( b[offset + 3] & 0xFF );
+	}
+
+	private static void copyString( String s, byte[] dst, int offset, int max )
+	{
+		try
+		{
+			byte[] b = s.getBytes( "UTF-8" );
+			System.arraycopy( b, 0, dst, offset, Math.min( max - 1, b.length ) );
+		}
+		catch( UnsupportedEncodingException e )
+		{
+		}
+	}
+
+	/*
+	 * *****************************************************
+	 * STREAM CONNECTION
+	 * ****************************************************
+	 */
+
+	@Override
+	public InputStream openInputStream()
+	{
+		return this.in;
+	}
+
+	@Override
+	public DataInputStream openDataInputStream()
+	{
+		return new DataInputStream( this.in );
+	}
+
+	@Override
+	public OutputStream openOutputStream()
+	{
+		return this.out;
+	}
+
+	@Override
+	public DataOutputStream openDataOutputStream()
+	{
+		return new DataOutputStream( this.out );
+	}
+
+	@Override
+	public void close()
+	{
+		this.stopAll();
+
+		this.pendingLock.lock();
+		try
+		{
+			this.closed = true;
+			this.pending.clear();
+			this.pendingChanged.signalAll();
+		}
+		finally
+		{
+			this.pendingLock.unlock();
+		}
+	}
+}
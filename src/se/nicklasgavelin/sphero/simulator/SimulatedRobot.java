@@ -0,0 +1,335 @@
+/*
+ * Please read the LICENSE file that is included with the source
+ * code.
+ */
+package se.nicklasgavelin.sphero.simulator;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.microedition.io.StreamConnection;
+import se.nicklasgavelin.bluetooth.StreamBluetoothDevice;
+import se.nicklasgavelin.sphero.Robot;
+
+/**
+ * A simulated Sphero device that speaks the same packet format as the real
+ * device. Every command is answered with a checksummed response carrying the
+ * sequence number of the command, and information packets (EMIT, DATA and
+ * COLLISIONDETECTED) are sent at the configured rates. Data streaming is
+ * started and stopped with SetDataStreamingCommand just like on a real
+ * device.
+ *
+ * Use createDevice() to get a device that a Robot can connect to:
+ *
+ * Robot r = new Robot( new SimulatedRobot( 1 ).createDevice() );
+ * r.connect();
+ *
+ * Latency, fragmentation of the received data and corruption of packets
+ * can be injected to test the robustness of the receiving side. The
+ * periodic packets of all simulated robots are produced by one small shared
+ * thread pool, so several hundred simulated robots can run in the same
+ * process.
+ *
+ * Settings may be changed at any time, they are picked up by new
+ * connections and (except the rates) by active connections.
+ */
+public class SimulatedRobot
+{
+	private static ScheduledExecutorService scheduler;
+
+	private final String address, name;
+
+	// Injected faults
+	private volatile int latency = 0, latencyJitter = 0, maxFragmentSize = 0;
+	private volatile double corruptionRate = 0, garbageRate = 0;
+
+	// Information packets
+	private volatile float emitRate = 0, collisionRate = 0;
+	private volatile int streamDivisor = 0, streamFrames = 1, streamMask = 0,
+			streamMask2 = 0;
+
+	private volatile long seed = System.nanoTime();
+
+	// Statistics
+	final AtomicLong commandsReceived = new AtomicLong(),
+			packetsSent = new AtomicLong(), packetsCorrupted = new AtomicLong();
+
+	/**
+	 * Create a simulated robot with a generated address and name
+	 *
+	 * @param index A number that is unique for the simulated robot
+	 */
+	public SimulatedRobot( int index )
+	{
+		this( Robot.ROBOT_ADDRESS_PREFIX + String.format( "%07X", index & 0xFFFFFFF ), "Sphero-SIM" + index );
+	}
+
+	/**
+	 * Create a simulated robot
+	 *
+	 * @param address The Bluetooth address, must be a valid Sphero address
+	 * @param name The name of the robot
+	 */
+	public SimulatedRobot( String address, String name )
+	{
+		this.address = address;
+		this.name = name;
+	}
+
+	/**
+	 * Create a device that opens a new simulated connection each time it's
+	 * connected to
+	 *
+	 * @return The device
+	 */
+	public StreamBluetoothDevice createDevice()
+	{
+		return new StreamBluetoothDevice( this.address, this.name, new StreamBluetoothDevice.ConnectionFactory() {
+			@Override
+			public StreamConnection open() throws IOException
+			{
+				return SimulatedRobot.this.openConnection();
+			}
+		} );
+	}
+
+	/**
+	 * Open a new simulated connection
+	 *
+	 * @return The connection
+	 */
+	public StreamConnection openConnection()
+	{
+		return new SimulatedConnection( this );
+	}
+
+	/**
+	 * Returns the scheduler that is shared by all simulated robots
+	 *
+	 * @return The shared scheduler
+	 */
+	static synchronized ScheduledExecutorService getScheduler()
+	{
+		if( scheduler == null )
+		{
+			scheduler = Executors.newScheduledThreadPool( Math.max( 2, Runtime.getRuntime().availableProcessors() ), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "Sphero simulator " + count.incrementAndGet() );
+					t.setDaemon( true );
+					return t;
+				}
+			} );
+		}
+
+		return scheduler;
+	}
+
+	/*
+	 * *****************************************************
+	 * SETTINGS
+	 * ****************************************************
+	 */
+
+	/**
+	 * Returns the address of the simulated robot
+	 *
+	 * @return The Bluetooth address
+	 */
+	public String getAddress()
+	{
+		return this.address;
+	}
+
+	/**
+	 * Returns the name of the simulated robot
+	 *
+	 * @return The name
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Set the time it takes for a packet to reach the host
+	 *
+	 * @param latency The latency in ms
+	 * @param jitter A random extra latency of up to jitter ms, packets are
+	 *            never reordered
+	 */
+	public void setLatency( int latency, int jitter )
+	{
+		this.latency = Math.max( 0, latency );
+		this.latencyJitter = Math.max( 0, jitter );
+	}
+
+	int getLatency()
+	{
+		return this.latency;
+	}
+
+	int getLatencyJitter()
+	{
+		return this.latencyJitter;
+	}
+
+	/**
+	 * Limit the number of bytes returned by a single read, the size of each
+	 * read is random between 1 and the given size. Splits packets over
+	 * several reads.
+	 *
+	 * @param size The maximum number of bytes per read, 0 for no limit
+	 */
+	public void setMaxFragmentSize( int size )
+	{
+		this.maxFragmentSize = Math.max( 0, size );
+	}
+
+	int getMaxFragmentSize()
+	{
+		return this.maxFragmentSize;
+	}
+
+	/**
+	 * Set the probability that a sent packet gets a random byte changed
+	 *
+	 * @param rate The probability (0-1)
+	 */
+	public void setCorruptionRate( double rate )
+	{
+		this.corruptionRate = rate;
+	}
+
+	double getCorruptionRate()
+	{
+		return this.corruptionRate;
+	}
+
+	/**
+	 * Set the probability that random garbage bytes are sent in front of a
+	 * packet
+	 *
+	 * @param rate The probability (0-1)
+	 */
+	public void setGarbageRate( double rate )
+	{
+		this.garbageRate = rate;
+	}
+
+	double getGarbageRate()
+	{
+		return this.garbageRate;
+	}
+
+	/**
+	 * Set the rate of EMIT information packets
+	 *
+	 * @param perSecond Packets per second, 0 to turn off
+	 */
+	public void setEmitRate( float perSecond )
+	{
+		this.emitRate = perSecond;
+	}
+
+	float getEmitRate()
+	{
+		return this.emitRate;
+	}
+
+	/**
+	 * Set the rate of COLLISIONDETECTED information packets
+	 *
+	 * @param perSecond Packets per second, 0 to turn off
+	 */
+	public void setCollisionRate( float perSecond )
+	{
+		this.collisionRate = perSecond;
+	}
+
+	float getCollisionRate()
+	{
+		return this.collisionRate;
+	}
+
+	/**
+	 * Start data streaming as soon as a connection is opened, without
+	 * waiting for a SetDataStreamingCommand. Uses the same values as
+	 * SetDataStreamingCommand.
+	 *
+	 * @param divisor Divisor of the 400 Hz sampling rate, 0 to turn off
+	 * @param frames Number of frames per packet
+	 * @param mask The first sensor mask
+	 * @param mask2 The second sensor mask
+	 */
+	public void setDataStreaming( int divisor, int frames, int mask, int mask2 )
+	{
+		this.streamDivisor = divisor;
+		this.streamFrames = Math.max( 1, frames );
+		this.streamMask = mask;
+		this.streamMask2 = mask2;
+	}
+
+	int[] getDataStreaming()
+	{
+		return new int[] { this.streamDivisor, this.streamFrames, this.streamMask, this.streamMask2 };
+	}
+
+	/**
+	 * Set the seed used for the injected faults and the simulated sensor
+	 * values of new connections
+	 *
+	 * @param seed The seed
+	 */
+	public void setSeed( long seed )
+	{
+		this.seed = seed;
+	}
+
+	long getSeed()
+	{
+		return this.seed;
+	}
+
+	/*
+	 * *****************************************************
+	 * STATISTICS
+	 * ****************************************************
+	 */
+
+	/**
+	 * Returns the number of commands received by all connections
+	 *
+	 * @return The number of received commands
+	 */
+	public long getCommandsReceived()
+	{
+		return this.commandsReceived.get();
+	}
+
+	/**
+	 * Returns the number of packets sent by all connections
+	 *
+	 * @return The number of sent packets
+	 */
+	public long getPacketsSent()
+	{
+		return this.packetsSent.get();
+	}
+
+	/**
+	 * Returns the number of packets that were deliberately corrupted
+	 *
+	 * @return The number of corrupted packets
+	 */
+	public long getPacketsCorrupted()
+	{
+		return this.packetsCorrupted.get();
+	}
+}
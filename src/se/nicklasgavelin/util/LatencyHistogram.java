@@ -0,0 +1,186 @@
+package se.nicklasgavelin.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in ns with a fixed relative precision. Values below
+ * 64 ns are counted exactly, larger values are counted in buckets that are
+ * 1/32 of their power of two wide (about 3 % precision), up to 2^40 ns (about
+ * 18 minutes). Recording a value doesn't allocate.
+ *
+ * Thread safe.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKETS = 32, MAX_EXPONENT = 40;
+	private static final int BUCKETS = ( MAX_EXPONENT - 4 ) * SUB_BUCKETS;
+
+	private final long[] counts;
+	private long count = 0, total = 0, min = Long.MAX_VALUE, max = 0;
+
+	/**
+	 * Create an empty histogram
+	 */
+	public LatencyHistogram()
+	{
+		this.counts = new long[ BUCKETS ];
+	}
+
+	/**
+	 * Record a latency, negative values are counted as 0
+	 *
+	 * @param value The latency in ns
+	 */
+	public synchronized void record( long value )
+	{
+		if( value < 0 )
+			value = 0;
+
+		this.counts[index( value )]++;
+		this.count++;
+		this.total += value;
+
+		if( value < this.min )
+			this.min = value;
+		if( value > this.max )
+			this.max = value;
+	}
+
+	/**
+	 * Returns the number of recorded latencies
+	 *
+	 * @return The number of latencies
+	 */
+	public synchronized long getCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Returns the lowest recorded latency
+	 *
+	 * @return The lowest latency in ns, 0 if nothing has been recorded
+	 */
+	public synchronized long getMin()
+	{
+		return( this.count == 0 ? 0 : this.min );
+	}
+
+	/**
+	 * Returns the highest recorded latency
+	 *
+	 * @return The highest latency in ns
+	 */
+	public synchronized long getMax()
+	{
+		return this.max;
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies
+	 *
+	 * @return The mean latency in ns
+	 */
+	public synchronized long getMean()
+	{
+		return( this.count == 0 ? 0 : this.total / this.count );
+	}
+
+	/**
+	 * Returns the latency that the given percentage of the recorded latencies
+	 * are lower than or equal to. The value is the upper limit of the bucket
+	 * the percentile falls in, but never more than the highest latency.
+	 *
+	 * @param percentile The percentile (0-100)
+	 *
+	 * @return The latency in ns, 0 if nothing has been recorded
+	 */
+	public synchronized long getValueAtPercentile( double percentile )
+	{
+		if( this.count == 0 )
+			return 0;
+
+		long rank = (long) Math.ceil( Value.clamp( percentile, 0, 100 ) / 100D * this.count );
+		if( rank < 1 )
+			rank = 1;
+
+		long seen = 0;
+		for( int i = 0; i < BUCKETS; i++ )
+		{
+			seen += this.counts[i];
+			if( seen >= rank )
+				return Math.min( highestEquivalent( i ), this.max );
+		}
+
+		return this.max;
+	}
+
+	/**
+	 * Remove all recorded latencies
+	 */
+	public synchronized void reset()
+	{
+		Arrays.fill( this.counts, 0 );
+		this.count = 0;
+		this.total = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+
+	/**
+	 * Returns a copy of the histogram
+	 *
+	 * @return A copy that isn't affected by later recordings
+	 */
+	public synchronized LatencyHistogram copy()
+	{
+		LatencyHistogram copy = new LatencyHistogram();
+		System.arraycopy( this.counts, 0, copy.counts, 0, BUCKETS );
+		copy.count = this.count;
+		copy.total = this.total;
+		copy.min = this.min;
+		copy.max = this.max;
+
+		return copy;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "count " + this.count + ", p50 " + ms( this.getValueAtPercentile( 50 ) ) + " ms, p99 " + ms( this.getValueAtPercentile( 99 ) ) + " ms, max " + ms( this.max ) + " ms";
+	}
+
+	/**
+	 * Returns the bucket of a value
+	 */
+	private static int index( long value )
+	{
+		int exponent = 63 - Long.numberOfLeadingZeros( value );
+		if( exponent >= MAX_EXPONENT )
+			return BUCKETS - 1;
+
+		// Values below 2 * SUB_BUCKETS get a bucket each, above that the
+		// lowest bits are dropped
+		int shift = Math.max( 0, exponent - 5 );
+		return shift * SUB_BUCKETS + (int) ( value >>> shift );
+	}
+
+	/**
+	 * Returns the highest value that is counted in a bucket
+	 */
+	private static long highestEquivalent( int index )
+	{
+		int shift = ( index < 2 * SUB_BUCKETS ? 0 : index / SUB_BUCKETS - 1 );
+		long lowest = (long) ( index - shift * SUB_BUCKETS ) << shift;
+
+		return lowest + ( 1L << shift ) - 1;
+	}
+
+	/**
+	 * Returns a latency in ms with two decimals
+	 */
+	private static String ms( long ns )
+	{
+		return String.format( "%.2f", ns / 1000000D );
+	}
+}